@@ -0,0 +1,52 @@
+package benchmark;
+
+import jdk.jfr.Recording;
+import model.TorrentFile;
+import org.openjdk.jmh.annotations.*;
+import torrent.TorrentClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightEventsBenchmark {
+    // off: no recording; threshold: recording, but every request is shorter than the threshold
+    @Param({"off", "threshold"})
+    String recording;
+
+    private Recording active;
+    private TorrentClient seeder;
+    private TorrentClient leecher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TorrentFile file = new TorrentFile("hash123", "bench.data", 64L * 16384, 16384);
+        seeder = new TorrentClient("SEED001", "10.0.0.2", "NYC", 1000, 1000.0, 1000.0, Long.MAX_VALUE);
+        leecher = new TorrentClient("PEER001", "10.0.1.1", "NYC", 1000, 1000.0, 1000.0, Long.MAX_VALUE);
+        seeder.initializeDownload(file);
+        leecher.initializeDownload(file);
+        if (recording.equals("threshold")) {
+            active = new Recording();
+            active.enable("torrent.PieceRequest").withThreshold(Duration.ofSeconds(1));
+            active.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (active != null) {
+            active.close();
+        }
+    }
+
+    // The seeder lacks the piece, so the request is refused and nothing changes between calls
+    @Benchmark
+    public boolean refusedRequest() {
+        return leecher.requestPiece("hash123", 7, seeder);
+    }
+}
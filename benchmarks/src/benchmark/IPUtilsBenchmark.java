@@ -0,0 +1,47 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import util.IPUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IPUtilsBenchmark {
+    private static final int ADDRESS_COUNT = 1024; // power of two for cheap wrap-around
+
+    private String[] addresses;
+    private String[] ipv6Addresses;
+    private final long[] packed = new long[2];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        addresses = new String[ADDRESS_COUNT];
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            addresses[i] = "10." + (i % 256) + "." + (i * 7 % 256) + "." + (255 - i % 256);
+        }
+        ipv6Addresses = new String[ADDRESS_COUNT];
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            ipv6Addresses[i] = "2001:db8:" + Integer.toHexString(i) + "::" + Integer.toHexString(i * 7 + 1);
+        }
+    }
+
+    @Benchmark
+    public String validateIP() {
+        String address = addresses[next];
+        next = (next + 1) & (ADDRESS_COUNT - 1);
+        return IPUtils.validateIP(address);
+    }
+
+    @Benchmark
+    public long parseIPv6() {
+        String address = ipv6Addresses[next];
+        next = (next + 1) & (ADDRESS_COUNT - 1);
+        return IPUtils.parseIPv6(address, packed) ? packed[0] ^ packed[1] : 0;
+    }
+}
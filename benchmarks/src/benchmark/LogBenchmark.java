@@ -0,0 +1,47 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import util.Log;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+    private Log disabled;
+    private Log enabled;
+    private int piece;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        disabled = new Log(Writer.nullWriter(), Log.Level.OFF, Log.DEFAULT_CAPACITY);
+        enabled = new Log(Writer.nullWriter(), Log.Level.DEBUG, Log.DEFAULT_CAPACITY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        disabled.close();
+        enabled.close();
+    }
+
+    // The guarded call a hot path pays when the level is off
+    @Benchmark
+    public void disabled() {
+        if (disabled.isEnabled(Log.Level.DEBUG)) {
+            disabled.log(Log.Level.DEBUG, "Peer {} downloaded piece {} from {}", "PEER1", piece++, "SEED1");
+        }
+    }
+
+    // Cost on the calling thread; formatting and I/O happen on the writer thread
+    @Benchmark
+    public void enabled() {
+        if (enabled.isEnabled(Log.Level.DEBUG)) {
+            enabled.log(Log.Level.DEBUG, "Peer {} downloaded piece {} from {}", "PEER1", piece++, "SEED1");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import util.Metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private Metrics.Counter counter;
+    private Metrics.Histogram histogram;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Metrics metrics = new Metrics();
+        counter = metrics.counter("bytes");
+        histogram = metrics.histogram("latency");
+    }
+
+    @Benchmark
+    public void counter() {
+        counter.add(262144);
+    }
+
+    // Spread over many buckets, as piece latencies are
+    @Benchmark
+    public void histogram() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1 << 20));
+    }
+
+    // Contended: every benchmark thread records into the same instruments
+    @Benchmark
+    @Threads(4)
+    public void histogramContended() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1 << 20));
+    }
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import base.Router;
+import base.RoutingTrie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+    private static final int ADDRESS_COUNT = 4096; // power of two for cheap wrap-around
+
+    @Param({"100", "10000", "100000"})
+    int routeCount;
+
+    private Router router;
+    private int[] destinations;
+    private int next;
+
+    // Route lengths skewed towards /16-/24 like a real table, plus a default route
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        router = new Router("RTR001", "10.0.0.1", "NYC", 10000);
+        router.addRoute("0.0.0.0/0", "UPLINK");
+        int[] prefixes = new int[routeCount];
+        for (int i = 0; i < routeCount; i++) {
+            int length = 16 + random.nextInt(9);
+            prefixes[i] = random.nextInt() & RoutingTrie.mask(length);
+            router.addRoute(formatCIDR(prefixes[i], length), "HOP" + (i % 64));
+        }
+        destinations = new int[ADDRESS_COUNT];
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            destinations[i] = i % 2 == 0 ? random.nextInt() : prefixes[random.nextInt(routeCount)] | random.nextInt(256);
+        }
+    }
+
+    private static String formatCIDR(int prefix, int length) {
+        return (prefix >>> 24) + "." + ((prefix >>> 16) & 0xFF) + "." + ((prefix >>> 8) & 0xFF) + "." + (prefix & 0xFF)
+                + "/" + length;
+    }
+
+    @Benchmark
+    public String route() {
+        int destination = destinations[next];
+        next = (next + 1) & (ADDRESS_COUNT - 1);
+        return router.route(destination);
+    }
+}
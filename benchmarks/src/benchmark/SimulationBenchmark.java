@@ -0,0 +1,38 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import simulation.Simulation;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    @Param({"3", "16", "64"})
+    int peerCount;
+
+    private Simulation simulation;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        simulation = new Simulation(peerCount);
+    }
+
+    @Benchmark
+    public boolean firstCycle() {
+        return simulation.runCycle();
+    }
+
+    @Benchmark
+    public int untilComplete() {
+        int cycles = 1;
+        while (!simulation.runCycle()) {
+            cycles++;
+        }
+        return cycles;
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import model.SwarmInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwarmInfoBenchmark {
+    private static final int PEERS = 10_000;
+
+    private SwarmInfo swarm;
+    private String[] peerIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        swarm = new SwarmInfo("HASH001");
+        peerIds = new String[PEERS];
+        for (int i = 0; i < PEERS; i++) {
+            peerIds[i] = "PEER" + i;
+            swarm.addPeer(peerIds[i], i % 4 == 0);
+        }
+    }
+
+    // A peer leaving and coming back, as churn announces do
+    @Benchmark
+    public boolean rejoin() {
+        String peerId = peerIds[ThreadLocalRandom.current().nextInt(PEERS)];
+        swarm.removePeer(peerId);
+        return swarm.addPeer(peerId, false);
+    }
+
+    // Announces from many threads land on different stripes
+    @Benchmark
+    @Threads(4)
+    public boolean rejoinContended() {
+        String peerId = peerIds[ThreadLocalRandom.current().nextInt(PEERS)];
+        swarm.removePeer(peerId);
+        return swarm.addPeer(peerId, false);
+    }
+
+    // What a metrics scrape or health sample pays for both counts
+    @Benchmark
+    public int counts() {
+        return swarm.getCounts().getPeers();
+    }
+
+    @Benchmark
+    public int activePeersCopy() {
+        return swarm.getActivePeers().size();
+    }
+}
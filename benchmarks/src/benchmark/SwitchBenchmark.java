@@ -0,0 +1,58 @@
+package benchmark;
+
+import base.Switch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchBenchmark {
+    private static final int FRAME_COUNT = 4096; // power of two for cheap wrap-around
+    private static final int PORT_COUNT = 48;
+
+    @Param({"64", "8192", "131072"})
+    int stationCount;
+
+    private Switch networkSwitch;
+    private int[] inPorts;
+    private long[] sources;
+    private long[] destinations;
+    private long now;
+    private int next;
+
+    // Every station has sent once, so frames between them are forwarded rather than flooded
+    @Setup(Level.Trial)
+    public void setUp() {
+        networkSwitch = new Switch("SW001", "10.0.0.1", "NYC", PORT_COUNT, 10000);
+        long[] macs = new long[stationCount];
+        int[] ports = new int[stationCount];
+        Random random = new Random(42);
+        for (int i = 0; i < stationCount; i++) {
+            macs[i] = 0x020000000000L | random.nextInt(Integer.MAX_VALUE);
+            ports[i] = 1 + i % PORT_COUNT;
+            networkSwitch.forward(ports[i], macs[i], macs[0], 0);
+        }
+        inPorts = new int[FRAME_COUNT];
+        sources = new long[FRAME_COUNT];
+        destinations = new long[FRAME_COUNT];
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            int source = random.nextInt(stationCount);
+            inPorts[i] = ports[source];
+            sources[i] = macs[source];
+            destinations[i] = macs[random.nextInt(stationCount)];
+        }
+    }
+
+    @Benchmark
+    public int forward() {
+        int i = next;
+        next = (next + 1) & (FRAME_COUNT - 1);
+        return networkSwitch.forward(inPorts[i], sources[i], destinations[i], ++now >>> 20);
+    }
+}
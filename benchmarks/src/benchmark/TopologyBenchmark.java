@@ -0,0 +1,82 @@
+package benchmark;
+
+import base.Device;
+import base.Router;
+import base.Switch;
+import base.Topology;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopologyBenchmark {
+    private static final int PAIR_COUNT = 1024; // power of two for cheap wrap-around
+
+    @Param({"16", "128"})
+    int switchCount;
+
+    private Topology topology;
+    private Device[] sources;
+    private Device[] destinations;
+    private int next;
+
+    // A core router with one edge router and one switch of 16 peers per site
+    @Setup(Level.Trial)
+    public void setUp() {
+        Router core = new Router("CORE", "10.0.0.1", "NYC", 100000);
+        Device[] peers = new Device[switchCount * 16];
+        for (int s = 0; s < switchCount; s++) {
+            Router edge = new Router("EDGE" + s, "10." + (s + 1) + ".0.1", "NYC", 1000);
+            Switch lan = new Switch("LAN" + s, "10." + (s + 1) + ".0.2", "NYC", 17, 1000);
+            lan.addDevice(17, edge);
+            for (int p = 0; p < 16; p++) {
+                peers[s * 16 + p] = new Device("PEER" + s + "-" + p, "10." + (s + 1) + ".1." + (p + 1), "NYC");
+                lan.addDevice(p + 1, peers[s * 16 + p]);
+            }
+            edge.addDevice(lan);
+            core.addDevice(edge);
+        }
+        topology = new Topology(PAIR_COUNT * 2);
+        topology.add(core);
+
+        Random random = new Random(42);
+        sources = new Device[PAIR_COUNT];
+        destinations = new Device[PAIR_COUNT];
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            sources[i] = peers[random.nextInt(peers.length)];
+            destinations[i] = peers[random.nextInt(peers.length)];
+        }
+    }
+
+    @Benchmark
+    public Topology.Path cachedPath() {
+        int i = next;
+        next = (next + 1) & (PAIR_COUNT - 1);
+        return topology.findPath(sources[i], destinations[i]);
+    }
+
+    // A peer leaving and coming back, as churn does, between lookups
+    @Benchmark
+    public Topology.Path churnAndPath() {
+        int i = next;
+        next = (next + 1) & (PAIR_COUNT - 1);
+        Device churned = destinations[(i + 1) & (PAIR_COUNT - 1)];
+        churned.setOnline(false);
+        churned.setOnline(true);
+        return topology.findPath(sources[i], destinations[i]);
+    }
+
+    @Benchmark
+    public Topology.Path rebuildAndSearch() {
+        int i = next;
+        next = (next + 1) & (PAIR_COUNT - 1);
+        topology.invalidate();
+        return topology.findPath(sources[i], destinations[i]);
+    }
+}
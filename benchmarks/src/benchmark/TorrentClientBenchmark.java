@@ -0,0 +1,69 @@
+package benchmark;
+
+import model.TorrentFile;
+import org.openjdk.jmh.annotations.*;
+import torrent.TorrentClient;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TorrentClientBenchmark {
+    private static final int PIECE_SIZE = 16384; // 16KB keeps large piece counts within storage
+
+    @Param({"64", "4096", "65536"})
+    int pieceCount;
+
+    private TorrentFile metainfo;
+    private TorrentClient seeder;
+    private TorrentClient halfDone;
+    private TorrentClient leecher;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        metainfo = new TorrentFile("hash123", "bench.data", (long) pieceCount * PIECE_SIZE, PIECE_SIZE);
+        seeder = newClient("SEED001", "10.0.0.2");
+        seeder.initializeDownload(metainfo);
+        TorrentFile seeded = seeder.getDownloadingFile("hash123");
+        for (int i = 0; i < pieceCount; i++) {
+            seeded.markPieceCompleted(i);
+        }
+        // Completed front half: getNextNeededPiece has to scan past it
+        halfDone = newClient("PEER001", "10.0.1.1");
+        halfDone.initializeDownload(metainfo);
+        for (int i = 0; i < pieceCount / 2; i++) {
+            halfDone.getDownloadingFile("hash123").markPieceCompleted(i);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        leecher = newClient("PEER002", "10.0.1.2");
+        leecher.initializeDownload(metainfo);
+    }
+
+    private static TorrentClient newClient(String id, String ip) {
+        return new TorrentClient(id, ip, "NYC", 1000, 1000.0, 1000.0, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int getNextNeededPiece() {
+        return halfDone.getNextNeededPiece("hash123");
+    }
+
+    // Downloads the whole torrent piece by piece from the seeder
+    @Benchmark
+    public int requestAllPieces() {
+        int received = 0;
+        for (int i = 0; i < pieceCount; i++) {
+            if (leecher.requestPiece("hash123", i, seeder)) {
+                received++;
+            }
+        }
+        return received;
+    }
+}
@@ -0,0 +1,43 @@
+package benchmark;
+
+import model.TorrentFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TorrentFileBenchmark {
+    private static final int PIECE_SIZE = 262144; // 256KB
+
+    @Param({"64", "4096", "65536"})
+    int pieceCount;
+
+    private TorrentFile file;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        file = new TorrentFile("hash123", "bench.data", (long) pieceCount * PIECE_SIZE, PIECE_SIZE);
+        for (int i = 0; i < pieceCount; i += 2) {
+            file.markPieceCompleted(i);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public TorrentFile markPieceCompleted() {
+        file.markPieceCompleted(next);
+        next = next + 1 == pieceCount ? 0 : next + 1;
+        return file;
+    }
+
+    @Benchmark
+    public double getProgress() {
+        return file.getProgress();
+    }
+}
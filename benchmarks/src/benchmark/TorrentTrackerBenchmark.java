@@ -0,0 +1,46 @@
+package benchmark;
+
+import model.TorrentFile;
+import org.openjdk.jmh.annotations.*;
+import torrent.TorrentTracker;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TorrentTrackerBenchmark {
+    @Param({"100", "10000", "100000"})
+    int peerCount;
+
+    private TorrentTracker tracker;
+    private String[] peerIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = new TorrentTracker("TRK001", "10.0.0.1", "NYC", 1000, 100.0, 100.0, Long.MAX_VALUE);
+        tracker.trackFile(new TorrentFile("hash123", "bench.data", 10_485_760L, 262144));
+        peerIds = new String[peerCount];
+        for (int i = 0; i < peerCount; i++) {
+            peerIds[i] = "PEER" + i;
+            tracker.announce("hash123", peerIds[i], "started");
+        }
+    }
+
+    @Benchmark
+    public TorrentTracker announce() {
+        tracker.announce("hash123", peerIds[next], "started");
+        next = next + 1 == peerCount ? 0 : next + 1;
+        return tracker;
+    }
+
+    @Benchmark
+    public Set<String> getPeers() {
+        return tracker.getPeers("hash123");
+    }
+}
@@ -1,5 +1,7 @@
 package base;
 
+import util.IPAddress;
+
 public class Computer extends Router {
     protected final double maxUploadSpeed;
     protected final double maxDownloadSpeed;
@@ -8,7 +10,12 @@ public class Computer extends Router {
 
     public Computer(String deviceID, String ipAddress, String location,
                     int bandwidth, double maxUploadSpeed, double maxDownloadSpeed, long storageCapacity) {
-        super(deviceID, ipAddress, location, bandwidth);
+        this(deviceID, IPAddress.parse(ipAddress), location, bandwidth, maxUploadSpeed, maxDownloadSpeed, storageCapacity);
+    }
+
+    public Computer(String deviceID, IPAddress address, String location,
+                    int bandwidth, double maxUploadSpeed, double maxDownloadSpeed, long storageCapacity) {
+        super(deviceID, address, location, bandwidth);
         this.maxUploadSpeed = Math.max(maxUploadSpeed, 0);
         this.maxDownloadSpeed = Math.max(maxDownloadSpeed, 0);
         this.storageCapacity = Math.max(storageCapacity, 0);
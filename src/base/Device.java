@@ -1,31 +1,101 @@
 package base;
 
-import util.IPUtils;
+import util.IPAddress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 public class Device {
     private final String deviceID;
-    private final String ipAddress;
+    private final IPAddress address;
     private final String location;
+    private final long macAddress;
     private boolean isOnline;
+    private List<DeviceListener> listeners; // allocated on first subscription
 
     public Device(String deviceID, String ipAddress, String location) {
+        this(deviceID, IPAddress.parse(ipAddress), location);
+    }
+
+    public Device(String deviceID, IPAddress address, String location) {
+        if (address == null) {
+            throw new IllegalArgumentException("Address must not be null");
+        }
         this.deviceID = deviceID;
-        this.ipAddress = IPUtils.validateIP(ipAddress);
+        this.address = address;
         this.location = location;
+        this.macAddress = macFor(deviceID);
         this.isOnline = true;
     }
 
     public String getDeviceID() { return deviceID; }
-    public String getIpAddress() { return ipAddress; }
+    public String getIpAddress() { return address.toString(); }
+    public IPAddress getAddress() { return address; }
     public String getLocation() { return location; }
+    public long getMacAddress() { return macAddress; }
     public boolean isOnline() { return isOnline; }
 
     public void setOnline(boolean status) {
-        this.isOnline = status;
+        if (status != isOnline) {
+            this.isOnline = status;
+            if (hasListeners()) {
+                fireEvent(new DeviceEvent(status ? DeviceEvent.Type.ONLINE : DeviceEvent.Type.OFFLINE, this));
+            }
+        }
+    }
+
+    // Stable locally administered unicast MAC derived from the ID (FNV-1a, 46 bits)
+    private static long macFor(String deviceID) {
+        long hash = 0xCBF29CE484222325L;
+        if (deviceID != null) {
+            for (int i = 0; i < deviceID.length(); i++) {
+                hash = (hash ^ deviceID.charAt(i)) * 0x100000001B3L;
+            }
+        }
+        return (hash & 0xFCFFFFFFFFFFL) | 0x020000000000L;
+    }
+
+    public void addListener(DeviceListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>(1);
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(DeviceListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    // Lets state changes skip building an event nobody would receive
+    protected boolean hasListeners() {
+        return listeners != null && !listeners.isEmpty();
+    }
+
+    protected void fireEvent(DeviceEvent event) {
+        if (listeners != null) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onDeviceEvent(event);
+            }
+        }
+    }
+
+    // Attached devices changed, so listeners such as a Topology must rediscover the links
+    protected void topologyChanged() {
+        if (hasListeners()) {
+            fireEvent(new DeviceEvent(DeviceEvent.Type.CONNECTIONS_CHANGED, this));
+        }
     }
 
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Device && ((Device) obj).deviceID.equals(this.deviceID);
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(deviceID);
+    }
 }
\ No newline at end of file
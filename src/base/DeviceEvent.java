@@ -0,0 +1,33 @@
+package base;
+
+public final class DeviceEvent {
+    // CONNECTIONS_CHANGED: a router, switch or hub attached or detached a device
+    public enum Type { ONLINE, OFFLINE, BANDWIDTH_CHANGED, CONNECTIONS_CHANGED }
+
+    private final Type type;
+    private final Device device;
+    private final int previousBandwidth;
+    private final int bandwidth;
+
+    public DeviceEvent(Type type, Device device) {
+        this(type, device, 0, 0);
+    }
+
+    public DeviceEvent(Type type, Device device, int previousBandwidth, int bandwidth) {
+        this.type = type;
+        this.device = device;
+        this.previousBandwidth = previousBandwidth;
+        this.bandwidth = bandwidth;
+    }
+
+    public Type getType() { return type; }
+    public Device getDevice() { return device; }
+    public int getPreviousBandwidth() { return previousBandwidth; } // BANDWIDTH_CHANGED only
+    public int getBandwidth() { return bandwidth; }
+
+    @Override
+    public String toString() {
+        return device.getDeviceID() + " " + type
+                + (type == Type.BANDWIDTH_CHANGED ? " " + previousBandwidth + " -> " + bandwidth : "");
+    }
+}
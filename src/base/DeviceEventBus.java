@@ -0,0 +1,108 @@
+package base;
+
+import java.util.*;
+
+// Collects state changes from watched devices and hands them to subscribers once per simulation
+// tick. Changes are coalesced per device, so a device that goes offline and back within a tick
+// produces no event, and several bandwidth changes produce one from the first to the last value.
+public class DeviceEventBus implements DeviceListener {
+    public interface Subscriber {
+        void onDeviceEvents(long tick, List<DeviceEvent> events);
+    }
+
+    private static final class Pending {
+        final boolean wasOnline;
+        final int previousBandwidth;
+        boolean online;
+        int bandwidth;
+        boolean bandwidthChanged;
+
+        Pending(boolean wasOnline, int previousBandwidth) {
+            this.wasOnline = wasOnline;
+            this.previousBandwidth = previousBandwidth;
+            this.online = wasOnline;
+            this.bandwidth = previousBandwidth;
+        }
+    }
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final Map<Device, Pending> pending = new LinkedHashMap<>(); // first change order
+    private long tick;
+    private long deliveredEvents;
+
+    public void watch(Device device) {
+        device.addListener(this);
+    }
+
+    public void unwatch(Device device) {
+        device.removeListener(this);
+        pending.remove(device);
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void onDeviceEvent(DeviceEvent event) {
+        Device device = event.getDevice();
+        Pending change = pending.get(device);
+        switch (event.getType()) {
+            case ONLINE, OFFLINE -> {
+                boolean online = event.getType() == DeviceEvent.Type.ONLINE;
+                if (change == null) {
+                    change = new Pending(!online, bandwidthOf(device));
+                    pending.put(device, change);
+                }
+                change.online = online;
+            }
+            case BANDWIDTH_CHANGED -> {
+                if (change == null) {
+                    change = new Pending(device.isOnline(), event.getPreviousBandwidth());
+                    pending.put(device, change);
+                }
+                change.bandwidth = event.getBandwidth();
+                change.bandwidthChanged = true;
+            }
+            case CONNECTIONS_CHANGED -> { } // wiring is a Topology's concern, not the subscribers'
+        }
+    }
+
+    private static int bandwidthOf(Device device) {
+        return device instanceof Router ? ((Router) device).getBandwidth() : 0;
+    }
+
+    // Ends the current tick: delivers the net changes since the last flush and returns how many
+    public int flush() {
+        List<DeviceEvent> events = new ArrayList<>(pending.size());
+        for (Map.Entry<Device, Pending> entry : pending.entrySet()) {
+            Device device = entry.getKey();
+            Pending change = entry.getValue();
+            if (change.online != change.wasOnline) {
+                events.add(new DeviceEvent(change.online ? DeviceEvent.Type.ONLINE : DeviceEvent.Type.OFFLINE, device));
+            }
+            if (change.bandwidthChanged && change.bandwidth != change.previousBandwidth) {
+                events.add(new DeviceEvent(DeviceEvent.Type.BANDWIDTH_CHANGED, device,
+                        change.previousBandwidth, change.bandwidth));
+            }
+        }
+        pending.clear();
+        if (!events.isEmpty()) {
+            List<DeviceEvent> batch = Collections.unmodifiableList(events);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.onDeviceEvents(tick, batch);
+            }
+        }
+        deliveredEvents += events.size();
+        tick++;
+        return events.size();
+    }
+
+    public long getTick() { return tick; }
+    public long getDeliveredEvents() { return deliveredEvents; }
+    public int getPendingDeviceCount() { return pending.size(); }
+}
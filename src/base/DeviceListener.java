@@ -0,0 +1,6 @@
+package base;
+
+// Told synchronously about every state change of the devices it listens to
+public interface DeviceListener {
+    void onDeviceEvent(DeviceEvent event);
+}
@@ -0,0 +1,169 @@
+package base;
+
+import java.util.Arrays;
+
+// Learned MAC -> port entries with aging, in a linear-probing table of primitive arrays.
+// MAC 0 marks an empty slot; expired entries are treated as absent and swept before the table grows.
+public class ForwardingTable {
+    public static final int NOT_FOUND = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private final long agingMillis;
+    private long[] macs;
+    private int[] ports;
+    private long[] lastSeen;
+    private int size;
+
+    public ForwardingTable(long agingMillis) {
+        if (agingMillis <= 0) {
+            throw new IllegalArgumentException("Aging time must be positive");
+        }
+        this.agingMillis = agingMillis;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        macs = new long[capacity];
+        ports = new int[capacity];
+        lastSeen = new long[capacity];
+    }
+
+    private static int slot(long mac, int mask) {
+        long h = mac * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential MACs
+        return (int) (h >>> 32) & mask;
+    }
+
+    // Records that mac was seen on port at time now
+    public void learn(long mac, int port, long now) {
+        if (mac == 0) {
+            throw new IllegalArgumentException("MAC address 0 is reserved");
+        }
+        int mask = macs.length - 1;
+        for (int i = slot(mac, mask); ; i = (i + 1) & mask) {
+            if (macs[i] == mac) {
+                ports[i] = port;
+                lastSeen[i] = now;
+                return;
+            }
+            if (macs[i] == 0) {
+                break;
+            }
+        }
+        if ((size + 1) * 2 > macs.length) {
+            // Grow unless sweeping aged entries frees most of the table, so sweeps stay amortised
+            expire(now);
+            if ((size + 1) * 4 > macs.length) {
+                rehash(macs.length * 2);
+            }
+        }
+        mask = macs.length - 1;
+        int i = slot(mac, mask);
+        while (macs[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        macs[i] = mac;
+        ports[i] = port;
+        lastSeen[i] = now;
+        size++;
+    }
+
+    // Port the MAC was last seen on, or NOT_FOUND if never seen or aged out
+    public int lookup(long mac, long now) {
+        int mask = macs.length - 1;
+        for (int i = slot(mac, mask); macs[i] != 0; i = (i + 1) & mask) {
+            if (macs[i] == mac) {
+                return now - lastSeen[i] > agingMillis ? NOT_FOUND : ports[i];
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    public boolean remove(long mac) {
+        int mask = macs.length - 1;
+        for (int i = slot(mac, mask); macs[i] != 0; i = (i + 1) & mask) {
+            if (macs[i] == mac) {
+                deleteAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Drops everything learned on a port, e.g. when its link goes down
+    public int removePort(int port) {
+        return removeIf(port, false, 0);
+    }
+
+    // Drops entries older than the aging time
+    public int expire(long now) {
+        return removeIf(NOT_FOUND, true, now);
+    }
+
+    private int removeIf(int port, boolean aged, long now) {
+        int removed = 0;
+        for (int i = 0; i < macs.length; ) {
+            if (macs[i] != 0 && (ports[i] == port || aged && now - lastSeen[i] > agingMillis)) {
+                deleteAt(i); // shifts a later entry into i, so look at i again
+                removed++;
+            } else {
+                i++;
+            }
+        }
+        return removed;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void deleteAt(int hole) {
+        int mask = macs.length - 1;
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (macs[i] == 0) {
+                break;
+            }
+            int home = slot(macs[i], mask);
+            // Move the entry back if its home slot is not between the hole and its current slot
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                macs[hole] = macs[i];
+                ports[hole] = ports[i];
+                lastSeen[hole] = lastSeen[i];
+                hole = i;
+            }
+        }
+        macs[hole] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMacs = macs;
+        int[] oldPorts = ports;
+        long[] oldSeen = lastSeen;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldMacs.length; j++) {
+            if (oldMacs[j] != 0) {
+                int i = slot(oldMacs[j], mask);
+                while (macs[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                macs[i] = oldMacs[j];
+                ports[i] = oldPorts[j];
+                lastSeen[i] = oldSeen[j];
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(macs, 0);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getAgingMillis() {
+        return agingMillis;
+    }
+}
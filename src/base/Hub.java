@@ -2,11 +2,16 @@ package base;
 
 import java.util.*;
 
-public class Hub extends Device {
+public class Hub extends Device implements DeviceListener {
+    public static final int DEFAULT_FRAME_BYTES = 1518; // largest Ethernet frame
+    private static final int SLOT_BITS = 512; // CSMA/CD contention slot, one round trip on the segment
+
     private final int portCount;
     private final int bandwidth;
-    private final List<Device> connectedDevices;
+    private final Map<String, Device> connectedDevices; // by device ID, in insertion order
     private final boolean isDualSpeed;
+    private int onlineDeviceCount; // kept up to date through device events
+    private int frameBytes = DEFAULT_FRAME_BYTES;
 
     public Hub(String deviceID, String ipAddress, String location,
                int portCount, int bandwidth, boolean isDualSpeed) {
@@ -14,22 +19,65 @@ public class Hub extends Device {
         this.portCount = portCount;
         this.bandwidth = bandwidth;
         this.isDualSpeed = isDualSpeed;
-        this.connectedDevices = new ArrayList<>();
+        this.connectedDevices = new LinkedHashMap<>();
     }
 
     public boolean addDevice(Device device) {
         if (device == null || connectedDevices.size() >= portCount) {
             return false;
         }
-        else if (!connectedDevices.contains(device)) {
-            connectedDevices.add(device);
+        else if (connectedDevices.putIfAbsent(device.getDeviceID(), device) == null) {
+            device.addListener(this);
+            if (device.isOnline()) {
+                onlineDeviceCount++;
+            }
+            topologyChanged();
             return true;
         }
         return false;
     }
 
     public boolean removeDevice(Device device) {
-        return connectedDevices.remove(device);
+        // The caller may hold an equal but different instance; unsubscribe the one we listen to
+        Device stored = device == null ? null : connectedDevices.remove(device.getDeviceID());
+        if (stored != null) {
+            stored.removeListener(this);
+            if (stored.isOnline()) {
+                onlineDeviceCount--;
+            }
+            topologyChanged();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void onDeviceEvent(DeviceEvent event) {
+        if (event.getType() != DeviceEvent.Type.ONLINE && event.getType() != DeviceEvent.Type.OFFLINE) {
+            return;
+        }
+        int previous = (int) Math.round(getContendedThroughputPerDevice());
+        onlineDeviceCount += event.getType() == DeviceEvent.Type.ONLINE ? 1 : -1;
+        // Every device's share of the medium may have moved, changing each of the hub's links
+        int current = (int) Math.round(getContendedThroughputPerDevice());
+        if (current != previous && hasListeners()) {
+            fireEvent(new DeviceEvent(DeviceEvent.Type.BANDWIDTH_CHANGED, this, previous, current));
+        }
+    }
+
+    public int getOnlineDeviceCount() {
+        return onlineDeviceCount;
+    }
+
+    public void setFrameSize(int frameBytes) {
+        if (frameBytes < 64) {
+            throw new IllegalArgumentException("Ethernet frames are at least 64 bytes");
+        }
+        this.frameBytes = frameBytes;
+    }
+
+    public int getFrameSize() {
+        return frameBytes;
     }
 
     public int getPortCount() {
@@ -53,7 +101,7 @@ public class Hub extends Device {
     }
 
     public List<Device> getConnectedDevices() {
-        return new ArrayList<>(connectedDevices);
+        return new ArrayList<>(connectedDevices.values());
     }
 
     public int broadcast(Device sourceDevice) {
@@ -63,29 +111,41 @@ public class Hub extends Device {
         }
 
         // Check if source device is connected and online
-        if (!connectedDevices.contains(sourceDevice) || !sourceDevice.isOnline()) {
+        if (!sourceDevice.isOnline() || !connectedDevices.containsKey(sourceDevice.getDeviceID())) {
             return 0;
         }
 
-        // Count online devices that can receive the broadcast
-        int broadcastCount = 0;
-        for (Device device : connectedDevices) {
-            if (device != sourceDevice && device.isOnline()) {
-                broadcastCount++;
-            }
-        }
-        return broadcastCount;
+        // Every other online device receives the broadcast
+        return onlineDeviceCount - 1;
     }
 
     public double getCurrentThroughput() {
-        int activeDevices = (int) connectedDevices.stream()
-                .filter(Device::isOnline)
-                .count();
-
-        if (activeDevices <= 1) {
+        if (onlineDeviceCount <= 1) {
             return bandwidth;
         }
         // Hub shares bandwidth among all connected devices
-        return (double) bandwidth / activeDevices;
+        return (double) bandwidth / onlineDeviceCount;
+    }
+
+    // Share of the medium carrying frames when every online device always has one to send.
+    // Metcalfe-Boggs: each contention slot succeeds with A = (1 - 1/N)^(N-1), so a frame waits
+    // (1 - A) / A slots on average before its transmission.
+    public double getChannelEfficiency() {
+        int stations = onlineDeviceCount;
+        if (stations <= 1) {
+            return 1.0;
+        }
+        double success = Math.pow(1.0 - 1.0 / stations, stations - 1);
+        double slotsPerFrame = (1 - success) / success;
+        return 1.0 / (1.0 + slotsPerFrame * SLOT_BITS / (frameBytes * 8.0));
+    }
+
+    // Goodput of the whole segment and of each device under saturation, in Mbps
+    public double getContendedThroughput() {
+        return bandwidth * getChannelEfficiency();
+    }
+
+    public double getContendedThroughputPerDevice() {
+        return getContendedThroughput() / Math.max(1, onlineDeviceCount);
     }
-}
\ No newline at end of file
+}
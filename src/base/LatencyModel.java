@@ -0,0 +1,135 @@
+package base;
+
+import java.util.*;
+
+// Round-trip times between device locations. Locations with coordinates get an RTT from their
+// great-circle distance; explicit RTTs override that for measured pairs. Lookups by index avoid
+// hashing location strings on hot paths.
+public class LatencyModel {
+    public static final double LOCAL_RTT_MS = 2.0;
+    public static final double DEFAULT_RTT_MS = 100.0; // pairs involving an unknown location
+    private static final double FIBER_KM_PER_MS = 200.0; // light in fiber, roughly 2/3 c
+    private static final double PATH_STRETCH = 1.5; // cables do not follow great circles
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final Map<String, Integer> indexByName = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private double[] latitudes = new double[8];
+    private double[] longitudes = new double[8];
+    private double[] rtts = new double[0]; // flattened square matrix, rebuilt when locations change
+    private final Map<String, Double> overrides = new HashMap<>();
+    private boolean dirty;
+
+    public static LatencyModel withDefaultLocations() {
+        return new LatencyModel()
+                .addLocation("NYC", 40.71, -74.01)
+                .addLocation("CHI", 41.88, -87.63)
+                .addLocation("LAX", 34.05, -118.24)
+                .addLocation("SFO", 37.77, -122.42)
+                .addLocation("LON", 51.51, -0.13)
+                .addLocation("FRA", 50.11, 8.68)
+                .addLocation("TYO", 35.68, 139.69)
+                .addLocation("SIN", 1.35, 103.82)
+                .addLocation("SYD", -33.87, 151.21);
+    }
+
+    public LatencyModel addLocation(String name, double latitude, double longitude) {
+        if (name == null || latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Invalid location: " + name);
+        }
+        int index = indexByName.computeIfAbsent(name, key -> {
+            names.add(key);
+            return names.size() - 1;
+        });
+        if (index >= latitudes.length) {
+            latitudes = Arrays.copyOf(latitudes, latitudes.length * 2);
+            longitudes = Arrays.copyOf(longitudes, longitudes.length * 2);
+        }
+        latitudes[index] = latitude;
+        longitudes[index] = longitude;
+        dirty = true;
+        return this;
+    }
+
+    // Measured RTT between two known locations, used instead of the distance estimate
+    public LatencyModel setRtt(String a, String b, double rttMs) {
+        if (!indexByName.containsKey(a) || !indexByName.containsKey(b) || rttMs < 0) {
+            throw new IllegalArgumentException("Invalid RTT between " + a + " and " + b);
+        }
+        overrides.put(pairKey(a, b), rttMs);
+        dirty = true;
+        return this;
+    }
+
+    public int indexOf(String location) {
+        Integer index = location == null ? null : indexByName.get(location);
+        return index == null ? -1 : index;
+    }
+
+    public int getLocationCount() {
+        return names.size();
+    }
+
+    public double getRtt(String a, String b) {
+        int from = indexOf(a);
+        if (from < 0 && a != null && a.equals(b)) {
+            return LOCAL_RTT_MS; // unknown, but the same place
+        }
+        return getRtt(from, indexOf(b));
+    }
+
+    public double getRtt(int a, int b) {
+        if (a < 0 || b < 0) {
+            return DEFAULT_RTT_MS;
+        }
+        if (dirty) {
+            rebuild();
+        }
+        return rtts[a * names.size() + b];
+    }
+
+    public double getRtt(Device a, Device b) {
+        return getRtt(a.getLocation(), b.getLocation());
+    }
+
+    // Time to move bytes between two locations at the given rate: one RTT to request, then streaming
+    public double getTransferMillis(String from, String to, long bytes, double mbps) {
+        return getRtt(from, to) + streamMillis(bytes, mbps);
+    }
+
+    public double getTransferMillis(int from, int to, long bytes, double mbps) {
+        return getRtt(from, to) + streamMillis(bytes, mbps);
+    }
+
+    public static double streamMillis(long bytes, double mbps) {
+        return mbps <= 0 ? Double.POSITIVE_INFINITY : bytes * 8 / (mbps * 1000.0);
+    }
+
+    private void rebuild() {
+        int n = names.size();
+        double[] matrix = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                Double measured = overrides.get(pairKey(names.get(i), names.get(j)));
+                matrix[i * n + j] = measured != null ? measured : estimate(i, j);
+            }
+        }
+        rtts = matrix;
+        dirty = false;
+    }
+
+    private double estimate(int a, int b) {
+        double lat1 = Math.toRadians(latitudes[a]);
+        double lat2 = Math.toRadians(latitudes[b]);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(longitudes[b] - longitudes[a]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double distanceKm = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+        return LOCAL_RTT_MS + 2 * distanceKm * PATH_STRETCH / FIBER_KM_PER_MS;
+    }
+
+    private static String pairKey(String a, String b) {
+        return a.compareTo(b) <= 0 ? a + '|' + b : b + '|' + a;
+    }
+}
@@ -1,23 +1,47 @@
 package base;
 
+import util.IPUtils;
+import util.IPAddress;
+import util.IPv4Address;
+import util.IPv6Address;
+
 import java.util.*;
 
 public class Router extends Device {
     protected int bandwidth;
-    protected final Map<String, String> routingTable;
+    protected final Map<IPAddress, String> routingTable;
     protected final List<Device> connectedDevices;
+    // IPv4 longest-prefix match, including /32 host routes; created by the first route, since most
+    // devices at scale are clients that never route anything
+    protected RoutingTrie prefixRoutes;
+    private Map<String, String> routingTableView; // created on first use
 
     public Router(String deviceID, String ipAddress, String location, int bandwidth) {
-        super(deviceID, ipAddress, location);
+        this(deviceID, IPAddress.parse(ipAddress), location, bandwidth);
+    }
+
+    public Router(String deviceID, IPAddress address, String location, int bandwidth) {
+        super(deviceID, address, location);
         setBandwidth(bandwidth);
         this.routingTable = new HashMap<>();
         this.connectedDevices = new ArrayList<>();
     }
 
+    private RoutingTrie prefixRoutes() {
+        if (prefixRoutes == null) {
+            prefixRoutes = new RoutingTrie();
+        }
+        return prefixRoutes;
+    }
+
     public boolean addDevice(Device device) {
         if (device == null) return false;
         connectedDevices.add(device);
-        routingTable.put(device.getIpAddress(), device.getDeviceID());
+        routingTable.put(device.getAddress(), device.getDeviceID());
+        if (device.getAddress() instanceof IPv4Address) {
+            prefixRoutes().add(((IPv4Address) device.getAddress()).toInt(), 32, device.getDeviceID());
+        }
+        topologyChanged();
         return true;
     }
 
@@ -27,21 +51,171 @@ public class Router extends Device {
         }
         boolean removed = connectedDevices.remove(device);
         if (removed) {
-            routingTable.remove(device.getIpAddress());
+            routingTable.remove(device.getAddress());
+            removeHostRoute(device.getAddress());
+            topologyChanged();
         }
         return removed;
     }
 
     public void setBandwidth(int bandwidth) {
+        int previous = this.bandwidth;
         this.bandwidth = Math.max(0, bandwidth);
+        if (this.bandwidth != previous && hasListeners()) {
+            fireEvent(new DeviceEvent(DeviceEvent.Type.BANDWIDTH_CHANGED, this, previous, this.bandwidth));
+        }
     }
 
     public int getBandwidth() {
         return bandwidth;
     }
 
+    // Connected device or next hop of the longest matching route; IPv6 only matches connected devices
+    public String route(IPAddress destination) {
+        if (destination instanceof IPv4Address) {
+            return route(((IPv4Address) destination).toInt());
+        }
+        return routingTable.get(destination);
+    }
+
+    public String route(int destination) {
+        return prefixRoutes == null ? null : prefixRoutes.lookup(destination);
+    }
+
+    // CIDR route such as "10.0.0.0/8" to a next hop, usually another router's device ID
+    public void addRoute(String cidr, String nextHop) {
+        long route = parseCIDR(cidr);
+        prefixRoutes().add((int) (route >>> 6), (int) (route & 0x3F), nextHop);
+    }
+
+    public boolean removeRoute(String cidr) {
+        long route = parseCIDR(cidr);
+        return prefixRoutes != null && prefixRoutes.remove((int) (route >>> 6), (int) (route & 0x3F));
+    }
+
+    // Packs prefix << 6 | length
+    private static long parseCIDR(String cidr) {
+        int slash = cidr == null ? -1 : cidr.indexOf('/');
+        long prefix = slash < 0 ? -1 : IPUtils.parseIPv4(cidr, 0, slash);
+        int length = -1;
+        if (prefix >= 0 && slash + 1 < cidr.length() && cidr.length() - slash <= 3) {
+            length = 0;
+            for (int i = slash + 1; i < cidr.length() && length >= 0; i++) {
+                char c = cidr.charAt(i);
+                length = c >= '0' && c <= '9' ? length * 10 + (c - '0') : -1;
+            }
+        }
+        if (length < 0 || length > 32) {
+            throw new IllegalArgumentException("Invalid CIDR route: " + cidr);
+        }
+        return (prefix << 6) | length;
+    }
+
+    // Live view keyed by address text, writable like the table it stands for. Lookups parse the key
+    // instead of formatting every route, and iteration formats entries only as it reaches them.
     public Map<String, String> getRoutingTable() {
-        return routingTable;
+        if (routingTableView == null) {
+            routingTableView = new RoutingTableView();
+        }
+        return routingTableView;
+    }
+
+    private final class RoutingTableView extends AbstractMap<String, String> {
+        private final Set<Entry<String, String>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                Iterator<Entry<IPAddress, String>> routes = routingTable.entrySet().iterator();
+                return new Iterator<>() {
+                    private IPAddress last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return routes.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        Entry<IPAddress, String> route = routes.next();
+                        last = route.getKey();
+                        return new SimpleImmutableEntry<>(last.toString(), route.getValue());
+                    }
+
+                    @Override
+                    public void remove() {
+                        routes.remove();
+                        removeHostRoute(last);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return routingTable.size();
+            }
+        };
+
+        @Override
+        public String get(Object key) {
+            IPAddress address = parseKey(key);
+            return address == null ? null : routingTable.get(address);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            IPAddress address = parseKey(key);
+            return address != null && routingTable.containsKey(address);
+        }
+
+        @Override
+        public String put(String key, String deviceID) {
+            IPAddress address = parseKey(key);
+            if (address == null) {
+                throw new IllegalArgumentException("Invalid IP address: " + key);
+            }
+            if (address instanceof IPv4Address) {
+                prefixRoutes().add(((IPv4Address) address).toInt(), 32, deviceID);
+            }
+            return routingTable.put(address, deviceID);
+        }
+
+        @Override
+        public String remove(Object key) {
+            IPAddress address = parseKey(key);
+            if (address == null || !routingTable.containsKey(address)) {
+                return null;
+            }
+            removeHostRoute(address);
+            return routingTable.remove(address);
+        }
+
+        @Override
+        public int size() {
+            return routingTable.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return entries;
+        }
+    }
+
+    private static IPAddress parseKey(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String ip = (String) key;
+        if (ip.indexOf(':') >= 0) {
+            long[] packed = new long[2];
+            return IPUtils.parseIPv6(ip, packed) ? IPv6Address.of(packed[0], packed[1]) : null;
+        }
+        long packed = IPUtils.parseIPv4(ip);
+        return packed < 0 ? null : IPv4Address.of((int) packed);
+    }
+
+    private void removeHostRoute(IPAddress address) {
+        if (address instanceof IPv4Address && prefixRoutes != null) {
+            prefixRoutes.remove(((IPv4Address) address).toInt(), 32);
+        }
     }
 
     public List<Device> getConnectedDevices() {
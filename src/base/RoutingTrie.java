@@ -0,0 +1,149 @@
+package base;
+
+import java.util.*;
+
+// Longest-prefix-match table for IPv4 routes. A multibit trie with 8-bit strides: each node is
+// 256 slots, and a prefix is expanded into every slot it covers, so a lookup reads at most four
+// nodes. Prefixes of length d+1..d+8 live in the node at depth d.
+public class RoutingTrie {
+    private static final int STRIDE = 8;
+    private static final int FANOUT = 1 << STRIDE;
+
+    // Starts with just the root and doubles as nodes are added
+    private int[] slots = new int[FANOUT * 2]; // per slot: next hop id (0 = none), child node (0 = none)
+    private byte[] lengths = new byte[FANOUT]; // prefix length that owns each slot's next hop
+    private int nodeCount = 1; // node 0 is the root
+    private final List<String> hops = new ArrayList<>();
+    private final Map<String, Integer> hopIds = new HashMap<>();
+    private final Map<Long, String> routes = new HashMap<>(); // (prefix << 6 | length) -> next hop
+
+    public static int mask(int length) {
+        return length == 0 ? 0 : -1 << (32 - length);
+    }
+
+    private static long key(int prefix, int length) {
+        return ((prefix & 0xFFFFFFFFL) << 6) | length;
+    }
+
+    public void add(int prefix, int length, String nextHop) {
+        requirePrefix(prefix, length);
+        if (nextHop == null) {
+            throw new IllegalArgumentException("Next hop must not be null");
+        }
+        routes.put(key(prefix, length), nextHop);
+        Integer hopId = hopIds.get(nextHop);
+        if (hopId == null) {
+            hops.add(nextHop);
+            hopId = hops.size();
+            hopIds.put(nextHop, hopId);
+        }
+        int node = nodeFor(prefix, length, true);
+        int depth = depthFor(length);
+        int first = (prefix >>> (32 - depth - STRIDE)) & (FANOUT - 1);
+        int last = first + (1 << (depth + STRIDE - length));
+        for (int slot = node * FANOUT + first; slot < node * FANOUT + last; slot++) {
+            if (lengths[slot] <= length) {
+                slots[slot * 2] = hopId;
+                lengths[slot] = (byte) length;
+            }
+        }
+    }
+
+    public boolean remove(int prefix, int length) {
+        requirePrefix(prefix, length);
+        if (routes.remove(key(prefix, length)) == null) {
+            return false;
+        }
+        int node = nodeFor(prefix, length, false);
+        int depth = depthFor(length);
+        int first = (prefix >>> (32 - depth - STRIDE)) & (FANOUT - 1);
+        int last = first + (1 << (depth + STRIDE - length));
+        for (int i = first; i < last; i++) {
+            int slot = node * FANOUT + i;
+            if (lengths[slot] != length) {
+                continue; // owned by a longer prefix
+            }
+            // Fall back to the next longest prefix in this node that covers the slot
+            int address = (prefix & mask(depth)) | (i << (32 - depth - STRIDE));
+            slots[slot * 2] = 0;
+            lengths[slot] = 0;
+            for (int shorter = length - 1; shorter >= (depth == 0 ? 0 : depth + 1); shorter--) {
+                String hop = routes.get(key(address & mask(shorter), shorter));
+                if (hop != null) {
+                    slots[slot * 2] = hopIds.get(hop);
+                    lengths[slot] = (byte) shorter;
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Next hop of the longest matching prefix, or null when nothing matches
+    public String lookup(int address) {
+        int[] table = slots;
+        int best = 0;
+        int node = 0;
+        for (int shift = 32 - STRIDE; ; shift -= STRIDE) {
+            int slot = (node * FANOUT + ((address >>> shift) & (FANOUT - 1))) * 2;
+            if (table[slot] != 0) {
+                best = table[slot];
+            }
+            node = table[slot + 1];
+            if (node == 0) {
+                break;
+            }
+        }
+        return best == 0 ? null : hops.get(best - 1);
+    }
+
+    public String get(int prefix, int length) {
+        return routes.get(key(prefix, length));
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    private static void requirePrefix(int prefix, int length) {
+        if (length < 0 || length > 32) {
+            throw new IllegalArgumentException("Prefix length must be between 0 and 32: " + length);
+        }
+        if ((prefix & ~mask(length)) != 0) {
+            throw new IllegalArgumentException("Prefix has host bits set beyond /" + length);
+        }
+    }
+
+    // /1-/8 live in the root, /9-/16 one level down, and so on; /0 also lives in the root
+    private static int depthFor(int length) {
+        return length == 0 ? 0 : (length - 1) / STRIDE * STRIDE;
+    }
+
+    private int nodeFor(int prefix, int length, boolean create) {
+        int node = 0;
+        for (int depth = 0; depth < depthFor(length); depth += STRIDE) {
+            int slot = (node * FANOUT + ((prefix >>> (32 - depth - STRIDE)) & (FANOUT - 1))) * 2;
+            if (slots[slot + 1] == 0) {
+                if (!create) {
+                    throw new IllegalStateException("Missing trie node for stored route");
+                }
+                int child = allocateNode(); // may grow slots, so index it afterwards
+                slots[slot + 1] = child;
+            }
+            node = slots[slot + 1];
+        }
+        return node;
+    }
+
+    private int allocateNode() {
+        if ((nodeCount + 1) * FANOUT > lengths.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        return nodeCount++;
+    }
+}
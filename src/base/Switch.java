@@ -3,16 +3,29 @@ package base;
 import java.util.*;
 
 public class Switch extends Device {
+    public static final long DEFAULT_AGING_MILLIS = 300_000; // 802.1D default of 300 s
+    public static final int FLOOD = -1;
+    public static final int FILTER = 0; // destination is on the port the frame came from
+
     private final int portCount;
     private final Map<Integer, Device> portMap;
+    private final Map<String, Integer> portByDevice;
+    private final ForwardingTable forwardingTable;
     private final int switchingSpeed; // in Mbps
 
     public Switch(String deviceID, String ipAddress, String location,
                   int portCount, int switchingSpeed) {
+        this(deviceID, ipAddress, location, portCount, switchingSpeed, DEFAULT_AGING_MILLIS);
+    }
+
+    public Switch(String deviceID, String ipAddress, String location,
+                  int portCount, int switchingSpeed, long agingMillis) {
         super(deviceID, ipAddress, location);
         this.portCount = portCount;
         this.switchingSpeed = switchingSpeed;
         this.portMap = new HashMap<>();
+        this.portByDevice = new HashMap<>();
+        this.forwardingTable = new ForwardingTable(agingMillis);
     }
 
     public boolean addDevice(int port, Device device) {
@@ -24,11 +37,54 @@ public class Switch extends Device {
             return false;
         }
         portMap.put(port, device);
+        portByDevice.put(device.getDeviceID(), port);
+        topologyChanged();
         return true;
     }
 
     public boolean removeDevice(int port) {
-        return port > 0 && port <= portCount && portMap.remove(port) != null;
+        Device removed = port > 0 && port <= portCount ? portMap.remove(port) : null;
+        if (removed == null) {
+            return false;
+        }
+        portByDevice.remove(removed.getDeviceID(), port);
+        forwardingTable.removePort(port);
+        topologyChanged();
+        return true;
+    }
+
+    // Port a directly attached device is plugged into, or -1
+    public int getPort(Device device) {
+        Integer port = device == null ? null : portByDevice.get(device.getDeviceID());
+        return port == null ? -1 : port;
+    }
+
+    // Learns the source and returns the output port, FLOOD for unknown destinations or FILTER
+    public int forward(int inPort, long sourceMac, long destinationMac, long now) {
+        if (!isOnline() || inPort < 1 || inPort > portCount) {
+            return FILTER;
+        }
+        forwardingTable.learn(sourceMac, inPort, now);
+        int outPort = forwardingTable.lookup(destinationMac, now);
+        if (outPort == ForwardingTable.NOT_FOUND) {
+            return FLOOD;
+        }
+        return outPort == inPort ? FILTER : outPort;
+    }
+
+    public int forward(Device source, Device destination, long now) {
+        return forward(getPort(source), source.getMacAddress(), destination.getMacAddress(), now);
+    }
+
+    // Occupied ports a flooded frame goes out of
+    public List<Integer> getFloodPorts(int inPort) {
+        List<Integer> ports = new ArrayList<>(getOccupiedPorts());
+        ports.remove(Integer.valueOf(inPort));
+        return ports;
+    }
+
+    public ForwardingTable getForwardingTable() {
+        return forwardingTable;
     }
 
     public Device getConnectedDevice(int port) {
@@ -0,0 +1,399 @@
+package base;
+
+import java.util.*;
+
+// Graph of the links formed by Router, Switch and Hub connections, with cached shortest paths.
+// The topology listens to every device it finds. Attaching or detaching a device rebuilds the graph
+// on the next query; a device going online or offline or changing bandwidth only updates its own
+// links and drops the cached paths that change could affect, so churn does not flush the cache.
+public class Topology implements DeviceListener {
+    public static final double DEFAULT_LINK_LATENCY_MS = 1.0;
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+    private static final double MEGABIT_MS = 1000.0; // ms to push one megabit over a 1 Mbps link
+    private static final Path NO_PATH = new Path(Collections.emptyList(), 0, 0, Double.POSITIVE_INFINITY);
+
+    public static final class Path {
+        private final List<Device> devices;
+        private final double latency;
+        private final double bandwidth;
+        private final double cost; // what the search minimised
+
+        Path(List<Device> devices, double latency, double bandwidth, double cost) {
+            this.devices = devices;
+            this.latency = latency;
+            this.bandwidth = bandwidth;
+            this.cost = cost;
+        }
+
+        public List<Device> getDevices() { return devices; }
+        public int getHopCount() { return devices.size() - 1; }
+        public double getLatency() { return latency; } // ms, summed over links
+        public double getBandwidth() { return bandwidth; } // Mbps of the narrowest link
+
+        public Device getSource() { return devices.get(0); }
+        public Device getDestination() { return devices.get(devices.size() - 1); }
+    }
+
+    private final List<Device> roots = new ArrayList<>();
+    private final Set<Device> watched = Collections.newSetFromMap(new IdentityHashMap<>()); // we listen to these
+    private final Map<String, Double> linkLatencies = new HashMap<>();
+    private final Map<Long, Path> pathCache;
+    private boolean dirty = true;
+    private long cacheHits;
+    private long cacheMisses;
+
+    // Rebuilt from the devices on demand, in compressed sparse row form
+    private Device[] devices = new Device[0];
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private int[] edgeStart = new int[1];
+    private int[] adjacency = new int[0]; // edge ids grouped by source, edgeStart[i] is where node i begins
+    private int[] edgeTarget = new int[0];
+    private double[] edgeLatency = new double[0];
+    private double[] edgeBandwidth = new double[0];
+
+    // Dijkstra scratch, reused between searches
+    private double[] distance = new double[0];
+    private int[] previous = new int[0];
+    private int[] heapNodes = new int[0];
+    private double[] heapKeys = new double[0];
+
+    public Topology() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public Topology(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.pathCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Path> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // Adds a device and everything reachable through its connections
+    public void add(Device device) {
+        if (device == null) {
+            return;
+        }
+        roots.add(device);
+        watch(device);
+        invalidate();
+    }
+
+    private void watch(Device device) {
+        if (watched.add(device)) {
+            device.addListener(this);
+        }
+    }
+
+    @Override
+    public void onDeviceEvent(DeviceEvent event) {
+        switch (event.getType()) {
+            case CONNECTIONS_CHANGED -> invalidate();
+            case ONLINE, OFFLINE, BANDWIDTH_CHANGED -> nodeChanged(event.getDevice());
+        }
+    }
+
+    // A node's state or capacity changed but not the wiring: refresh its links and drop only the
+    // cached paths that may no longer be optimal
+    private void nodeChanged(Device device) {
+        if (dirty) {
+            return; // the next query rebuilds everything anyway
+        }
+        Integer index = indexById.get(device.getDeviceID());
+        if (index == null || devices[index] != device) {
+            return;
+        }
+        int node = index;
+        for (int a = edgeStart[node]; a < edgeStart[node + 1]; a++) {
+            int edge = adjacency[a];
+            double bandwidth = Math.min(capacity(device), capacity(devices[edgeTarget[edge]]));
+            edgeBandwidth[edge] = bandwidth;
+            edgeBandwidth[edge ^ 1] = bandwidth;
+        }
+        if (pathCache.isEmpty()) {
+            return;
+        }
+        if (edgeStart[node + 1] - edgeStart[node] <= 1) {
+            // A leaf can only end a path, so only its own pairs can change
+            pathCache.keySet().removeIf(key -> (int) (key >>> 32) == node || (int) (long) key == node);
+            return;
+        }
+        // Paths through the node may now be slower or unusable...
+        pathCache.values().removeIf(path -> path.devices.contains(device));
+        // ...and any other pair may now do better by going through it. Costs are symmetric, so one
+        // search from the node gives both halves of the best detour.
+        if (device.isOnline() && !pathCache.isEmpty()) {
+            shortestPaths(node, -1);
+            pathCache.entrySet().removeIf(entry -> {
+                long key = entry.getKey();
+                return distance[(int) (key >>> 32)] + distance[(int) key] < entry.getValue().cost;
+            });
+        }
+    }
+
+    public void setLinkLatency(Device a, Device b, double latencyMs) {
+        if (latencyMs < 0) {
+            throw new IllegalArgumentException("Latency must not be negative");
+        }
+        linkLatencies.put(linkKey(a.getDeviceID(), b.getDeviceID()), latencyMs);
+        invalidate();
+    }
+
+    public void invalidate() {
+        dirty = true;
+        pathCache.clear();
+    }
+
+    public int getDeviceCount() {
+        rebuildIfDirty();
+        return devices.length;
+    }
+
+    public int getLinkCount() {
+        rebuildIfDirty();
+        return edgeTarget.length / 2;
+    }
+
+    public int getCachedPathCount() { return pathCache.size(); }
+    public long getCacheHits() { return cacheHits; }
+    public long getCacheMisses() { return cacheMisses; }
+
+    // Lowest-cost path through online devices, or null if the destination is unreachable
+    public Path findPath(Device source, Device destination) {
+        rebuildIfDirty();
+        Integer from = source == null ? null : indexById.get(source.getDeviceID());
+        Integer to = destination == null ? null : indexById.get(destination.getDeviceID());
+        if (from == null || to == null) {
+            return null;
+        }
+        long key = ((long) from << 32) | to;
+        Path path = pathCache.get(key);
+        if (path != null) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+            path = search(from, to);
+            pathCache.put(key, path);
+        }
+        return path == NO_PATH ? null : path;
+    }
+
+    // Link cost in ms: propagation latency plus the time to move one megabit across it
+    private double cost(int edge) {
+        return edgeLatency[edge] + MEGABIT_MS / edgeBandwidth[edge];
+    }
+
+    private Path search(int from, int to) {
+        if (!devices[from].isOnline() || !devices[to].isOnline()) {
+            return NO_PATH;
+        }
+        shortestPaths(from, to);
+        if (from != to && previous[to] < 0) {
+            return NO_PATH;
+        }
+        List<Device> hops = new ArrayList<>();
+        double latency = 0;
+        double bandwidth = Double.POSITIVE_INFINITY;
+        hops.add(devices[to]);
+        for (int node = to; node != from; ) {
+            int edge = previous[node];
+            latency += edgeLatency[edge];
+            bandwidth = Math.min(bandwidth, edgeBandwidth[edge]);
+            node = edgeTarget[edge ^ 1]; // edges are stored in pairs, so the partner points back
+            hops.add(devices[node]);
+        }
+        Collections.reverse(hops);
+        return new Path(Collections.unmodifiableList(hops), latency, bandwidth, distance[to]);
+    }
+
+    // Dijkstra over online devices into distance and previous; stops once to is settled, or runs
+    // to completion when to is -1
+    private void shortestPaths(int from, int to) {
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+        distance[from] = 0;
+        int heapSize = push(0, from, 0);
+        while (heapSize > 0) {
+            int node = heapNodes[0];
+            double key = heapKeys[0];
+            heapSize = pop(heapSize);
+            if (key > distance[node]) {
+                continue; // stale entry
+            }
+            if (node == to) {
+                break;
+            }
+            for (int a = edgeStart[node]; a < edgeStart[node + 1]; a++) {
+                int edge = adjacency[a];
+                int next = edgeTarget[edge];
+                double candidate = key + cost(edge);
+                if (candidate < distance[next] && devices[next].isOnline()) {
+                    distance[next] = candidate;
+                    previous[next] = edge;
+                    heapSize = push(heapSize, next, candidate);
+                }
+            }
+        }
+    }
+
+    private int push(int size, int node, double key) {
+        if (size == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, Math.max(16, size * 2));
+            heapKeys = Arrays.copyOf(heapKeys, heapNodes.length);
+        }
+        int i = size;
+        while (i > 0 && heapKeys[(i - 1) / 2] > key) {
+            heapNodes[i] = heapNodes[(i - 1) / 2];
+            heapKeys[i] = heapKeys[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+        return size + 1;
+    }
+
+    private int pop(int size) {
+        int last = --size;
+        int node = heapNodes[last];
+        double key = heapKeys[last];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= key) {
+                break;
+            }
+            heapNodes[i] = heapNodes[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+        return size;
+    }
+
+    private void rebuildIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        indexById.clear();
+        List<Device> found = new ArrayList<>();
+        List<int[]> links = new ArrayList<>();
+        Deque<Device> pending = new ArrayDeque<>(roots);
+        for (Device root : roots) {
+            register(root, found);
+        }
+        while (!pending.isEmpty()) {
+            Device device = pending.poll();
+            int index = indexById.get(device.getDeviceID());
+            for (Device neighbour : connectionsOf(device)) {
+                if (!indexById.containsKey(neighbour.getDeviceID())) {
+                    register(neighbour, found);
+                    pending.add(neighbour);
+                }
+                links.add(new int[] { index, indexById.get(neighbour.getDeviceID()) });
+            }
+        }
+
+        devices = found.toArray(new Device[0]);
+        int n = devices.length;
+        int[] degree = new int[n + 1];
+        for (int[] link : links) {
+            degree[link[0]]++;
+            degree[link[1]]++;
+        }
+        edgeStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            edgeStart[i + 1] = edgeStart[i] + degree[i];
+        }
+        // Each link becomes two directed edges at 2k and 2k + 1 so a reverse edge is edge ^ 1;
+        // edges are then grouped by source through an index permutation.
+        int edgeCount = links.size() * 2;
+        int[] source = new int[edgeCount];
+        int[] target = new int[edgeCount];
+        for (int k = 0; k < links.size(); k++) {
+            int[] link = links.get(k);
+            source[2 * k] = link[0];
+            target[2 * k] = link[1];
+            source[2 * k + 1] = link[1];
+            target[2 * k + 1] = link[0];
+        }
+        edgeTarget = target;
+        edgeLatency = new double[edgeCount];
+        edgeBandwidth = new double[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            edgeLatency[e] = linkLatency(devices[source[e]], devices[target[e]]);
+            edgeBandwidth[e] = Math.min(capacity(devices[source[e]]), capacity(devices[target[e]]));
+        }
+        adjacency = new int[edgeCount];
+        int[] fill = Arrays.copyOf(edgeStart, n);
+        for (int e = 0; e < edgeCount; e++) {
+            adjacency[fill[source[e]]++] = e;
+        }
+
+        distance = new double[n];
+        previous = new int[n];
+
+        // Stop listening to devices that are no longer connected to anything we reach
+        for (Iterator<Device> it = watched.iterator(); it.hasNext(); ) {
+            Device device = it.next();
+            Integer index = indexById.get(device.getDeviceID());
+            if (index == null || devices[index] != device) {
+                device.removeListener(this);
+                it.remove();
+            }
+        }
+    }
+
+    private void register(Device device, List<Device> found) {
+        if (indexById.putIfAbsent(device.getDeviceID(), found.size()) == null) {
+            found.add(device);
+            watch(device);
+        }
+    }
+
+    private static Collection<Device> connectionsOf(Device device) {
+        if (device instanceof Router) {
+            return ((Router) device).getConnectedDevices();
+        }
+        if (device instanceof Switch) {
+            return ((Switch) device).getPortMap().values();
+        }
+        if (device instanceof Hub) {
+            return ((Hub) device).getConnectedDevices();
+        }
+        return Collections.emptyList();
+    }
+
+    // Mbps a device can forward; plain devices do not limit a link
+    private static double capacity(Device device) {
+        if (device instanceof Router) {
+            return Math.max(1, ((Router) device).getBandwidth());
+        }
+        if (device instanceof Switch) {
+            return Math.max(1, ((Switch) device).getSwitchingSpeed());
+        }
+        if (device instanceof Hub) {
+            return Math.max(1, ((Hub) device).getContendedThroughputPerDevice());
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double linkLatency(Device a, Device b) {
+        if (linkLatencies.isEmpty()) {
+            return DEFAULT_LINK_LATENCY_MS;
+        }
+        return linkLatencies.getOrDefault(linkKey(a.getDeviceID(), b.getDeviceID()), DEFAULT_LINK_LATENCY_MS);
+    }
+
+    private static String linkKey(String a, String b) {
+        return a.compareTo(b) <= 0 ? a + '|' + b : b + '|' + a;
+    }
+}
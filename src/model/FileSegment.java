@@ -0,0 +1,21 @@
+package model;
+
+// The part of a piece that lives in one file of a torrent
+public class FileSegment {
+    private final int fileIndex;
+    private final long fileOffset;
+    private final int pieceOffset;
+    private final int length;
+
+    public FileSegment(int fileIndex, long fileOffset, int pieceOffset, int length) {
+        this.fileIndex = fileIndex;
+        this.fileOffset = fileOffset;
+        this.pieceOffset = pieceOffset;
+        this.length = length;
+    }
+
+    public int getFileIndex() { return fileIndex; }
+    public long getFileOffset() { return fileOffset; }
+    public int getPieceOffset() { return pieceOffset; }
+    public int getLength() { return length; }
+}
@@ -0,0 +1,172 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// BEP 52 style SHA-256 hash tree over 16KB blocks. Every layer is kept so proofs and
+// comparisons read cached nodes instead of rehashing; missing leaves are zero hashes.
+public class MerkleTree {
+    public static final int HASH_LENGTH = 32;
+
+    private final byte[][] layers; // layers[0] holds the padded leaves, the last layer holds the root
+    private final int leafCount;
+
+    public MerkleTree(byte[] leafHashes) {
+        this(leafHashes, 1);
+    }
+
+    // minimumLeaves pads small trees, e.g. to a full piece worth of blocks
+    public MerkleTree(byte[] leafHashes, int minimumLeaves) {
+        if (leafHashes.length == 0 || leafHashes.length % HASH_LENGTH != 0) {
+            throw new IllegalArgumentException("Leaf hashes must be a non-empty multiple of " + HASH_LENGTH);
+        }
+        this.leafCount = leafHashes.length / HASH_LENGTH;
+        int paddedLeaves = Integer.highestOneBit(Math.max(leafCount, minimumLeaves) - 1) << 1;
+        paddedLeaves = Math.max(paddedLeaves, 1);
+        int height = Integer.numberOfTrailingZeros(paddedLeaves);
+
+        layers = new byte[height + 1][];
+        layers[0] = Arrays.copyOf(leafHashes, paddedLeaves * HASH_LENGTH);
+        MessageDigest sha256 = newDigest();
+        for (int layer = 1; layer <= height; layer++) {
+            byte[] below = layers[layer - 1];
+            byte[] nodes = new byte[below.length / 2];
+            for (int offset = 0; offset < nodes.length; offset += HASH_LENGTH) {
+                hashPair(sha256, below, offset * 2, below, offset * 2 + HASH_LENGTH, nodes, offset);
+            }
+            layers[layer] = nodes;
+        }
+    }
+
+    public static MerkleTree fromData(ByteBuffer data) {
+        ByteBuffer source = data.duplicate();
+        int blocks = Math.max(1, (source.remaining() + Piece.BLOCK_SIZE - 1) / Piece.BLOCK_SIZE);
+        byte[] leaves = new byte[blocks * HASH_LENGTH];
+        MessageDigest sha256 = newDigest();
+        for (int i = 0; i < blocks; i++) {
+            ByteBuffer block = source.duplicate();
+            block.limit(Math.min(source.limit(), source.position() + Piece.BLOCK_SIZE));
+            sha256.update(block);
+            digestInto(sha256, leaves, i * HASH_LENGTH);
+            source.position(block.limit());
+        }
+        return new MerkleTree(leaves);
+    }
+
+    public static byte[] hashBlock(ByteBuffer block) {
+        MessageDigest sha256 = newDigest();
+        sha256.update(block.duplicate());
+        return sha256.digest();
+    }
+
+    public int getLeafCount() { return leafCount; }
+    public int getHeight() { return layers.length - 1; }
+
+    public byte[] getRoot() {
+        return getNode(getHeight(), 0);
+    }
+
+    public byte[] getNode(int layer, int index) {
+        int offset = index * HASH_LENGTH;
+        return Arrays.copyOfRange(layers[layer], offset, offset + HASH_LENGTH);
+    }
+
+    public int getNodeCount(int layer) {
+        return layers[layer].length / HASH_LENGTH;
+    }
+
+    public byte[] getLayer(int layer) {
+        return layers[layer].clone();
+    }
+
+    // Sibling hashes from the leaf up to (not including) the node at toLayer
+    public byte[] getProof(int leafIndex, int toLayer) {
+        if (leafIndex < 0 || leafIndex >= leafCount || toLayer < 0 || toLayer > getHeight()) {
+            throw new IllegalArgumentException("Invalid proof request for leaf " + leafIndex);
+        }
+        byte[] proof = new byte[toLayer * HASH_LENGTH];
+        int index = leafIndex;
+        for (int layer = 0; layer < toLayer; layer++) {
+            System.arraycopy(layers[layer], (index ^ 1) * HASH_LENGTH, proof, layer * HASH_LENGTH, HASH_LENGTH);
+            index >>>= 1;
+        }
+        return proof;
+    }
+
+    public static boolean verifyProof(byte[] expectedNode, int leafIndex, byte[] leafHash, byte[] proof) {
+        return expectedNode != null && expectedNode.length == HASH_LENGTH
+                && verifyProof(expectedNode, 0, leafIndex, leafHash, proof);
+    }
+
+    // expectedNode is read from expectedNodes at the given offset, e.g. a cached piece layer
+    public static boolean verifyProof(byte[] expectedNodes, int expectedOffset, int leafIndex,
+                                      byte[] leafHash, byte[] proof) {
+        if (leafHash == null || proof == null || leafHash.length != HASH_LENGTH || proof.length % HASH_LENGTH != 0) {
+            return false;
+        }
+        MessageDigest sha256 = newDigest();
+        byte[] node = leafHash.clone();
+        int index = leafIndex;
+        for (int offset = 0; offset < proof.length; offset += HASH_LENGTH) {
+            if ((index & 1) == 0) {
+                hashPair(sha256, node, 0, proof, offset, node, 0);
+            } else {
+                hashPair(sha256, proof, offset, node, 0, node, 0);
+            }
+            index >>>= 1;
+        }
+        return Arrays.equals(node, 0, HASH_LENGTH, expectedNodes, expectedOffset, expectedOffset + HASH_LENGTH);
+    }
+
+    // Leaves whose hashes differ, found by descending only into subtrees whose cached nodes differ
+    public int[] findMismatchedLeaves(MerkleTree other) {
+        if (other.layers[0].length != layers[0].length) {
+            throw new IllegalArgumentException("Trees have different shapes");
+        }
+        BitSet mismatched = new BitSet();
+        collectMismatches(other, getHeight(), 0, mismatched);
+        return mismatched.stream().toArray();
+    }
+
+    private void collectMismatches(MerkleTree other, int layer, int index, BitSet mismatched) {
+        int from = index * HASH_LENGTH;
+        if (Arrays.equals(layers[layer], from, from + HASH_LENGTH, other.layers[layer], from, from + HASH_LENGTH)) {
+            return;
+        }
+        if (layer == 0) {
+            if (index < leafCount) {
+                mismatched.set(index);
+            }
+            return;
+        }
+        collectMismatches(other, layer - 1, index * 2, mismatched);
+        collectMismatches(other, layer - 1, index * 2 + 1, mismatched);
+    }
+
+    private static void hashPair(MessageDigest sha256, byte[] left, int leftOffset,
+                                 byte[] right, int rightOffset, byte[] out, int outOffset) {
+        sha256.update(left, leftOffset, HASH_LENGTH);
+        sha256.update(right, rightOffset, HASH_LENGTH);
+        digestInto(sha256, out, outOffset);
+    }
+
+    private static void digestInto(MessageDigest sha256, byte[] out, int offset) {
+        try {
+            sha256.digest(out, offset, HASH_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
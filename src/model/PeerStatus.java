@@ -11,6 +11,16 @@ public class PeerStatus {
         this.lastUpdateTime = System.currentTimeMillis();
     }
 
+    // Restores counters saved from another instance, e.g. in a simulation snapshot
+    public PeerStatus(long uploadedBytes, long downloadedBytes, double uploadSpeed, double downloadSpeed,
+                      long lastUpdateTime) {
+        this.uploadedBytes = uploadedBytes;
+        this.downloadedBytes = downloadedBytes;
+        this.uploadSpeed = uploadSpeed;
+        this.downloadSpeed = downloadSpeed;
+        this.lastUpdateTime = lastUpdateTime;
+    }
+
     public void updateTransfer(long uploadedBytes, long downloadedBytes) {
         this.uploadedBytes += uploadedBytes;
         this.downloadedBytes += downloadedBytes;
@@ -32,4 +42,7 @@ public class PeerStatus {
 
     public double getUploadSpeed() { return uploadSpeed; }
     public double getDownloadSpeed() { return downloadSpeed; }
+    public long getUploadedBytes() { return uploadedBytes; }
+    public long getDownloadedBytes() { return downloadedBytes; }
+    public long getLastUpdateTime() { return lastUpdateTime; }
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 package model;
 
+import java.util.BitSet;
+
 public class Piece {
+    public static final int BLOCK_SIZE = 16384; // 16KB, the unit of requests and hash-tree leaves
+
     private final int index;
     private final int size;
     private boolean downloaded;
     private boolean verified;
+    private BitSet verifiedBlocks; // allocated on first verified block
 
     public Piece(int index, int size) {
         this.index = index;
@@ -18,6 +23,10 @@ public class Piece {
     public boolean isDownloaded() { return downloaded; }
     public boolean isVerified() { return verified; }
 
+    public int getBlockCount() {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
     public void setDownloaded(boolean status) {
         this.downloaded = status;
     }
@@ -25,4 +34,33 @@ public class Piece {
     public void setVerified(boolean status) {
         this.verified = status;
     }
+
+    public void markBlockVerified(int block) {
+        if (block < 0 || block >= getBlockCount()) {
+            return;
+        }
+        if (verifiedBlocks == null) {
+            verifiedBlocks = new BitSet(getBlockCount());
+        }
+        verifiedBlocks.set(block);
+    }
+
+    public boolean isBlockVerified(int block) {
+        return verified || (verifiedBlocks != null && verifiedBlocks.get(block));
+    }
+
+    public int getVerifiedBlockCount() {
+        if (verified) {
+            return getBlockCount();
+        }
+        return verifiedBlocks == null ? 0 : verifiedBlocks.cardinality();
+    }
+
+    public int nextUnverifiedBlock(int fromBlock) {
+        if (verified) {
+            return -1;
+        }
+        int block = verifiedBlocks == null ? fromBlock : verifiedBlocks.nextClearBit(fromBlock);
+        return block < getBlockCount() ? block : -1;
+    }
 }
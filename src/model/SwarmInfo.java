@@ -1,48 +1,134 @@
 package model;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+// Who is in a torrent's swarm and in which role. Safe to share between threads: membership is
+// split over lock stripes by peer id, and the seeder and leecher counts live together in one
+// atomic word, so count reads never lock and always see a pair that existed at some moment.
 public class SwarmInfo {
+    private static final int STRIPES = 16; // power of two
+    private static final long SEEDER = 1L << 32; // seeders in the high half of counts, leechers in the low
+
     private final String infoHash;
-    private int numSeeders;
-    private int numLeechers;
-    private final Set<String> activePeers;
-    private long totalTransferred;
+    private final Stripe[] stripes;
+    private final AtomicLong counts;
+    private final LongAdder totalTransferred;
+
+    private static final class Stripe {
+        private final Map<String, Boolean> seeding = new HashMap<>(); // peer id -> is a seeder
+    }
+
+    // A consistent reading of the swarm's counts
+    public static final class Counts {
+        private final int seeders;
+        private final int leechers;
+
+        private Counts(long packed) {
+            this.seeders = (int) (packed >>> 32);
+            this.leechers = (int) packed;
+        }
+
+        public int getSeeders() { return seeders; }
+        public int getLeechers() { return leechers; }
+        public int getPeers() { return seeders + leechers; }
+    }
 
     public SwarmInfo(String infoHash) {
         this.infoHash = infoHash;
-        this.numSeeders = 0;
-        this.numLeechers = 0;
-        this.activePeers = new HashSet<>();
-        this.totalTransferred = 0;
-    }
-
-    public void addPeer(String peerId, boolean isSeeder) {
-        activePeers.add(peerId);
-        if (isSeeder) {
-            numSeeders++;
-        } else {
-            numLeechers++;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
         }
+        this.counts = new AtomicLong();
+        this.totalTransferred = new LongAdder();
     }
 
-    public void removePeer(String peerId, boolean wasSeeder) {
-        activePeers.remove(peerId);
-        if (wasSeeder) {
-            numSeeders--;
-        } else {
-            numLeechers--;
+    private Stripe stripeOf(String peerId) {
+        int hash = peerId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    // Adds the peer, or promotes a leecher that now seeds; a seeder stays one until removed.
+    // Returns whether anything changed, so repeated announces leave the counts alone.
+    public boolean addPeer(String peerId, boolean isSeeder) {
+        Stripe stripe = stripeOf(peerId);
+        synchronized (stripe) {
+            Boolean seeding = stripe.seeding.get(peerId);
+            if (seeding == null) {
+                stripe.seeding.put(peerId, isSeeder);
+                counts.addAndGet(isSeeder ? SEEDER : 1);
+                return true;
+            }
+            if (isSeeder && !seeding) {
+                stripe.seeding.put(peerId, true);
+                counts.addAndGet(SEEDER - 1); // one step, so readers never see the peer twice or not at all
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Removes the peer in whatever role it had; false if it was not in the swarm
+    public boolean removePeer(String peerId) {
+        Stripe stripe = stripeOf(peerId);
+        synchronized (stripe) {
+            Boolean seeding = stripe.seeding.remove(peerId);
+            if (seeding == null) {
+                return false;
+            }
+            counts.addAndGet(seeding ? -SEEDER : -1);
+            return true;
         }
     }
 
+    // The role is taken from membership now; wasSeeder is ignored
+    @Deprecated
+    public void removePeer(String peerId, boolean wasSeeder) {
+        removePeer(peerId);
+    }
+
     public void updateTransferred(long bytes) {
-        totalTransferred += bytes;
+        totalTransferred.add(bytes);
+    }
+
+    public boolean hasPeer(String peerId) {
+        Stripe stripe = stripeOf(peerId);
+        synchronized (stripe) {
+            return stripe.seeding.containsKey(peerId);
+        }
+    }
+
+    public boolean isSeeder(String peerId) {
+        Stripe stripe = stripeOf(peerId);
+        synchronized (stripe) {
+            return Boolean.TRUE.equals(stripe.seeding.get(peerId));
+        }
+    }
+
+    public Counts getCounts() {
+        return new Counts(counts.get());
     }
 
     // Getters
-    public int getNumSeeders() { return numSeeders; }
-    public int getNumLeechers() { return numLeechers; }
-    public Set<String> getActivePeers() { return new HashSet<>(activePeers); }
-    public long getTotalTransferred() { return totalTransferred; }
-}
\ No newline at end of file
+    public String getInfoHash() { return infoHash; }
+    public int getNumSeeders() { return (int) (counts.get() >>> 32); }
+    public int getNumLeechers() { return (int) counts.get(); }
+    public int getNumPeers() { return getCounts().getPeers(); }
+    public long getTotalTransferred() { return totalTransferred.sum(); }
+
+    // A copy taken stripe by stripe, so peers joining or leaving meanwhile may or may not show up
+    public Set<String> getActivePeers() {
+        Set<String> peers = new HashSet<>(Math.max(16, getNumPeers() * 2));
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                peers.addAll(stripe.seeding.keySet());
+            }
+        }
+        return peers;
+    }
+}
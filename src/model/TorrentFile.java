@@ -1,20 +1,78 @@
 package model;
 
+import util.FlightEvents;
+
 import java.util.*;
 
 public class TorrentFile {
+    public static final int PIECE_HASH_LENGTH = 20; // SHA-1
+
     private final String infoHash;
     private final String fileName;
     private final long fileSize;
     private final int pieceSize;
+    private final byte[] pieceHashes;
+    private final String[] filePaths;
+    private final long[] fileOffsets; // fileOffsets[i] is where file i starts; last entry is fileSize
+    private final boolean multiFile;
+    private byte[] pieceLayer; // BEP 52 SHA-256 piece layer, one node per piece
     private List<Piece> pieces;
     private BitSet completedPieces;
+    private long[] fileModifiedTimes; // of the data files when progress was last saved or restored; 0 = not on disk
 
     public TorrentFile(String infoHash, String fileName, long fileSize, int pieceSize) {
+        this(infoHash, fileName, fileSize, pieceSize, null);
+    }
+
+    // pieceHashes holds the concatenated SHA-1 digests of all pieces, or null when unknown
+    public TorrentFile(String infoHash, String fileName, long fileSize, int pieceSize, byte[] pieceHashes) {
+        this(infoHash, fileName, new String[] { fileName }, new long[] { fileSize }, false, pieceSize, pieceHashes);
+    }
+
+    // Multi-file torrent: fileName is the directory name, paths are relative to it
+    public TorrentFile(String infoHash, String fileName, List<String> filePaths, long[] fileLengths,
+                       int pieceSize, byte[] pieceHashes) {
+        this(infoHash, fileName, filePaths.toArray(new String[0]), fileLengths, true, pieceSize, pieceHashes);
+    }
+
+    private TorrentFile(String infoHash, String fileName, String[] filePaths, long[] fileLengths,
+                        boolean multiFile, int pieceSize, byte[] pieceHashes) {
+        if (filePaths.length == 0 || filePaths.length != fileLengths.length) {
+            throw new IllegalArgumentException("Expected one length per file");
+        }
+        this.fileOffsets = new long[fileLengths.length + 1];
+        for (int i = 0; i < fileLengths.length; i++) {
+            if (fileLengths[i] < 0) {
+                throw new IllegalArgumentException("Negative length for file " + filePaths[i]);
+            }
+            fileOffsets[i + 1] = fileOffsets[i] + fileLengths[i];
+        }
         this.infoHash = infoHash;
         this.fileName = fileName;
-        this.fileSize = fileSize;
+        this.fileSize = fileOffsets[fileLengths.length];
         this.pieceSize = pieceSize;
+        this.filePaths = filePaths;
+        this.multiFile = multiFile;
+        this.fileModifiedTimes = new long[filePaths.length];
+        initializePieces();
+        if (pieceHashes != null && pieceHashes.length != pieces.size() * PIECE_HASH_LENGTH) {
+            throw new IllegalArgumentException("Expected " + pieces.size() + " piece hashes");
+        }
+        this.pieceHashes = pieceHashes;
+    }
+
+    // Fresh download state for the same torrent; piece hashes are shared, not copied
+    public TorrentFile(TorrentFile metainfo) {
+        this.infoHash = metainfo.infoHash;
+        this.fileName = metainfo.fileName;
+        this.fileSize = metainfo.fileSize;
+        this.pieceSize = metainfo.pieceSize;
+        this.pieceHashes = metainfo.pieceHashes;
+        this.filePaths = metainfo.filePaths;
+        this.fileOffsets = metainfo.fileOffsets;
+        this.multiFile = metainfo.multiFile;
+        this.pieceLayer = metainfo.pieceLayer;
+        this.fileModifiedTimes = new long[filePaths.length];
         initializePieces();
     }
 
@@ -39,6 +97,124 @@ public class TorrentFile {
     public int getPieceSize() { return pieceSize; }
     public List<Piece> getPieces() { return Collections.unmodifiableList(pieces); }
     public int getPieceCount() { return pieces.size(); }
+    public boolean hasPieceHashes() { return pieceHashes != null; }
+    public boolean isMultiFile() { return multiFile; }
+    public int getFileCount() { return filePaths.length; }
+    public String getFilePath(int fileIndex) { return filePaths[fileIndex]; }
+    public long getFileOffset(int fileIndex) { return fileOffsets[fileIndex]; }
+    public long getFileLength(int fileIndex) { return fileOffsets[fileIndex + 1] - fileOffsets[fileIndex]; }
+
+    public long getPieceOffset(int pieceIndex) {
+        return (long) pieceIndex * pieceSize;
+    }
+
+    // Index of the non-empty file containing the byte at torrentOffset
+    public int getFileIndex(long torrentOffset) {
+        if (torrentOffset < 0 || torrentOffset >= fileSize) {
+            throw new IllegalArgumentException("Offset outside torrent: " + torrentOffset);
+        }
+        // Last file whose start is <= offset; skips zero-length files sharing that start
+        int low = 0;
+        int high = filePaths.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (fileOffsets[mid] <= torrentOffset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public List<FileSegment> getPieceSegments(int pieceIndex) {
+        if (!isValidPieceIndex(pieceIndex)) {
+            return Collections.emptyList();
+        }
+        List<FileSegment> segments = new ArrayList<>(2);
+        long start = getPieceOffset(pieceIndex);
+        long end = start + pieces.get(pieceIndex).getSize();
+        for (int file = getFileIndex(start); start < end; file++) {
+            long fileEnd = fileOffsets[file + 1];
+            if (fileEnd <= start) {
+                continue;
+            }
+            int length = (int) (Math.min(end, fileEnd) - start);
+            segments.add(new FileSegment(file, start - fileOffsets[file],
+                    (int) (start - getPieceOffset(pieceIndex)), length));
+            start += length;
+        }
+        return segments;
+    }
+
+    public byte[] getPieceHashes() {
+        return pieceHashes != null ? pieceHashes.clone() : null;
+    }
+
+    public byte[] getPieceHash(int index) {
+        if (pieceHashes == null || !isValidPieceIndex(index)) {
+            return null;
+        }
+        int offset = index * PIECE_HASH_LENGTH;
+        return Arrays.copyOfRange(pieceHashes, offset, offset + PIECE_HASH_LENGTH);
+    }
+
+    public boolean hasPieceLayer() { return pieceLayer != null; }
+
+    public int getBlocksPerPiece() {
+        return pieceSize / Piece.BLOCK_SIZE;
+    }
+
+    // v2 trees need power-of-two pieces of whole blocks, and pieces must not straddle files
+    public void setPieceLayer(byte[] pieceLayerHashes) {
+        if (pieceSize < Piece.BLOCK_SIZE || Integer.bitCount(pieceSize) != 1) {
+            throw new IllegalArgumentException("Piece size must be a power of two of at least " + Piece.BLOCK_SIZE);
+        }
+        for (int i = 1; i < filePaths.length; i++) {
+            if (fileOffsets[i] % pieceSize != 0) {
+                throw new IllegalArgumentException("File " + filePaths[i] + " does not start on a piece boundary");
+            }
+        }
+        if (pieceLayerHashes == null || pieceLayerHashes.length != pieces.size() * MerkleTree.HASH_LENGTH) {
+            throw new IllegalArgumentException("Expected " + pieces.size() + " piece layer hashes");
+        }
+        this.pieceLayer = pieceLayerHashes.clone();
+    }
+
+    // Checks one 16KB block against the cached piece layer; the piece completes with its last block
+    public boolean verifyBlock(int pieceIndex, int block, byte[] blockHash, byte[] proof) {
+        FlightEvents.BlockVerification event = new FlightEvents.BlockVerification();
+        event.begin();
+        boolean verified = checkBlock(pieceIndex, block, blockHash, proof);
+        if (event.shouldCommit()) {
+            event.infoHash = infoHash;
+            event.pieceIndex = pieceIndex;
+            event.block = block;
+            event.verified = verified;
+            event.commit();
+        }
+        return verified;
+    }
+
+    private boolean checkBlock(int pieceIndex, int block, byte[] blockHash, byte[] proof) {
+        if (pieceLayer == null || !isValidPieceIndex(pieceIndex)) {
+            return false;
+        }
+        Piece piece = pieces.get(pieceIndex);
+        if (block < 0 || block >= piece.getBlockCount()
+                || proof == null || proof.length != Integer.numberOfTrailingZeros(getBlocksPerPiece()) * MerkleTree.HASH_LENGTH) {
+            return false;
+        }
+        if (!MerkleTree.verifyProof(pieceLayer, pieceIndex * MerkleTree.HASH_LENGTH, block, blockHash, proof)) {
+            return false;
+        }
+        piece.markBlockVerified(block);
+        if (piece.getVerifiedBlockCount() == piece.getBlockCount()) {
+            piece.setVerified(true);
+            markPieceCompleted(pieceIndex);
+        }
+        return true;
+    }
 
     public void markPieceCompleted(int index) {
         if (!isValidPieceIndex(index)) {
@@ -63,6 +239,35 @@ public class TorrentFile {
         return completedPieces.cardinality();
     }
 
+    public long[] getFileModifiedTimes() {
+        return fileModifiedTimes.clone();
+    }
+
+    // Bitfield in wire order: piece 0 is the high bit of the first byte
+    public byte[] toBitfield() {
+        byte[] bitfield = new byte[(getPieceCount() + 7) >>> 3];
+        for (int i = completedPieces.nextSetBit(0); i >= 0; i = completedPieces.nextSetBit(i + 1)) {
+            bitfield[i >>> 3] |= (byte) (0x80 >>> (i & 7));
+        }
+        return bitfield;
+    }
+
+    public void restoreProgress(byte[] bitfield, long[] fileModifiedTimes) {
+        if (bitfield == null || bitfield.length != (getPieceCount() + 7) >>> 3) {
+            throw new IllegalArgumentException("Bitfield does not match piece count");
+        }
+        if (fileModifiedTimes == null || fileModifiedTimes.length != filePaths.length) {
+            throw new IllegalArgumentException("Expected one modification time per file");
+        }
+        completedPieces.clear();
+        for (int i = 0; i < getPieceCount(); i++) {
+            boolean completed = (bitfield[i >>> 3] & (0x80 >>> (i & 7))) != 0;
+            completedPieces.set(i, completed);
+            pieces.get(i).setDownloaded(completed);
+        }
+        this.fileModifiedTimes = fileModifiedTimes.clone();
+    }
+
     public double getProgress() {
         if (getPieceCount() == 0) {
             return 0.0;
@@ -0,0 +1,369 @@
+package simulation;
+
+import base.Device;
+import torrent.TorrentTracker;
+import util.SplitMix;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Peer arrivals and departures over simulated seconds. Peers start offline, arrive by a Poisson
+// process or a flash crowd, stay for an exponential or Weibull session and, with a downtime set,
+// come back later. Pending events sit in a hashed timing wheel: one bucket per second modulo the
+// wheel size, so scheduling and firing cost O(1) however many peers there are.
+public class ChurnModel {
+    private static final int WHEEL_SIZE = 4096; // ~68 minutes; later events wait out extra turns
+    private static final byte ONLINE = 1;
+    private static final byte OFFLINE = 2;
+    private static final byte GONE = 3;
+
+    private enum Arrivals { IMMEDIATE, POISSON, FLASH_CROWD }
+    private enum Sessions { UNLIMITED, EXPONENTIAL, WEIBULL }
+
+    private final SplitMix random;
+    private TorrentTracker tracker;
+    private String infoHash;
+    private TraceWriter trace;
+    private Arrivals arrivals = Arrivals.IMMEDIATE;
+    private double arrivalParameter; // peers per second, or the flash crowd's decay time
+    private Sessions sessions = Sessions.UNLIMITED;
+    private double sessionShape = 1.0;
+    private double sessionScale; // mean for exponential, scale for Weibull
+    private double meanDowntime; // 0 means departed peers never return
+    private double nextPoissonArrival;
+
+    private final List<Device> peers = new ArrayList<>();
+    private byte[] states = new byte[64]; // 0 until a peer first arrives
+    private long[] dueTicks = new long[64];
+    private final int[][] buckets = new int[WHEEL_SIZE][];
+    private final int[] bucketSizes = new int[WHEEL_SIZE];
+    private long now;
+    private int onlineCount;
+    private long arrivalCount;
+    private long departureCount;
+
+    public ChurnModel(long seed) {
+        this.random = new SplitMix(seed);
+    }
+
+    // Announces arrivals and departures for infoHash to the tracker as peers come and go
+    public ChurnModel announceTo(TorrentTracker tracker, String infoHash) {
+        this.tracker = tracker;
+        this.infoHash = infoHash;
+        return this;
+    }
+
+    // Records arrivals and departures as announce records, timestamped with the model's tick
+    public ChurnModel recordTo(TraceWriter trace) {
+        this.trace = trace;
+        return this;
+    }
+
+    public ChurnModel setPoissonArrivals(double peersPerSecond) {
+        arrivals = Arrivals.POISSON;
+        arrivalParameter = positive(peersPerSecond, "Arrival rate must be positive");
+        return this;
+    }
+
+    // Arrival rate decays as exp(-t / decaySeconds), so each peer arrives after an exponential delay
+    public ChurnModel setFlashCrowd(double decaySeconds) {
+        arrivals = Arrivals.FLASH_CROWD;
+        arrivalParameter = positive(decaySeconds, "Flash crowd decay must be positive");
+        return this;
+    }
+
+    public ChurnModel setExponentialSessions(double meanSeconds) {
+        sessions = Sessions.EXPONENTIAL;
+        sessionShape = 1.0;
+        sessionScale = positive(meanSeconds, "Mean session length must be positive");
+        return this;
+    }
+
+    // Shape below 1 gives the heavy tail measured in real swarms: many short sessions, a few very long
+    public ChurnModel setWeibullSessions(double shape, double scaleSeconds) {
+        sessions = Sessions.WEIBULL;
+        sessionShape = positive(shape, "Weibull shape and scale must be positive");
+        sessionScale = positive(scaleSeconds, "Weibull shape and scale must be positive");
+        return this;
+    }
+
+    public ChurnModel setMeanDowntime(double meanSeconds) {
+        meanDowntime = checkDowntime(meanSeconds);
+        return this;
+    }
+
+    // "poisson:<peers per second>" or "flash:<decay seconds>"
+    public ChurnModel setArrivals(String spec) {
+        parseArrivals(spec, this);
+        return this;
+    }
+
+    // "exp:<mean seconds>" or "weibull:<shape>:<scale seconds>"
+    public ChurnModel setSessions(String spec) {
+        parseSessions(spec, this);
+        return this;
+    }
+
+    // The checks behind the setters, for specs that hold settings before any model exists
+    public static void validateArrivals(String spec) {
+        parseArrivals(spec, null);
+    }
+
+    public static void validateSessions(String spec) {
+        parseSessions(spec, null);
+    }
+
+    public static double checkDowntime(double meanSeconds) {
+        if (meanSeconds < 0) {
+            throw new IllegalArgumentException("Mean downtime must not be negative");
+        }
+        return meanSeconds;
+    }
+
+    // Validates spec and applies it to model unless model is null
+    private static void parseArrivals(String spec, ChurnModel model) {
+        String[] fields = spec.split(":");
+        switch (fields[0]) {
+            case "poisson" -> {
+                double rate = positive(parameters(fields, 1, spec)[0], "Arrival rate must be positive");
+                if (model != null) {
+                    model.setPoissonArrivals(rate);
+                }
+            }
+            case "flash" -> {
+                double decay = positive(parameters(fields, 1, spec)[0], "Flash crowd decay must be positive");
+                if (model != null) {
+                    model.setFlashCrowd(decay);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown arrival process: " + spec);
+        }
+    }
+
+    private static void parseSessions(String spec, ChurnModel model) {
+        String[] fields = spec.split(":");
+        switch (fields[0]) {
+            case "exp" -> {
+                double mean = positive(parameters(fields, 1, spec)[0], "Mean session length must be positive");
+                if (model != null) {
+                    model.setExponentialSessions(mean);
+                }
+            }
+            case "weibull" -> {
+                double[] values = parameters(fields, 2, spec);
+                positive(values[0], "Weibull shape and scale must be positive");
+                positive(values[1], "Weibull shape and scale must be positive");
+                if (model != null) {
+                    model.setWeibullSessions(values[0], values[1]);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown session distribution: " + spec);
+        }
+    }
+
+    private static double positive(double value, String message) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+
+    private static double[] parameters(String[] fields, int count, String spec) {
+        if (fields.length != count + 1) {
+            throw new IllegalArgumentException("Wrong number of parameters: " + spec);
+        }
+        double[] values = new double[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                values[i] = Double.parseDouble(fields[i + 1]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in " + spec, e);
+        }
+        return values;
+    }
+
+    // Takes the peer offline and schedules its arrival; returns its index in the model
+    public int add(Device peer) {
+        int index = peers.size();
+        peers.add(peer);
+        if (index == states.length) {
+            states = Arrays.copyOf(states, index * 2);
+            dueTicks = Arrays.copyOf(dueTicks, index * 2);
+        }
+        peer.setOnline(false);
+        schedule(index, arrivalDelay());
+        return index;
+    }
+
+    // Fires every event due up to and including tick; returns how many fired
+    public int advanceTo(long tick) {
+        int fired = 0;
+        while (now < tick) {
+            now++;
+            fired += fireBucket((int) (now & (WHEEL_SIZE - 1)));
+        }
+        return fired;
+    }
+
+    // Same-tick events fire in bucket order, which only depends on the schedule, so runs replay exactly
+    private int fireBucket(int bucket) {
+        int fired = 0;
+        int[] entries = buckets[bucket];
+        for (int i = 0; i < bucketSizes[bucket]; ) {
+            int peer = entries[i];
+            if (dueTicks[peer] != now) {
+                i++; // due on a later turn of the wheel
+                continue;
+            }
+            entries[i] = entries[--bucketSizes[bucket]]; // swap-remove, then look at slot i again
+            fire(peer);
+            entries = buckets[bucket]; // firing may have grown this bucket
+            fired++;
+        }
+        return fired;
+    }
+
+    private void fire(int peer) {
+        Device device = peers.get(peer);
+        if (states[peer] == ONLINE) {
+            states[peer] = meanDowntime > 0 ? OFFLINE : GONE;
+            onlineCount--;
+            departureCount++;
+            device.setOnline(false);
+            announce(device, "stopped");
+            if (states[peer] == OFFLINE) {
+                schedule(peer, exponential(meanDowntime));
+            }
+        } else {
+            states[peer] = ONLINE;
+            onlineCount++;
+            arrivalCount++;
+            device.setOnline(true);
+            announce(device, "started");
+            if (sessions != Sessions.UNLIMITED) {
+                schedule(peer, sessionLength());
+            }
+        }
+    }
+
+    private void announce(Device device, String event) {
+        if (tracker != null) {
+            tracker.announcePeer(infoHash, device, event);
+        }
+        if (trace != null) {
+            trace.announce(now, trace.peerIndex(device.getDeviceID()), event);
+        }
+    }
+
+    private void schedule(int peer, double delaySeconds) {
+        long due = now + Math.max(1, (long) Math.ceil(delaySeconds));
+        dueTicks[peer] = due;
+        int bucket = (int) (due & (WHEEL_SIZE - 1));
+        int[] entries = buckets[bucket];
+        if (entries == null) {
+            entries = buckets[bucket] = new int[8];
+        } else if (bucketSizes[bucket] == entries.length) {
+            entries = buckets[bucket] = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[bucketSizes[bucket]++] = peer;
+    }
+
+    private double arrivalDelay() {
+        switch (arrivals) {
+            case POISSON -> {
+                // Arrival times accumulate across peers, measured from when the model started
+                nextPoissonArrival = Math.max(nextPoissonArrival, now) + exponential(1.0 / arrivalParameter);
+                return nextPoissonArrival - now;
+            }
+            case FLASH_CROWD -> {
+                return exponential(arrivalParameter);
+            }
+            default -> {
+                return 0;
+            }
+        }
+    }
+
+    // Inverse CDF sampling; exponential is Weibull with shape 1
+    private double sessionLength() {
+        double e = -Math.log(1.0 - random.nextDouble());
+        return sessionShape == 1.0 ? sessionScale * e : sessionScale * Math.pow(e, 1.0 / sessionShape);
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1.0 - random.nextDouble());
+    }
+
+    // Clock, counters, random stream position and the wheel exactly as laid out, so a restored
+    // model fires the same events in the same order. Distributions are not saved, which lets a
+    // restored run try different ones.
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(now);
+        out.writeInt(onlineCount);
+        out.writeLong(arrivalCount);
+        out.writeLong(departureCount);
+        out.writeDouble(nextPoissonArrival);
+        out.writeLong(random.getState());
+        out.writeInt(peers.size());
+        for (int i = 0; i < peers.size(); i++) {
+            out.writeByte(states[i]);
+            out.writeLong(dueTicks[i]);
+        }
+        for (int b = 0; b < WHEEL_SIZE; b++) {
+            out.writeInt(bucketSizes[b]);
+            for (int i = 0; i < bucketSizes[b]; i++) {
+                out.writeInt(buckets[b][i]);
+            }
+        }
+    }
+
+    // Reverses writeState onto a model holding the same peers in the same order
+    public void readState(DataInput in) throws IOException {
+        now = in.readLong();
+        onlineCount = in.readInt();
+        arrivalCount = in.readLong();
+        departureCount = in.readLong();
+        nextPoissonArrival = in.readDouble();
+        random.setState(in.readLong());
+        int count = in.readInt();
+        if (count != peers.size()) {
+            throw new IOException("Snapshot has " + count + " churning peers, model has " + peers.size());
+        }
+        for (int i = 0; i < count; i++) {
+            states[i] = in.readByte();
+            dueTicks[i] = in.readLong();
+        }
+        for (int b = 0; b < WHEEL_SIZE; b++) {
+            int size = in.readInt();
+            buckets[b] = size == 0 && buckets[b] == null ? null : new int[Math.max(8, size)];
+            bucketSizes[b] = size;
+            for (int i = 0; i < size; i++) {
+                buckets[b][i] = in.readInt();
+            }
+        }
+    }
+
+    // True once the peer has arrived at least once
+    public boolean hasArrived(int peer) {
+        return states[peer] != 0;
+    }
+
+    public boolean isOnline(int peer) {
+        return states[peer] == ONLINE;
+    }
+
+    public boolean hasLeft(int peer) {
+        return states[peer] == GONE;
+    }
+
+    public long getTick() { return now; }
+    public int getPeerCount() { return peers.size(); }
+    public int getOnlineCount() { return onlineCount; }
+    public long getArrivalCount() { return arrivalCount; }
+    public long getDepartureCount() { return departureCount; }
+}
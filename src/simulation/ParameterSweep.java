@@ -0,0 +1,251 @@
+package simulation;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs every combination of a parameter grid as its own Simulation, e.g.
+ *
+ *   peers=3,10,50;piece=65536,262144;bandwidth=1000,10:100:1000;picker=sequential,rarest;seed=1..5
+ *
+ * Each key takes the values of SimulationConfig, comma separated; a..b expands to every integer in
+ * between. Runs share nothing, so they go to a fixed pool of worker threads, and results come back
+ * in grid order whatever order the runs finish in.
+ */
+public class ParameterSweep {
+    public static final class Result {
+        private final SimulationConfig config;
+        private final boolean completed;
+        private final int completionCycle;
+        private final int cycles;
+        private final int completedPeers;
+        private final long transfers;
+        private final long failedTransfers;
+        private final double transferMillis;
+        private final double slowestPeerMillis;
+        private final long elapsedMillis;
+
+        Result(SimulationConfig config, Simulation simulation, boolean completed, long elapsedMillis) {
+            this.config = config;
+            this.completed = completed;
+            this.completionCycle = simulation.getCompletionCycle();
+            this.cycles = simulation.getCycle();
+            this.completedPeers = simulation.getCompletedPeerCount();
+            this.transfers = simulation.getTransfers();
+            this.failedTransfers = simulation.getFailedTransfers();
+            this.transferMillis = simulation.getTransferMillis();
+            this.slowestPeerMillis = simulation.getSlowestPeerMillis();
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public SimulationConfig getConfig() { return config; }
+        public boolean isCompleted() { return completed; }
+        public int getCompletionCycle() { return completionCycle; } // -1 if the swarm never completed
+        public int getCycles() { return cycles; }
+        public int getCompletedPeers() { return completedPeers; }
+        public long getTransfers() { return transfers; }
+        public long getFailedTransfers() { return failedTransfers; }
+        public double getSlowestPeerMillis() { return slowestPeerMillis; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public double getMeanTransferMillis() {
+            return transfers == 0 ? 0 : transferMillis / transfers;
+        }
+    }
+
+    private static final String[] COLUMNS = { "peers", "piece", "file", "bandwidth", "picker", "seed",
+            "completed", "completion_cycle", "cycles", "completed_peers", "transfers", "failed_transfers",
+            "mean_transfer_ms", "slowest_peer_ms", "elapsed_ms" };
+    private static final int BANDWIDTH_COLUMN = 3;
+    private static final int PICKER_COLUMN = 4;
+
+    private final List<SimulationConfig> configs;
+
+    public ParameterSweep(List<SimulationConfig> configs) {
+        if (configs.isEmpty()) {
+            throw new IllegalArgumentException("Sweep needs at least one configuration");
+        }
+        this.configs = List.copyOf(configs);
+    }
+
+    // Every combination of the grid's values, the last key varying fastest
+    public static ParameterSweep parse(String grid) {
+        Map<String, List<String>> axes = new LinkedHashMap<>();
+        for (String part : grid.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int eq = part.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=values in sweep grid: " + part);
+            }
+            List<String> values = new ArrayList<>();
+            for (String value : part.substring(eq + 1).split(",")) {
+                expand(value.trim(), values);
+            }
+            axes.put(part.substring(0, eq).trim(), values);
+        }
+        List<String> specs = new ArrayList<>(List.of(""));
+        for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+            List<String> extended = new ArrayList<>(specs.size() * axis.getValue().size());
+            for (String spec : specs) {
+                for (String value : axis.getValue()) {
+                    extended.add(spec + axis.getKey() + "=" + value + ";");
+                }
+            }
+            specs = extended;
+        }
+        List<SimulationConfig> configs = new ArrayList<>(specs.size());
+        for (String spec : specs) {
+            configs.add(SimulationConfig.parse(spec));
+        }
+        return new ParameterSweep(configs);
+    }
+
+    private static void expand(String value, List<String> values) {
+        int dots = value.indexOf("..");
+        if (dots < 0) {
+            values.add(value);
+            return;
+        }
+        try {
+            long from = Long.parseLong(value.substring(0, dots).trim());
+            long to = Long.parseLong(value.substring(dots + 2).trim());
+            if (to < from) {
+                throw new IllegalArgumentException("Empty range in sweep grid: " + value);
+            }
+            for (long v = from; v <= to; v++) {
+                values.add(Long.toString(v));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid range in sweep grid: " + value, e);
+        }
+    }
+
+    public List<SimulationConfig> getConfigs() {
+        return configs;
+    }
+
+    // Runs every configuration on at most threads workers and blocks until all are done
+    public List<Result> run(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Sweep needs at least one thread");
+        }
+        // Bounded queue, and a full one runs the task on the submitting thread, so a huge grid
+        // never has more than a couple of pending runs per worker waiting in memory
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), task -> {
+                    Thread thread = new Thread(task, "sweep-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            List<Future<Result>> runs = new ArrayList<>(configs.size());
+            for (SimulationConfig config : configs) {
+                runs.add(pool.submit(() -> runOne(config)));
+            }
+            List<Result> results = new ArrayList<>(runs.size());
+            for (Future<Result> run : runs) {
+                results.add(run.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sweep run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static Result runOne(SimulationConfig config) {
+        long start = System.nanoTime();
+        Simulation simulation = new Simulation(config);
+        boolean completed = simulation.run();
+        return new Result(config, simulation, completed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public static void writeCsv(List<Result> results, Writer out) throws IOException {
+        out.write(String.join(",", COLUMNS));
+        out.write('\n');
+        for (Result result : results) {
+            String[] row = row(result);
+            for (int i = 0; i < row.length; i++) {
+                out.write(i == 0 ? "" : ",");
+                out.write(row[i]);
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    public static void writeJson(List<Result> results, Writer out) throws IOException {
+        out.write("[\n");
+        for (int r = 0; r < results.size(); r++) {
+            String[] row = row(results.get(r));
+            out.write("  {");
+            for (int i = 0; i < row.length; i++) {
+                out.write(i == 0 ? "\"" : ", \"");
+                out.write(COLUMNS[i]);
+                out.write("\": ");
+                out.write(i == BANDWIDTH_COLUMN || i == PICKER_COLUMN ? "\"" + row[i] + "\"" : row[i]);
+            }
+            out.write(r + 1 < results.size() ? "},\n" : "}\n");
+        }
+        out.write("]\n");
+        out.flush();
+    }
+
+    // Values in COLUMNS order; the text columns are plain tokens that need no escaping in either format
+    private static String[] row(Result result) {
+        SimulationConfig config = result.getConfig();
+        return new String[] { Integer.toString(config.getPeerCount()), Integer.toString(config.getPieceSize()),
+                Long.toString(config.getFileSize()), config.getBandwidthSpec(),
+                config.getPicker().name().toLowerCase(Locale.ROOT), Long.toString(config.getSeed()),
+                Boolean.toString(result.isCompleted()), Integer.toString(result.getCompletionCycle()),
+                Integer.toString(result.getCycles()), Integer.toString(result.getCompletedPeers()),
+                Long.toString(result.getTransfers()), Long.toString(result.getFailedTransfers()),
+                String.format(Locale.ROOT, "%.3f", result.getMeanTransferMillis()),
+                String.format(Locale.ROOT, "%.3f", result.getSlowestPeerMillis()),
+                Long.toString(result.getElapsedMillis()) };
+    }
+
+    // Usage: ParameterSweep <grid> [threads] [results.csv|results.json]; without a file, CSV goes to stdout
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ParameterSweep <grid> [threads] [results.csv|results.json]");
+            return;
+        }
+        ParameterSweep sweep = parse(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        System.err.printf("Running %d simulations on %d threads%n", sweep.getConfigs().size(), threads);
+        List<Result> results = sweep.run(threads);
+        if (args.length < 3) {
+            writeCsv(results, new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            return;
+        }
+        Path file = Path.of(args[2]);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().endsWith(".json")) {
+                writeJson(results, out);
+            } else {
+                writeCsv(results, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,602 @@
+package simulation;
+
+import base.DeviceEventBus;
+import base.LatencyModel;
+import model.SwarmInfo;
+import model.TorrentFile;
+import torrent.TorrentClient;
+import torrent.TorrentTracker;
+import util.IPAddress;
+import util.IPv4Address;
+import util.IPv6Address;
+import util.RandomStreams;
+import util.SplitMix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Headless swarm run for large client counts; reports memory and CPU cost per peer
+public class ScaleSimulation {
+    private static final String DEFAULT_SPEC =
+            "clients=fiber:1000:1000,cable:9000:100;locations=NYC:3,LAX:2,FRA:1;churn=0.001";
+    private static final int SOURCE_SAMPLES = 8;
+    private static final int MBPS_PER_PIECE = 100; // each 100 Mbps buys one piece request per cycle
+    private static final int CAPTURE_BUDGET = 50_000; // entries copied into a pending snapshot per cycle
+    private static final long IPV6_PREFIX = 0x20010DB800000000L; // 2001:db8::/32 documentation range
+
+    private final ScaleSpec spec;
+    private final SplitMix random;
+    private final TorrentTracker tracker;
+    private final DeviceEventBus eventBus;
+    private final ChurnModel churnModel; // null when the spec only sets a per-cycle churn rate
+    private final TorrentFile torrentFile;
+    private final TorrentClient[] swarm; // seeders first, then clients
+    private final List<TorrentClient> sampledHolders = new ArrayList<>(SOURCE_SAMPLES); // reused by findSource
+    private final int[] sampledIndices = new int[SOURCE_SAMPLES]; // swarm index of each sampled holder
+    private final int[] piecesPerCycle;
+    private final boolean[] complete;
+    private final int clientCount;
+    private long heapPerClient; // only set by measured()
+    private TraceWriter trace;
+    private int[] traceIndex; // trace peer index per swarm member
+    private int cycle;
+    private Path checkpointFile;
+    private int checkpointEvery;
+    private int captureBudget = CAPTURE_BUDGET;
+    private Capture capture; // snapshot still being captured, a chunk per cycle
+    private Future<Path> pendingCheckpoint; // at most one snapshot is being written at a time
+    private SwarmHealth health;
+    private long events;
+    private long transfers;
+    private int completedClients;
+
+    public static class Report {
+        private final int clients;
+        private final long heapBytesPerClient;
+        private final long events;
+        private final long transfers;
+        private final long elapsedMillis;
+        private final int cycles;
+        private final int completedClients;
+        private final int completionCycle;
+        private final long crossRegionBytes;
+        private final double transferMillis;
+
+        Report(int clients, long heapBytesPerClient, long events, long transfers, long elapsedMillis,
+               int cycles, int completedClients, int completionCycle, long crossRegionBytes, double transferMillis) {
+            this.clients = clients;
+            this.heapBytesPerClient = heapBytesPerClient;
+            this.events = events;
+            this.transfers = transfers;
+            this.elapsedMillis = elapsedMillis;
+            this.cycles = cycles;
+            this.completedClients = completedClients;
+            this.completionCycle = completionCycle;
+            this.crossRegionBytes = crossRegionBytes;
+            this.transferMillis = transferMillis;
+        }
+
+        public int getClients() { return clients; }
+        public long getHeapBytesPerClient() { return heapBytesPerClient; } // 0 unless built by measured()
+        public long getEvents() { return events; }
+        public long getTransfers() { return transfers; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public int getCycles() { return cycles; }
+        public int getCompletedClients() { return completedClients; }
+        public int getCompletionCycle() { return completionCycle; } // -1 if the swarm never completed
+        public long getCrossRegionBytes() { return crossRegionBytes; }
+
+        // Mean simulated piece transfer time, RTT included
+        public double getMeanTransferMillis() {
+            return transfers == 0 ? 0 : transferMillis / transfers;
+        }
+
+        public double getEventsPerSecond() {
+            return elapsedMillis == 0 ? events * 1000.0 : events * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Clients: " + clients + "\n"
+                    + (heapBytesPerClient > 0 ? "Heap per client: " + heapBytesPerClient + " bytes\n" : "")
+                    + "Events: " + events + " (" + Math.round(getEventsPerSecond()) + "/s)\n"
+                    + "Transfers: " + transfers + " (mean " + Math.round(getMeanTransferMillis()) + " ms, "
+                    + crossRegionBytes / 1_048_576 + " MB cross-region)\n"
+                    + "Completed: " + completedClients + "/" + clients + " after " + cycles + " cycles\n"
+                    + "Swarm completion: " + (completionCycle < 0 ? "not reached" : "cycle " + completionCycle)
+                    + " (" + elapsedMillis + " ms)";
+        }
+    }
+
+    public ScaleSimulation(ScaleSpec spec) {
+        this.spec = spec;
+        RandomStreams streams = new RandomStreams(spec.getSeed());
+        this.random = streams.stream("scale");
+        this.clientCount = spec.getClientCount();
+        this.torrentFile = new TorrentFile("SCALE001", "scale.data", spec.getFileSize(), spec.getPieceSize());
+        this.tracker = new TorrentTracker("TRK001", "10.0.0.1", "NYC",
+                10000, 1000.0, 1000.0, Long.MAX_VALUE);
+        tracker.trackFile(torrentFile);
+        this.eventBus = new DeviceEventBus();
+        eventBus.subscribe(tracker);
+        this.churnModel = spec.createChurnModel(tracker, torrentFile.getInfoHash());
+
+        int seeders = spec.getSeeders();
+        this.swarm = new TorrentClient[seeders + clientCount];
+        this.piecesPerCycle = new int[swarm.length];
+        LatencyModel latencyModel = LatencyModel.withDefaultLocations(); // shared, so every client agrees on RTTs
+        this.complete = new boolean[swarm.length];
+
+        for (int i = 0; i < seeders; i++) {
+            TorrentClient seeder = new TorrentClient("SEED" + (i + 1), address(0, i + 2), "NYC",
+                    10000, 1000.0, 1000.0, Long.MAX_VALUE);
+            seeder.initializeDownload(torrentFile);
+            TorrentFile seeded = seeder.getDownloadingFile(torrentFile.getInfoHash());
+            for (int piece = 0; piece < seeded.getPieceCount(); piece++) {
+                seeded.markPieceCompleted(piece);
+            }
+            seeder.setLatencyModel(latencyModel);
+            seeder.setRandom(streams.stream("client/" + seeder.getDeviceID()));
+            eventBus.watch(seeder);
+            tracker.announcePeer(torrentFile.getInfoHash(), seeder, "completed");
+            swarm[i] = seeder;
+            complete[i] = true;
+        }
+
+        String[] locations = spec.assignLocations(clientCount);
+        int index = seeders;
+        for (ScaleSpec.BandwidthClass bandwidthClass : spec.getBandwidthClasses()) {
+            for (int i = 0; i < bandwidthClass.getCount(); i++, index++) {
+                int clientNumber = index - seeders;
+                TorrentClient client = new TorrentClient("PEER" + clientNumber,
+                        clientAddress(clientNumber),
+                        locations[clientNumber], bandwidthClass.getBandwidth(),
+                        bandwidthClass.getBandwidth(), bandwidthClass.getBandwidth(), spec.getFileSize() * 2);
+                client.initializeDownload(torrentFile);
+                client.setLatencyModel(latencyModel);
+                client.setRandom(streams.stream("client/" + client.getDeviceID()));
+                eventBus.watch(client);
+                if (churnModel != null) {
+                    churnModel.add(client); // announced when it arrives
+                } else {
+                    tracker.announcePeer(torrentFile.getInfoHash(), client, "started");
+                }
+                swarm[index] = client;
+                piecesPerCycle[index] = Math.max(1, bandwidthClass.getBandwidth() / MBPS_PER_PIECE);
+            }
+        }
+    }
+
+    // Builds the harness between two forced collections to report its heap per client, so it is
+    // meant for the command line rather than tests, benchmarks or sweeps
+    public static ScaleSimulation measured(ScaleSpec spec) {
+        long heapBefore = usedHeap();
+        ScaleSimulation simulation = new ScaleSimulation(spec);
+        int clients = simulation.clientCount;
+        simulation.heapPerClient = clients == 0 ? 0 : Math.max(0, usedHeap() - heapBefore) / clients;
+        return simulation;
+    }
+
+    // 10.<high>.<low / 256>.<low % 256>, packed directly without building a string
+    private static IPv4Address address(int high, int low) {
+        return IPv4Address.of((10 << 24) | ((high & 0xFF) << 16) | (low & 0xFFFF));
+    }
+
+    // Spreads the IPv6 share evenly over client numbers instead of putting it all at one end
+    private IPAddress clientAddress(int clientNumber) {
+        double share = spec.getIPv6Share();
+        if (Math.floor((clientNumber + 1) * share) > Math.floor(clientNumber * share)) {
+            return IPv6Address.of(IPV6_PREFIX, clientNumber + 1);
+        }
+        return address(1 + (clientNumber >>> 16), clientNumber & 0xFFFF);
+    }
+
+    public TorrentTracker getTracker() {
+        return tracker;
+    }
+
+    public ChurnModel getChurnModel() {
+        return churnModel;
+    }
+
+    // Samples swarm health every intervalCycles from now on, keeping the latest capacity samples
+    public SwarmHealth monitorHealth(int intervalCycles, int capacity) {
+        health = new SwarmHealth(tracker.getSwarm(torrentFile.getInfoHash()), intervalCycles, capacity);
+        health.sample(cycle, Arrays.asList(swarm));
+        return health;
+    }
+
+    // Records transfers and announces from now on, after a snapshot of the swarm as it stands
+    public void recordTo(TraceWriter trace) {
+        this.trace = trace;
+        this.traceIndex = new int[swarm.length];
+        if (churnModel != null) {
+            churnModel.recordTo(trace);
+        }
+        String infoHash = torrentFile.getInfoHash();
+        for (int i = 0; i < swarm.length; i++) {
+            traceIndex[i] = trace.peerIndex(swarm[i].getDeviceID());
+            TorrentFile file = swarm[i].getDownloadingFile(infoHash);
+            for (int piece = 0; piece < file.getPieceCount(); piece++) {
+                if (file.isPieceCompleted(piece)) {
+                    trace.pieceComplete(cycle, traceIndex[i], piece, -1);
+                }
+            }
+            if (swarm[i].isOnline()) {
+                trace.announce(cycle, traceIndex[i], complete[i] ? "completed" : "started");
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public Report run() {
+        long startTime = System.nanoTime();
+        int seeders = spec.getSeeders();
+        int completionCycle = -1;
+
+        while (cycle < spec.getMaxCycles() && completedClients < clientCount) {
+            cycle++;
+            if (churnModel != null) {
+                events += churnModel.advanceTo(cycle);
+            }
+            // Rotate the starting client instead of shuffling the whole swarm each cycle
+            int start = clientCount == 0 ? 0 : random.nextInt(clientCount);
+            for (int k = 0; k < clientCount; k++) {
+                int index = seeders + (start + k) % clientCount;
+                TorrentClient client = swarm[index];
+                if (complete[index]) {
+                    continue;
+                }
+                if (churnModel != null) {
+                    if (client.isOnline()) {
+                        downloadPieces(index);
+                    }
+                    continue;
+                }
+                if (!client.isOnline()) {
+                    client.setOnline(true); // a churned client returns after sitting out one cycle
+                    events++;
+                    continue;
+                }
+                if (spec.getChurnRate() > 0 && random.nextDouble() < spec.getChurnRate()) {
+                    client.setOnline(false);
+                    events++;
+                    continue;
+                }
+                downloadPieces(index);
+            }
+            eventBus.flush(); // churn reaches the tracker once per cycle
+            if (completedClients == clientCount) {
+                completionCycle = cycle;
+            }
+            if (health != null) {
+                health.sample(cycle, Arrays.asList(swarm));
+            }
+            if (capture != null) {
+                advanceCapture(captureBudget);
+            }
+            if (checkpointFile != null && cycle % checkpointEvery == 0) {
+                awaitCheckpoint(); // at most one snapshot in flight
+                capture = beginCapture(checkpointFile);
+                advanceCapture(captureBudget);
+            }
+        }
+        awaitCheckpoint();
+
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        long crossRegionBytes = 0;
+        double transferMillis = 0;
+        for (TorrentClient client : swarm) {
+            crossRegionBytes += client.getCrossRegionBytes();
+            transferMillis += client.getTransferMillis();
+        }
+        return new Report(clientCount, heapPerClient, events, transfers, elapsedMillis,
+                cycle, completedClients, completionCycle, crossRegionBytes, transferMillis);
+    }
+
+    // Snapshots the run into file every few cycles while it continues; null turns it off
+    public void setCheckpoints(Path file, int everyCycles) {
+        setCheckpoints(file, everyCycles, CAPTURE_BUDGET);
+    }
+
+    // As above, copying about budgetPerCycle entries into a pending snapshot at the end of each
+    // cycle, where a member counts one plus one per peer it keeps counters for
+    public void setCheckpoints(Path file, int everyCycles, int budgetPerCycle) {
+        if (file != null && everyCycles < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least one cycle");
+        }
+        if (budgetPerCycle < 1) {
+            throw new IllegalArgumentException("Checkpoints must capture something every cycle");
+        }
+        this.checkpointFile = file;
+        this.checkpointEvery = everyCycles;
+        this.captureBudget = budgetPerCycle;
+    }
+
+    // Captures the whole run now, between cycles; compressing and writing happen in the background
+    public Future<Path> checkpoint(Path file) {
+        finishCapture();
+        capture = beginCapture(file);
+        finishCapture();
+        return pendingCheckpoint;
+    }
+
+    /*
+     * A snapshot is taken as of the end of one cycle, but encoding it is the slow part, so the run
+     * only copies each member's raw state and the snapshot writer encodes the copies. Members are
+     * copied a chunk per cycle, and the run copies any member still waiting just before it first
+     * changes one. Churn flips online flags where the run cannot see them, so those are all taken
+     * up front and stored after the members.
+     */
+    private static final class Capture implements Snapshot.Source {
+        private final Path file;
+        private final byte[] head;
+        private final TorrentClient.State[] members;
+        private final boolean[] complete;
+        private final boolean[] online;
+        private int next; // lowest member that may still be waiting
+        private int remaining;
+
+        private Capture(Path file, byte[] head, boolean[] online) {
+            this.file = file;
+            this.head = head;
+            this.members = new TorrentClient.State[online.length];
+            this.complete = new boolean[online.length];
+            this.online = online;
+            this.remaining = online.length;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            out.write(head);
+            for (int i = 0; i < members.length; i++) {
+                out.writeBoolean(complete[i]);
+                members[i].write(out);
+            }
+            for (boolean memberOnline : online) {
+                out.writeBoolean(memberOnline);
+            }
+        }
+    }
+
+    private Capture beginCapture(Path file) {
+        boolean[] online = new boolean[swarm.length];
+        for (int i = 0; i < swarm.length; i++) {
+            online[i] = swarm[i].isOnline();
+        }
+        ByteArrayOutputStream head = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(head)) {
+            out.writeInt(spec.getSeeders());
+            out.writeInt(clientCount);
+            out.writeInt(torrentFile.getPieceCount());
+            out.writeLong(torrentFile.getFileSize());
+            out.writeInt(cycle);
+            out.writeLong(events);
+            out.writeLong(transfers);
+            out.writeInt(completedClients);
+            out.writeLong(random.getState());
+            out.writeLong(tracker.getSwarm(torrentFile.getInfoHash()).getTotalTransferred());
+            out.writeBoolean(churnModel != null);
+            if (churnModel != null) {
+                churnModel.writeState(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return new Capture(file, head.toByteArray(), online);
+    }
+
+    // Copies a member into the pending snapshot before the run changes it
+    private void preserve(int index) {
+        if (capture != null && capture.members[index] == null) {
+            captureMember(index);
+        }
+    }
+
+    private int captureMember(int index) {
+        TorrentClient.State state = swarm[index].captureState();
+        capture.members[index] = state;
+        capture.complete[index] = complete[index];
+        capture.remaining--;
+        return state.getEntries();
+    }
+
+    // Copies members until about budget entries are in; once all are, hands the snapshot to the writer
+    private void advanceCapture(int budget) {
+        for (long taken = 0; capture.next < swarm.length && taken < budget; capture.next++) {
+            if (capture.members[capture.next] == null) {
+                taken += captureMember(capture.next);
+            }
+        }
+        while (capture.next < swarm.length && capture.members[capture.next] != null) {
+            capture.next++;
+        }
+        if (capture.remaining == 0) {
+            pendingCheckpoint = Snapshot.writeInBackground(capture.file, capture);
+            capture = null;
+        }
+    }
+
+    private void finishCapture() {
+        if (capture != null) {
+            advanceCapture(Integer.MAX_VALUE);
+        }
+    }
+
+    private void awaitCheckpoint() {
+        finishCapture();
+        if (pendingCheckpoint == null) {
+            return;
+        }
+        try {
+            pendingCheckpoint.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not write checkpoint " + checkpointFile, e.getCause());
+        } finally {
+            pendingCheckpoint = null;
+        }
+    }
+
+    // Rebuilds a run from a snapshot. The spec must describe the same swarm and file, but settings
+    // such as locality or churn distributions may differ, which forks a what-if run from the snapshot.
+    public static ScaleSimulation restore(ScaleSpec spec, Path file) throws IOException {
+        ScaleSimulation simulation = new ScaleSimulation(spec);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Snapshot.read(file)))) {
+            simulation.readState(in);
+        }
+        return simulation;
+    }
+
+    private void readState(DataInputStream in) throws IOException {
+        if (in.readInt() != spec.getSeeders() || in.readInt() != clientCount
+                || in.readInt() != torrentFile.getPieceCount() || in.readLong() != torrentFile.getFileSize()) {
+            throw new IllegalArgumentException("Snapshot was taken from a different swarm or file");
+        }
+        cycle = in.readInt();
+        events = in.readLong();
+        transfers = in.readLong();
+        completedClients = in.readInt();
+        random.setState(in.readLong());
+        // Membership comes back through the announces below, but the bytes moved only from here
+        SwarmInfo swarmInfo = tracker.getSwarm(torrentFile.getInfoHash());
+        swarmInfo.updateTransferred(in.readLong() - swarmInfo.getTotalTransferred());
+        if (in.readBoolean() != (churnModel != null)) {
+            throw new IllegalArgumentException("Snapshot and spec disagree on using a churn model");
+        }
+        if (churnModel != null) {
+            churnModel.readState(in);
+        }
+        for (int i = 0; i < swarm.length; i++) {
+            complete[i] = in.readBoolean();
+            swarm[i].readState(in);
+        }
+        for (int i = 0; i < swarm.length; i++) {
+            swarm[i].setOnline(in.readBoolean()); // as of the snapshot's cycle, not when the member was copied
+        }
+        if (churnModel != null) {
+            // Clients announce when they first arrive, so replay that for the ones that had
+            for (int i = spec.getSeeders(); i < swarm.length; i++) {
+                if (churnModel.hasArrived(i - spec.getSeeders())) {
+                    tracker.announcePeer(torrentFile.getInfoHash(), swarm[i], "started");
+                }
+            }
+        } else {
+            // Every client announced as it was built, before the snapshot said which had finished
+            for (int i = spec.getSeeders(); i < swarm.length; i++) {
+                if (complete[i]) {
+                    tracker.announcePeer(torrentFile.getInfoHash(), swarm[i], "completed");
+                }
+            }
+        }
+        eventBus.flush(); // restored online states reach the tracker
+    }
+
+    private void downloadPieces(int index) {
+        preserve(index);
+        TorrentClient client = swarm[index];
+        String infoHash = torrentFile.getInfoHash();
+        for (int r = 0; r < piecesPerCycle[index]; r++) {
+            int neededPiece = client.getNextNeededPiece(infoHash);
+            if (neededPiece == -1) {
+                break;
+            }
+            int source = findSource(neededPiece, index);
+            events++;
+            if (source < 0) {
+                break; // the next attempt would ask for the same piece from the same holders
+            }
+            if (trace != null) {
+                trace.transferStart(cycle, traceIndex[index], neededPiece, traceIndex[source]);
+            }
+            preserve(source); // serving updates the source's peer statistics
+            boolean success = client.requestPiece(infoHash, neededPiece, swarm[source]);
+            if (success) {
+                transfers++;
+                tracker.recordTransfer(infoHash, torrentFile.getPieces().get(neededPiece).getSize());
+            }
+            if (trace != null) {
+                trace.transferEnd(cycle, traceIndex[index], neededPiece, traceIndex[source], success);
+                if (success) {
+                    trace.pieceComplete(cycle, traceIndex[index], neededPiece, traceIndex[source]);
+                }
+            }
+        }
+        if (client.isDownloadComplete(infoHash)) {
+            complete[index] = true;
+            completedClients++;
+            tracker.announcePeer(infoHash, client, "completed");
+            if (trace != null) {
+                trace.announce(cycle, traceIndex[index], "completed");
+            }
+        }
+    }
+
+    // Samples a few random swarm members, then falls back to the seeders. With locality on, the
+    // requester's own peer selection picks among the sampled holders instead of taking the first.
+    // Returns a swarm index, or -1 if none is online.
+    private int findSource(int pieceIndex, int requester) {
+        String infoHash = torrentFile.getInfoHash();
+        sampledHolders.clear();
+        for (int i = 0; i < SOURCE_SAMPLES; i++) {
+            int candidate = random.nextInt(swarm.length);
+            if (candidate == requester || !hasPiece(swarm[candidate], infoHash, pieceIndex)) {
+                continue;
+            }
+            if (!spec.isLocality()) {
+                return candidate;
+            }
+            sampledIndices[sampledHolders.size()] = candidate;
+            sampledHolders.add(swarm[candidate]);
+        }
+        TorrentClient nearest = swarm[requester].selectPeer(infoHash, pieceIndex, sampledHolders);
+        for (int i = 0; nearest != null && i < sampledHolders.size(); i++) {
+            if (sampledHolders.get(i) == nearest) {
+                return sampledIndices[i];
+            }
+        }
+        for (int i = 0; i < spec.getSeeders(); i++) {
+            if (swarm[i].isOnline()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean hasPiece(TorrentClient client, String infoHash, int pieceIndex) {
+        TorrentFile file = client.getDownloadingFile(infoHash);
+        return client.isOnline() && file != null && file.isPieceCompleted(pieceIndex);
+    }
+
+    public static void main(String[] args) throws IOException {
+        ScaleSpec spec = ScaleSpec.parse(args.length > 0 ? args[0] : DEFAULT_SPEC);
+        System.out.println("Starting scale simulation with " + spec.getClientCount() + " clients");
+        ScaleSimulation simulation = measured(spec);
+        if (args.length > 1) {
+            try (TraceWriter trace = new TraceWriter(Path.of(args[1]))) {
+                simulation.recordTo(trace);
+                System.out.println(simulation.run());
+                System.out.println("Trace: " + trace.getRecordCount() + " records in " + args[1]);
+            }
+        } else {
+            System.out.println(simulation.run());
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package simulation;
+
+import torrent.TorrentTracker;
+import util.RandomStreams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Compact description of a scale run, e.g.
+ *
+ *   clients=fiber:1000:1000,cable:9000:100;locations=NYC:3,LAX:1;churn=0.01;seeders=2;ipv6=0.5
+ *
+ * Bandwidth classes are name:count:mbps, locations are name:weight, ipv6 is the share of
+ * clients given IPv6 addresses. locality=true makes clients prefer low-RTT sources.
+ *
+ * Setting arrivals (poisson:<per second> or flash:<decay seconds>), sessions (exp:<mean> or
+ * weibull:<shape>:<scale>) or downtime=<mean seconds> replaces the per-cycle churn rate with a
+ * ChurnModel, where one cycle is one simulated second.
+ */
+public class ScaleSpec {
+    public static final class BandwidthClass {
+        private final String name;
+        private final int count;
+        private final int bandwidth;
+
+        public BandwidthClass(String name, int count, int bandwidth) {
+            if (count < 0 || bandwidth <= 0) {
+                throw new IllegalArgumentException("Invalid bandwidth class: " + name);
+            }
+            this.name = name;
+            this.count = count;
+            this.bandwidth = bandwidth;
+        }
+
+        public String getName() { return name; }
+        public int getCount() { return count; }
+        public int getBandwidth() { return bandwidth; }
+    }
+
+    private final List<BandwidthClass> bandwidthClasses = new ArrayList<>();
+    private final List<String> locations = new ArrayList<>();
+    private final List<Double> locationWeights = new ArrayList<>();
+    private double churnRate;
+    private double ipv6Share;
+    private boolean locality;
+    private String arrivals;
+    private String sessions;
+    private double meanDowntime;
+    private int seeders = 1;
+    private long fileSize = 10_485_760L;
+    private int pieceSize = 262144;
+    private int maxCycles = 10_000;
+    private long seed = 42L;
+
+    public static ScaleSpec parse(String spec) {
+        ScaleSpec result = new ScaleSpec();
+        for (String part : spec.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int eq = part.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value in scale spec: " + part);
+            }
+            String key = part.substring(0, eq).trim();
+            String value = part.substring(eq + 1).trim();
+            try {
+                switch (key) {
+                    case "clients" -> {
+                        for (String entry : value.split(",")) {
+                            String[] fields = entry.split(":");
+                            if (fields.length != 3) {
+                                throw new IllegalArgumentException("Expected name:count:mbps, got " + entry);
+                            }
+                            result.addBandwidthClass(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                        }
+                    }
+                    case "locations" -> {
+                        for (String entry : value.split(",")) {
+                            String[] fields = entry.split(":");
+                            result.addLocation(fields[0], fields.length > 1 ? Double.parseDouble(fields[1]) : 1.0);
+                        }
+                    }
+                    case "churn" -> result.setChurnRate(Double.parseDouble(value));
+                    case "ipv6" -> result.setIPv6Share(Double.parseDouble(value));
+                    case "locality" -> result.setLocality(Boolean.parseBoolean(value));
+                    case "arrivals" -> result.setArrivals(value);
+                    case "sessions" -> result.setSessions(value);
+                    case "downtime" -> result.setMeanDowntime(Double.parseDouble(value));
+                    case "seeders" -> result.setSeeders(Integer.parseInt(value));
+                    case "file" -> result.setFileSize(Long.parseLong(value));
+                    case "piece" -> result.setPieceSize(Integer.parseInt(value));
+                    case "cycles" -> result.setMaxCycles(Integer.parseInt(value));
+                    case "seed" -> result.setSeed(Long.parseLong(value));
+                    default -> throw new IllegalArgumentException("Unknown scale spec key: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+            }
+        }
+        if (result.bandwidthClasses.isEmpty()) {
+            throw new IllegalArgumentException("Scale spec needs at least one client class");
+        }
+        return result;
+    }
+
+    public ScaleSpec addBandwidthClass(String name, int count, int bandwidth) {
+        bandwidthClasses.add(new BandwidthClass(name, count, bandwidth));
+        return this;
+    }
+
+    public ScaleSpec addLocation(String location, double weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Location weight must be positive: " + location);
+        }
+        locations.add(location);
+        locationWeights.add(weight);
+        return this;
+    }
+
+    public ScaleSpec setChurnRate(double churnRate) {
+        if (churnRate < 0 || churnRate > 1) {
+            throw new IllegalArgumentException("Churn rate must be between 0 and 1");
+        }
+        this.churnRate = churnRate;
+        return this;
+    }
+
+    public ScaleSpec setIPv6Share(double ipv6Share) {
+        if (ipv6Share < 0 || ipv6Share > 1) {
+            throw new IllegalArgumentException("IPv6 share must be between 0 and 1");
+        }
+        this.ipv6Share = ipv6Share;
+        return this;
+    }
+
+    public ScaleSpec setLocality(boolean locality) {
+        this.locality = locality;
+        return this;
+    }
+
+    public ScaleSpec setArrivals(String arrivals) {
+        ChurnModel.validateArrivals(arrivals);
+        this.arrivals = arrivals;
+        return this;
+    }
+
+    public ScaleSpec setSessions(String sessions) {
+        ChurnModel.validateSessions(sessions);
+        this.sessions = sessions;
+        return this;
+    }
+
+    public ScaleSpec setMeanDowntime(double meanDowntime) {
+        this.meanDowntime = ChurnModel.checkDowntime(meanDowntime);
+        return this;
+    }
+
+    public boolean hasChurnModel() {
+        return arrivals != null || sessions != null || meanDowntime > 0;
+    }
+
+    // A churn model configured from this spec, seeded from it, or null if none was asked for
+    public ChurnModel createChurnModel(TorrentTracker tracker, String infoHash) {
+        if (!hasChurnModel()) {
+            return null;
+        }
+        ChurnModel model = new ChurnModel(new RandomStreams(seed).seedFor("churn")).announceTo(tracker, infoHash).setMeanDowntime(meanDowntime);
+        if (arrivals != null) {
+            model.setArrivals(arrivals);
+        }
+        if (sessions != null) {
+            model.setSessions(sessions);
+        }
+        return model;
+    }
+
+    public ScaleSpec setSeeders(int seeders) {
+        this.seeders = Math.max(1, seeders);
+        return this;
+    }
+
+    public ScaleSpec setFileSize(long fileSize) {
+        if (fileSize <= 0) {
+            throw new IllegalArgumentException("File size must be positive");
+        }
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    public ScaleSpec setPieceSize(int pieceSize) {
+        if (pieceSize <= 0) {
+            throw new IllegalArgumentException("Piece size must be positive");
+        }
+        this.pieceSize = pieceSize;
+        return this;
+    }
+
+    public ScaleSpec setMaxCycles(int maxCycles) {
+        if (maxCycles < 1) {
+            throw new IllegalArgumentException("Simulation needs at least one cycle");
+        }
+        this.maxCycles = maxCycles;
+        return this;
+    }
+
+    public ScaleSpec setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public List<BandwidthClass> getBandwidthClasses() { return Collections.unmodifiableList(bandwidthClasses); }
+    public double getChurnRate() { return churnRate; }
+    public double getIPv6Share() { return ipv6Share; }
+    public boolean isLocality() { return locality; }
+    public String getArrivals() { return arrivals; }
+    public String getSessions() { return sessions; }
+    public double getMeanDowntime() { return meanDowntime; }
+    public int getSeeders() { return seeders; }
+    public long getFileSize() { return fileSize; }
+    public int getPieceSize() { return pieceSize; }
+    public int getMaxCycles() { return maxCycles; }
+    public long getSeed() { return seed; }
+
+    public int getClientCount() {
+        int total = 0;
+        for (BandwidthClass bandwidthClass : bandwidthClasses) {
+            total += bandwidthClass.getCount();
+        }
+        return total;
+    }
+
+    // Spreads clients over locations in proportion to their weights, without randomness
+    public String[] assignLocations(int clientCount) {
+        String[] assigned = new String[clientCount];
+        if (locations.isEmpty()) {
+            Arrays.fill(assigned, "LOCAL");
+            return assigned;
+        }
+        double totalWeight = 0;
+        for (double weight : locationWeights) {
+            totalWeight += weight;
+        }
+        double[] credit = new double[locations.size()];
+        for (int i = 0; i < clientCount; i++) {
+            int best = 0;
+            for (int l = 0; l < credit.length; l++) {
+                credit[l] += locationWeights.get(l) / totalWeight;
+                if (credit[l] > credit[best]) {
+                    best = l;
+                }
+            }
+            credit[best] -= 1.0;
+            assigned[i] = locations.get(best);
+        }
+        return assigned;
+    }
+}
@@ -2,27 +2,78 @@ package simulation;
 
 import torrent.*;
 import model.*;
+import util.Log;
+import util.Metrics;
+import util.MetricsServer;
+import util.RandomStreams;
+import util.SplitMix;
+import java.io.IOException;
 import java.util.*;
 
 public class Simulation {
-    private static final int PIECE_SIZE = 262144; // 256KB
-    private static final long FILE_SIZE = 10_485_760L; // 10MB
-    private static final int SIMULATION_CYCLES = 20;
-    private static final long SLEEP_TIME = 1000; // 1 second between cycles
+    public static final String SEEDERS = "swarm.seeders";
+    public static final String LEECHERS = "swarm.leechers";
+    public static final String COMPLETED_PEERS = "swarm.completed_peers";
+    public static final String COMPLETED_PIECES = "swarm.completed_pieces";
+    public static final String TOTAL_PIECES = "swarm.total_pieces";
+    public static final String DOWNLOAD_RATE = "swarm.download_bytes_per_second";
+    public static final String BYTES_TRANSFERRED = "swarm.bytes_transferred";
+    public static final String CYCLES = "simulation.cycles";
 
+    private final SimulationConfig config;
     private final TorrentTracker tracker;
     private final TorrentClient initialSeeder;  // Changed to TorrentClient
     private final List<TorrentClient> peers;
     private final TorrentFile torrentFile;
-    private final Random random;
+    private final RandomStreams streams;
+    private final SplitMix random;
+    private final ChurnModel churnModel;
+    private final Metrics metrics = new Metrics();
+    private SwarmHealth health;
+    private int cycle;
+    private int completionCycle = -1;
+    private long transfers;
+    private long failedTransfers;
+    private TraceWriter trace;
 
     public Simulation() {
-        this.random = new Random();
+        this(new SimulationConfig());
+    }
+
+    public Simulation(int peerCount) {
+        this(new SimulationConfig().setPeerCount(peerCount));
+    }
+
+    public Simulation(int peerCount, ChurnModel churnModel) {
+        this(new SimulationConfig().setPeerCount(peerCount), churnModel);
+    }
+
+    public Simulation(int peerCount, long seed, ChurnModel churnModel) {
+        this(new SimulationConfig().setPeerCount(peerCount).setSeed(seed), churnModel);
+    }
+
+    public Simulation(SimulationConfig config) {
+        this(config, null);
+    }
+
+    // Every random choice comes from streams derived from the config's seed, so equal configs replay
+    // identically. With a churn model, peers arrive and leave on its schedule, one cycle per simulated second.
+    public Simulation(SimulationConfig config, ChurnModel churnModel) {
+        this.config = config;
+        this.streams = new RandomStreams(config.getSeed());
+        this.random = streams.stream("simulation");
+        this.churnModel = churnModel;
         this.tracker = createTracker();
         this.initialSeeder = createInitialSeeder();
-        this.peers = createPeers(3); // Start with 3 peers
+        this.peers = createPeers(config.getPeerCount());
         this.torrentFile = createTorrentFile();
+        tracker.setMetrics(metrics);
+        initialSeeder.setMetrics(metrics);
+        for (TorrentClient peer : peers) {
+            peer.setMetrics(metrics);
+        }
         initializeNetwork();
+        publishMetrics();
     }
 
     private TorrentTracker createTracker() {
@@ -33,28 +84,31 @@ public class Simulation {
     private TorrentClient createInitialSeeder() {
         TorrentClient seeder = new TorrentClient("SEED001", "10.0.0.2", "LAX",
                 500, 50.0, 50.0, Long.MAX_VALUE);
+        seeder.setRandom(streams.stream("client/SEED001"));
         return seeder;
     }
 
     private List<TorrentClient> createPeers(int count) {
         List<TorrentClient> newPeers = new ArrayList<>();
         for (int i = 0; i < count; i++) {
+            double mbps = config.getBandwidth(i);
             TorrentClient peer = new TorrentClient(
                     String.format("PEER%03d", i + 1),
-                    String.format("10.0.1.%d", i + 1),
+                    String.format("10.0.%d.%d", 1 + i / 254, i % 254 + 1),
                     "LOCATION" + (i + 1),
                     100,
-                    1000.0,
-                    1000.0,
-                    FILE_SIZE * 2
+                    mbps,
+                    mbps,
+                    config.getFileSize() * 2
             );
+            peer.setRandom(streams.stream("client/" + peer.getDeviceID()));
             newPeers.add(peer);
         }
         return newPeers;
     }
 
     private TorrentFile createTorrentFile() {
-        return new TorrentFile("HASH001", "sample.data", FILE_SIZE, PIECE_SIZE);
+        return new TorrentFile("HASH001", "sample.data", config.getFileSize(), config.getPieceSize());
     }
 
     private void initializeNetwork() {
@@ -64,52 +118,228 @@ public class Simulation {
         for (int i = 0; i < torrentFile.getPieceCount(); i++) {
             initialSeeder.getDownloadingFile(torrentFile.getInfoHash()).markPieceCompleted(i);
         }
-        tracker.announce(torrentFile.getInfoHash(), initialSeeder.getDeviceID(), "completed");
+        tracker.announcePeer(torrentFile.getInfoHash(), initialSeeder, "completed");
+        if (churnModel != null) {
+            churnModel.announceTo(tracker, torrentFile.getInfoHash());
+        }
 
         for (TorrentClient peer : peers) {
             peer.initializeDownload(torrentFile);
-            tracker.announce(torrentFile.getInfoHash(), peer.getDeviceID(), "started");
+            if (churnModel != null) {
+                churnModel.add(peer);
+            } else {
+                tracker.announcePeer(torrentFile.getInfoHash(), peer, "started");
+            }
         }
     }
 
     private void simulationCycle() {
+        cycle++;
+        if (churnModel != null) {
+            churnModel.advanceTo(cycle);
+        }
         List<TorrentClient> activePeers = new ArrayList<>(peers);
-        Collections.shuffle(activePeers, random);
+        RandomStreams.shuffle(activePeers, random);
 
         for (TorrentClient peer : activePeers) {
-            processDownloads(peer);
+            if (peer.isOnline()) {
+                processDownloads(peer);
+            }
         }
     }
 
     private void processDownloads(TorrentClient peer) {
+        boolean wasComplete = peer.isDownloadComplete(torrentFile.getInfoHash());
         for (int i = 0; i < 3; i++) {
-            int neededPiece = peer.getNextNeededPiece(torrentFile.getInfoHash());
+            int neededPiece = pickPiece(peer);
             if (neededPiece == -1) break;
 
             TorrentClient sourcePeer = findPeerWithPiece(neededPiece, peer);
             if (sourcePeer != null) {
+                int to = trace == null ? -1 : trace.peerIndex(peer.getDeviceID());
+                int from = trace == null ? -1 : trace.peerIndex(sourcePeer.getDeviceID());
+                if (trace != null) {
+                    trace.transferStart(cycle, to, neededPiece, from);
+                }
                 boolean success = peer.requestPiece(torrentFile.getInfoHash(), neededPiece, sourcePeer);
                 if (success) {
-                    System.out.printf("Peer %s downloaded piece %d from %s%n",
+                    transfers++;
+                    tracker.recordTransfer(torrentFile.getInfoHash(), torrentFile.getPieces().get(neededPiece).getSize());
+                } else {
+                    failedTransfers++;
+                }
+                if (trace != null) {
+                    trace.transferEnd(cycle, to, neededPiece, from, success);
+                    if (success) {
+                        trace.pieceComplete(cycle, to, neededPiece, from);
+                    }
+                }
+                Log log = Log.global();
+                if (success && log.isEnabled(Log.Level.DEBUG)) {
+                    log.log(Log.Level.DEBUG, "Peer {} downloaded piece {} from {}",
                             peer.getDeviceID(), neededPiece, sourcePeer.getDeviceID());
                 }
             }
         }
+        if (!wasComplete && peer.isDownloadComplete(torrentFile.getInfoHash())) {
+            tracker.announcePeer(torrentFile.getInfoHash(), peer, "completed");
+            if (trace != null) {
+                trace.announce(cycle, trace.peerIndex(peer.getDeviceID()), "completed");
+            }
+        }
+    }
+
+    private int pickPiece(TorrentClient peer) {
+        if (config.getPicker() == SimulationConfig.PiecePicker.SEQUENTIAL) {
+            return peer.getNextNeededPiece(torrentFile.getInfoHash());
+        }
+        TorrentFile wanted = peer.getDownloadingFile(torrentFile.getInfoHash());
+        if (wanted == null) {
+            return -1;
+        }
+        boolean rarest = config.getPicker() == SimulationConfig.PiecePicker.RAREST;
+        int[] holders = rarest ? countOnlineHolders(peer) : null;
+        int picked = -1;
+        int fewest = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int piece = 0; piece < wanted.getPieceCount(); piece++) {
+            if (wanted.isPieceCompleted(piece)) {
+                continue;
+            }
+            int count = rarest ? holders[piece] : 0;
+            if (rarest && count == 0) {
+                continue; // nobody online can serve it yet
+            }
+            if (count < fewest) {
+                fewest = count;
+                ties = 0;
+            }
+            if (count == fewest && random.nextInt(++ties) == 0) { // uniform among the ties
+                picked = piece;
+            }
+        }
+        return picked;
+    }
+
+    private int[] countOnlineHolders(TorrentClient requester) {
+        int[] holders = new int[torrentFile.getPieceCount()];
+        List<TorrentClient> members = new ArrayList<>(peers);
+        members.add(initialSeeder);
+        for (TorrentClient member : members) {
+            TorrentFile file = member.getDownloadingFile(torrentFile.getInfoHash());
+            if (member == requester || !member.isOnline() || file == null) {
+                continue;
+            }
+            for (int piece = 0; piece < holders.length; piece++) {
+                if (file.isPieceCompleted(piece)) {
+                    holders[piece]++;
+                }
+            }
+        }
+        return holders;
     }
 
     private TorrentClient findPeerWithPiece(int pieceIndex, TorrentClient requester) {
         List<TorrentClient> candidates = new ArrayList<>(peers);
         candidates.add(initialSeeder);
-        Collections.shuffle(candidates, random);
+        RandomStreams.shuffle(candidates, random);
+        // Same policy as the scale harness; without a latency model the first holder in shuffled order wins
+        return requester.selectPeer(torrentFile.getInfoHash(), pieceIndex, candidates);
+    }
+
+    // Records the run from now on, starting with a snapshot of who is announced and what they hold
+    public void recordTo(TraceWriter trace) {
+        this.trace = trace;
+        if (churnModel != null) {
+            churnModel.recordTo(trace);
+        }
+        String infoHash = torrentFile.getInfoHash();
+        List<TorrentClient> members = new ArrayList<>();
+        members.add(initialSeeder);
+        members.addAll(peers);
+        for (TorrentClient member : members) {
+            int index = trace.peerIndex(member.getDeviceID());
+            TorrentFile file = member.getDownloadingFile(infoHash);
+            for (int piece = 0; file != null && piece < file.getPieceCount(); piece++) {
+                if (file.isPieceCompleted(piece)) {
+                    trace.pieceComplete(cycle, index, piece, -1);
+                }
+            }
+            if (member.isOnline()) {
+                trace.announce(cycle, index, member.isDownloadComplete(infoHash) ? "completed" : "started");
+            }
+        }
+    }
+
+    // Runs one round of downloads and reports whether every peer has finished
+    public boolean runCycle() {
+        simulationCycle();
+        boolean complete = isDownloadComplete();
+        if (complete && completionCycle < 0) {
+            completionCycle = cycle;
+        }
+        publishMetrics();
+        if (health != null) {
+            health.sample(cycle, members());
+        }
+        return complete;
+    }
 
-        for (TorrentClient candidate : candidates) {
-            if (candidate != requester &&
-                    candidate.getDownloadingFile(torrentFile.getInfoHash()) != null &&
-                    candidate.getDownloadingFile(torrentFile.getInfoHash()).isPieceCompleted(pieceIndex)) {
-                return candidate;
+    private List<TorrentClient> members() {
+        List<TorrentClient> members = new ArrayList<>(peers.size() + 1);
+        members.add(initialSeeder);
+        members.addAll(peers);
+        return members;
+    }
+
+    // Copies the swarm's state into gauges, so a metrics scrape reads atomics rather than the swarm
+    private void publishMetrics() {
+        int completedPieces = torrentFile.getPieceCount(); // the initial seeder's
+        long downloadRate = 0;
+        for (TorrentClient peer : peers) {
+            completedPieces += peer.getCompletedPieceCount(torrentFile.getInfoHash());
+            downloadRate += (long) peer.getRealDownloadSpeed();
+        }
+        SwarmInfo swarm = tracker.getSwarm(torrentFile.getInfoHash());
+        SwarmInfo.Counts counts = swarm.getCounts();
+        metrics.gauge(SEEDERS).set(counts.getSeeders());
+        metrics.gauge(LEECHERS).set(counts.getLeechers());
+        metrics.gauge(COMPLETED_PEERS).set(getCompletedPeerCount());
+        metrics.gauge(COMPLETED_PIECES).set(completedPieces);
+        metrics.gauge(TOTAL_PIECES).set((long) torrentFile.getPieceCount() * (peers.size() + 1));
+        metrics.gauge(DOWNLOAD_RATE).set(downloadRate);
+        metrics.gauge(BYTES_TRANSFERRED).set(swarm.getTotalTransferred());
+        metrics.gauge(CYCLES).set(cycle);
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    // Samples swarm health every intervalCycles from now on, keeping the latest capacity samples
+    public SwarmHealth monitorHealth(int intervalCycles, int capacity) {
+        health = new SwarmHealth(tracker.getSwarm(torrentFile.getInfoHash()), intervalCycles, capacity);
+        health.sample(cycle, members());
+        return health;
+    }
+
+    public TorrentTracker getTracker() {
+        return tracker;
+    }
+
+    // Serves this run's metrics on localhost in Prometheus text format until the server is closed
+    public MetricsServer serveMetrics(int port) throws IOException {
+        return new MetricsServer(metrics, port);
+    }
+
+    // Runs up to the configured number of cycles without pausing or printing; true if every peer finished
+    public boolean run() {
+        while (cycle < config.getMaxCycles()) {
+            if (runCycle()) {
+                return true;
             }
         }
-        return null;
+        return false;
     }
 
     private boolean isDownloadComplete() {
@@ -122,61 +352,116 @@ public class Simulation {
     }
 
     public void runSimulation() {
-        System.out.println("Starting BitTorrent Simulation");
-        System.out.println("File size: " + (FILE_SIZE / 1048576) + "MB");
-        System.out.println("Piece size: " + (PIECE_SIZE / 1024) + "KB");
-        System.out.println("Number of pieces: " + torrentFile.getPieceCount());
-        System.out.println("Number of peers: " + peers.size());
-        System.out.println("\nSimulation running...\n");
-
-        for (int cycle = 1; cycle <= SIMULATION_CYCLES; cycle++) {
-            System.out.println("=== Cycle " + cycle + " ===");
-            simulationCycle();
-            printNetworkStatus();
-
-            if (isDownloadComplete()) {
-                System.out.println("\nAll peers completed download!");
+        Log log = Log.global();
+        log.log(Log.Level.INFO, "Starting BitTorrent Simulation");
+        log.log(Log.Level.INFO, "File size: {}MB", config.getFileSize() / 1048576);
+        log.log(Log.Level.INFO, "Piece size: {}KB", config.getPieceSize() / 1024);
+        log.log(Log.Level.INFO, "Number of pieces: {}", torrentFile.getPieceCount());
+        log.log(Log.Level.INFO, "Number of peers: {}", peers.size());
+        MetricsServer server = null;
+        if (config.getMetricsPort() > 0) {
+            try {
+                server = serveMetrics(config.getMetricsPort());
+                log.log(Log.Level.INFO, "Metrics at http://localhost:{}{}", server.getPort(), MetricsServer.PATH);
+            } catch (IOException e) {
+                log.log(Log.Level.WARN, "Metrics server not started: {}", e.getMessage());
+            }
+        }
+        log.log(Log.Level.INFO, "\nSimulation running...\n");
+
+        for (int cycle = 1; cycle <= config.getMaxCycles(); cycle++) {
+            log.log(Log.Level.INFO, "=== Cycle {} ===", cycle);
+            boolean complete = runCycle();
+            printNetworkStatus(log);
+
+            if (complete) {
+                log.log(Log.Level.INFO, "\nAll peers completed download!");
                 break;
             }
 
             try {
-                Thread.sleep(SLEEP_TIME);
+                Thread.sleep(config.getSleepMillis());
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
             }
         }
 
-        printFinalStatistics();
+        printFinalStatistics(log);
+        log.flush();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    public SimulationConfig getConfig() { return config; }
+    public int getCycle() { return cycle; }
+    public int getCompletionCycle() { return completionCycle; } // -1 until every peer has finished
+    public long getTransfers() { return transfers; }
+    public long getFailedTransfers() { return failedTransfers; }
+
+    public int getCompletedPeerCount() {
+        int completed = 0;
+        for (TorrentClient peer : peers) {
+            if (peer.isDownloadComplete(torrentFile.getInfoHash())) {
+                completed++;
+            }
+        }
+        return completed;
     }
 
-    private void printNetworkStatus() {
-        System.out.println("\nNetwork Status:");
-        System.out.printf("Seeder (%s): 100.0%% complete%n", initialSeeder.getDeviceID());
+    // Simulated time peers spent receiving pieces, summed over all of them
+    public double getTransferMillis() {
+        double total = 0;
         for (TorrentClient peer : peers) {
-            System.out.printf("%s: %.1f%% complete (Speed: ↑%.2f MB/s, ↓%.2f MB/s)%n",
+            total += peer.getTransferMillis();
+        }
+        return total;
+    }
+
+    // Simulated receive time of the peer that spent longest, a proxy for when the swarm finished
+    public double getSlowestPeerMillis() {
+        double slowest = 0;
+        for (TorrentClient peer : peers) {
+            slowest = Math.max(slowest, peer.getTransferMillis());
+        }
+        return slowest;
+    }
+
+    private void printNetworkStatus(Log log) {
+        if (!log.isEnabled(Log.Level.INFO)) {
+            return;
+        }
+        log.log(Log.Level.INFO, "\nNetwork Status:");
+        log.log(Log.Level.INFO, "Seeder ({}): 100.0% complete", initialSeeder.getDeviceID());
+        for (TorrentClient peer : peers) {
+            log.log(Log.Level.INFO, String.format("%s: %.1f%% complete (Speed: ↑%.2f MB/s, ↓%.2f MB/s)",
                     peer.getDeviceID(),
                     peer.getDownloadProgress(torrentFile.getInfoHash()) * 100,
                     peer.getRealUploadSpeed() / 1048576.0,
-                    peer.getRealDownloadSpeed() / 1048576.0);
+                    peer.getRealDownloadSpeed() / 1048576.0));
         }
-        System.out.println();
+        log.log(Log.Level.INFO, "");
     }
 
-    private void printFinalStatistics() {
-        System.out.println("\nFinal Statistics:");
+    private void printFinalStatistics(Log log) {
+        if (!log.isEnabled(Log.Level.INFO)) {
+            return;
+        }
+        log.log(Log.Level.INFO, "\nFinal Statistics:");
         for (TorrentClient peer : peers) {
-            System.out.printf("%s:%n", peer.getDeviceID());
-            System.out.printf("  - Final Progress: %.1f%%%n",
-                    peer.getDownloadProgress(torrentFile.getInfoHash()) * 100);
-            System.out.printf("  - Completed Pieces: %d/%d%n",
+            log.log(Log.Level.INFO, "{}:", peer.getDeviceID());
+            log.log(Log.Level.INFO, String.format("  - Final Progress: %.1f%%",
+                    peer.getDownloadProgress(torrentFile.getInfoHash()) * 100));
+            log.log(Log.Level.INFO, "  - Completed Pieces: {}/{}",
                     peer.getCompletedPieceCount(torrentFile.getInfoHash()),
                     peer.getTotalPieceCount(torrentFile.getInfoHash()));
         }
     }
 
     public static void main(String[] args) {
-        Simulation simulation = new Simulation();
+        Log.global().setLevel(Log.Level.DEBUG); // the demo shows every piece transfer
+        Simulation simulation = new Simulation(SimulationConfig.parse(String.join(";", args)));
         simulation.runSimulation();
     }
 }
\ No newline at end of file
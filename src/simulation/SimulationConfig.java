@@ -0,0 +1,179 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Parameters of a Simulation run, e.g.
+ *
+ *   peers=10;piece=65536;file=10485760;bandwidth=10:100:1000;picker=rarest;cycles=50;seed=7
+ *
+ * bandwidth is the mix of peer speeds in Mbps, handed out to peers in turn. picker is how a peer
+ * chooses its next piece: sequential (lowest missing index), random or rarest (fewest online
+ * holders first). sleep is the pause between cycles in milliseconds and metrics=<port> serves live
+ * metrics on localhost while it runs; both are only used by runSimulation.
+ */
+public class SimulationConfig {
+    public enum PiecePicker { SEQUENTIAL, RANDOM, RAREST }
+
+    private int peerCount = 3;
+    private int pieceSize = 262144; // 256KB
+    private long fileSize = 10_485_760L; // 10MB
+    private final List<Integer> bandwidthMix = new ArrayList<>(List.of(1000));
+    private PiecePicker picker = PiecePicker.SEQUENTIAL;
+    private int maxCycles = 20;
+    private long sleepMillis = 1000;
+    private int metricsPort; // 0: no metrics server
+    private long seed = 42L;
+
+    public static SimulationConfig parse(String spec) {
+        SimulationConfig result = new SimulationConfig();
+        for (String part : spec.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int eq = part.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value in simulation config: " + part);
+            }
+            String key = part.substring(0, eq).trim();
+            String value = part.substring(eq + 1).trim();
+            try {
+                switch (key) {
+                    case "peers" -> result.setPeerCount(Integer.parseInt(value));
+                    case "piece" -> result.setPieceSize(Integer.parseInt(value));
+                    case "file" -> result.setFileSize(Long.parseLong(value));
+                    case "bandwidth" -> {
+                        List<Integer> mix = new ArrayList<>();
+                        for (String mbps : value.split(":")) {
+                            mix.add(Integer.parseInt(mbps));
+                        }
+                        result.setBandwidthMix(mix);
+                    }
+                    case "picker" -> result.setPicker(value);
+                    case "cycles" -> result.setMaxCycles(Integer.parseInt(value));
+                    case "sleep" -> result.setSleepMillis(Long.parseLong(value));
+                    case "metrics" -> result.setMetricsPort(Integer.parseInt(value));
+                    case "seed" -> result.setSeed(Long.parseLong(value));
+                    default -> throw new IllegalArgumentException("Unknown simulation config key: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+            }
+        }
+        return result;
+    }
+
+    public SimulationConfig setPeerCount(int peerCount) {
+        if (peerCount < 1) {
+            throw new IllegalArgumentException("Simulation needs at least one peer");
+        }
+        this.peerCount = peerCount;
+        return this;
+    }
+
+    public SimulationConfig setPieceSize(int pieceSize) {
+        if (pieceSize <= 0) {
+            throw new IllegalArgumentException("Piece size must be positive");
+        }
+        this.pieceSize = pieceSize;
+        return this;
+    }
+
+    public SimulationConfig setFileSize(long fileSize) {
+        if (fileSize <= 0) {
+            throw new IllegalArgumentException("File size must be positive");
+        }
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    public SimulationConfig setBandwidthMix(List<Integer> mbps) {
+        if (mbps.isEmpty()) {
+            throw new IllegalArgumentException("Bandwidth mix needs at least one speed");
+        }
+        for (int speed : mbps) {
+            if (speed <= 0) {
+                throw new IllegalArgumentException("Bandwidth must be positive: " + speed);
+            }
+        }
+        bandwidthMix.clear();
+        bandwidthMix.addAll(mbps);
+        return this;
+    }
+
+    public SimulationConfig setPicker(PiecePicker picker) {
+        if (picker == null) {
+            throw new IllegalArgumentException("Piece picker is required");
+        }
+        this.picker = picker;
+        return this;
+    }
+
+    public SimulationConfig setPicker(String picker) {
+        try {
+            return setPicker(PiecePicker.valueOf(picker.trim().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown piece picker: " + picker, e);
+        }
+    }
+
+    public SimulationConfig setMaxCycles(int maxCycles) {
+        if (maxCycles < 1) {
+            throw new IllegalArgumentException("Simulation needs at least one cycle");
+        }
+        this.maxCycles = maxCycles;
+        return this;
+    }
+
+    public SimulationConfig setSleepMillis(long sleepMillis) {
+        this.sleepMillis = Math.max(0, sleepMillis);
+        return this;
+    }
+
+    public SimulationConfig setMetricsPort(int metricsPort) {
+        if (metricsPort < 0 || metricsPort > 65535) {
+            throw new IllegalArgumentException("Invalid metrics port: " + metricsPort);
+        }
+        this.metricsPort = metricsPort;
+        return this;
+    }
+
+    public SimulationConfig setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public int getPeerCount() { return peerCount; }
+    public int getPieceSize() { return pieceSize; }
+    public long getFileSize() { return fileSize; }
+    public List<Integer> getBandwidthMix() { return Collections.unmodifiableList(bandwidthMix); }
+    public PiecePicker getPicker() { return picker; }
+    public int getMaxCycles() { return maxCycles; }
+    public long getSleepMillis() { return sleepMillis; }
+    public int getMetricsPort() { return metricsPort; }
+    public long getSeed() { return seed; }
+
+    // Speed of the peer at index, cycling through the mix
+    public int getBandwidth(int peerIndex) {
+        return bandwidthMix.get(peerIndex % bandwidthMix.size());
+    }
+
+    public String getBandwidthSpec() {
+        StringBuilder spec = new StringBuilder();
+        for (int mbps : bandwidthMix) {
+            spec.append(spec.length() == 0 ? "" : ":").append(mbps);
+        }
+        return spec.toString();
+    }
+
+    // The config in parse form, so a result row can be rerun on its own
+    @Override
+    public String toString() {
+        return "peers=" + peerCount + ";piece=" + pieceSize + ";file=" + fileSize + ";bandwidth=" + getBandwidthSpec()
+                + ";picker=" + picker.name().toLowerCase(Locale.ROOT) + ";cycles=" + maxCycles
+                + ";sleep=" + sleepMillis + (metricsPort > 0 ? ";metrics=" + metricsPort : "") + ";seed=" + seed;
+    }
+}
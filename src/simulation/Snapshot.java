@@ -0,0 +1,176 @@
+package simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/*
+ * Simulation snapshot file:
+ *
+ *   int    magic 'SNAP'
+ *   byte   version
+ *   int    length of the state once inflated
+ *   int    CRC32 of the inflated state
+ *   byte[] state, deflated
+ *
+ * The state itself is captured by the simulation on its own thread, either already encoded or as
+ * copies that a Source encodes later; encoding, compressing and writing can then happen in the
+ * background while the run continues.
+ */
+public final class Snapshot {
+    public static final String FILE_EXTENSION = ".snapshot";
+
+    private static final int MAGIC = 0x534E4150;
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 1 + 4 + 4;
+    private static final int MAX_DEFLATE_RATIO = 1032; // zlib's best case, so larger claimed lengths are corrupt
+
+    // One writer for all simulations, so snapshots of one run land in the order they were taken
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Captured state that encodes itself on the writer thread
+    public interface Source {
+        void writeTo(DataOutput out) throws IOException;
+    }
+
+    private Snapshot() {
+    }
+
+    private static final class CountingStream extends FilterOutputStream {
+        private long count;
+
+        private CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    public static Future<Path> writeInBackground(Path file, byte[] state) {
+        return writeInBackground(file, out -> out.write(state));
+    }
+
+    public static Future<Path> writeInBackground(Path file, Source source) {
+        return WRITER.submit(() -> {
+            write(file, source);
+            return file;
+        });
+    }
+
+    public static void write(Path file, byte[] state) throws IOException {
+        write(file, out -> out.write(state));
+    }
+
+    // Streams the encoded state through the checksum and deflater into the file, so it is never
+    // held in memory whole; the header goes in last, once length and checksum are known
+    public static void write(Path file, Source source) throws IOException {
+        // Write next to the target and rename over it so a crash never leaves a torn snapshot
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        // DeflaterOutputStream only ends deflaters it created, so release the native zlib state here
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            DeflaterOutputStream deflated = new DeflaterOutputStream(
+                    Channels.newOutputStream(channel), deflater, 1 << 16);
+            CountingStream counted = new CountingStream(new CheckedOutputStream(deflated, crc));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counted, 1 << 16));
+            source.writeTo(out);
+            out.flush();
+            deflated.finish();
+            deflated.flush();
+            long length = counted.count;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot state too large: " + length + " bytes");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).put(VERSION).putInt((int) length).putInt((int) crc.getValue()).flip();
+            for (long position = 0; header.hasRemaining(); ) {
+                position += channel.write(header, position);
+            }
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // The captured state, after checking the header and checksum
+    public static byte[] read(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (data.length < HEADER_BYTES || header.getInt() != MAGIC || header.get() != VERSION) {
+            throw new IOException("Not a simulation snapshot: " + file);
+        }
+        int length = header.getInt();
+        int expectedCrc = header.getInt();
+        if (length < 0 || length > (long) (data.length - HEADER_BYTES) * MAX_DEFLATE_RATIO) {
+            throw new IOException("Snapshot is corrupt: " + file);
+        }
+        byte[] state = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_BYTES, data.length - HEADER_BYTES);
+            int filled = 0;
+            while (filled < length && !inflater.finished()) {
+                int inflated = inflater.inflate(state, filled, length - filled);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                filled += inflated;
+            }
+            if (filled != length) {
+                throw new IOException("Snapshot is truncated: " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Snapshot is corrupt: " + file, e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(state);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+        return state;
+    }
+}
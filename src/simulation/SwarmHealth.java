@@ -0,0 +1,205 @@
+package simulation;
+
+import model.SwarmInfo;
+import model.TorrentFile;
+import torrent.TorrentClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Time series of one swarm's health, sampled every few cycles into a ring of the latest samples.
+ * Each sample holds the tracker's view (seeders, leechers, bytes moved), how many online members
+ * hold each piece (the availability distribution and distributed copies) and how fast peers finish.
+ *
+ * The simulation thread is the only writer. A sample is immutable and is published by storing it
+ * in its slot before bumping a volatile counter, so dashboards on other threads read without a lock
+ * and never stall the run. A reader that falls more than a ring behind loses the overwritten samples.
+ */
+public class SwarmHealth {
+    private final SwarmInfo swarm;
+    private final int intervalCycles;
+    private final AtomicReferenceArray<Sample> ring;
+    private volatile long published; // samples written so far; the next one's sequence
+    private Sample previous;
+
+    public static class Sample {
+        private final long sequence;
+        private final int cycle;
+        private final int seeders;
+        private final int leechers;
+        private final long bytesTransferred;
+        private final int onlinePeers;
+        private final int minAvailability;
+        private final int medianAvailability;
+        private final double meanAvailability;
+        private final int maxAvailability;
+        private final int missingPieces;
+        private final double distributedCopies;
+        private final int completedPeers;
+        private final double completion;
+        private final double completionRate;
+
+        Sample(long sequence, int cycle, SwarmInfo swarm, int onlinePeers, int[] availability,
+               int completedPeers, double completion, double completionRate) {
+            this.sequence = sequence;
+            this.cycle = cycle;
+            SwarmInfo.Counts counts = swarm.getCounts();
+            this.seeders = counts.getSeeders();
+            this.leechers = counts.getLeechers();
+            this.bytesTransferred = swarm.getTotalTransferred();
+            this.onlinePeers = onlinePeers;
+            this.completedPeers = completedPeers;
+            this.completion = completion;
+            this.completionRate = completionRate;
+
+            // Availability never exceeds the online count, so a counting pass gives min, median and max
+            int[] piecesWith = new int[onlinePeers + 1];
+            long total = 0;
+            for (int count : availability) {
+                piecesWith[count]++;
+                total += count;
+            }
+            int min = -1;
+            int max = 0;
+            int median = 0;
+            int seen = 0;
+            for (int count = 0; count < piecesWith.length; count++) {
+                if (piecesWith[count] == 0) {
+                    continue;
+                }
+                if (min < 0) {
+                    min = count;
+                }
+                max = count;
+                if (seen <= availability.length / 2 && seen + piecesWith[count] > availability.length / 2) {
+                    median = count;
+                }
+                seen += piecesWith[count];
+            }
+            this.minAvailability = Math.max(0, min);
+            this.medianAvailability = median;
+            this.maxAvailability = max;
+            this.missingPieces = piecesWith[0];
+            this.meanAvailability = availability.length == 0 ? 0 : (double) total / availability.length;
+            // Full copies the swarm could rebuild, plus the share of pieces held more often than the rarest
+            int aboveMin = availability.length - (min < 0 ? 0 : piecesWith[min]);
+            this.distributedCopies = minAvailability
+                    + (availability.length == 0 ? 0 : (double) aboveMin / availability.length);
+        }
+
+        public long getSequence() { return sequence; }
+        public int getCycle() { return cycle; }
+        public int getSeeders() { return seeders; }
+        public int getLeechers() { return leechers; }
+        public long getBytesTransferred() { return bytesTransferred; }
+        public int getOnlinePeers() { return onlinePeers; }
+        public int getMinAvailability() { return minAvailability; }
+        public int getMedianAvailability() { return medianAvailability; }
+        public double getMeanAvailability() { return meanAvailability; }
+        public int getMaxAvailability() { return maxAvailability; }
+        public int getMissingPieces() { return missingPieces; } // held by no online peer
+        public double getDistributedCopies() { return distributedCopies; }
+        public int getCompletedPeers() { return completedPeers; }
+        public double getCompletion() { return completion; } // share of all members' pieces held
+        public double getCompletionRate() { return completionRate; } // peers finished per cycle since the last sample
+
+        @Override
+        public String toString() {
+            return String.format("cycle %d: %d seeders, %d leechers, availability %d/%d/%.2f/%d, "
+                            + "%.3f copies, %.1f%% complete, %.2f completions/cycle",
+                    cycle, seeders, leechers, minAvailability, medianAvailability, meanAvailability,
+                    maxAvailability, distributedCopies, completion * 100, completionRate);
+        }
+    }
+
+    public SwarmHealth(SwarmInfo swarm, int intervalCycles, int capacity) {
+        if (swarm == null) {
+            throw new IllegalArgumentException("Swarm is required");
+        }
+        if (intervalCycles < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least one cycle");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Health history needs room for at least one sample");
+        }
+        this.swarm = swarm;
+        this.intervalCycles = intervalCycles;
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Takes a sample if an interval has passed since the last one; returns whether it did
+    public boolean sample(int cycle, Iterable<TorrentClient> members) {
+        if (previous != null && cycle - previous.getCycle() < intervalCycles) {
+            return false;
+        }
+        String infoHash = swarm.getInfoHash();
+        int[] availability = null;
+        int online = 0;
+        int completed = 0;
+        long held = 0;
+        long wanted = 0;
+        for (TorrentClient member : members) {
+            TorrentFile file = member.getDownloadingFile(infoHash);
+            if (file == null) {
+                continue;
+            }
+            if (availability == null) {
+                availability = new int[file.getPieceCount()];
+            }
+            int pieces = member.getCompletedPieceCount(infoHash);
+            held += pieces;
+            wanted += file.getPieceCount();
+            if (pieces == file.getPieceCount()) {
+                completed++;
+            }
+            if (!member.isOnline()) {
+                continue;
+            }
+            online++;
+            for (int piece = 0; piece < availability.length; piece++) {
+                if (file.isPieceCompleted(piece)) {
+                    availability[piece]++;
+                }
+            }
+        }
+        double rate = previous == null ? 0
+                : (double) (completed - previous.getCompletedPeers()) / (cycle - previous.getCycle());
+        long sequence = published;
+        Sample sample = new Sample(sequence, cycle, swarm, online, availability == null ? new int[0] : availability,
+                completed, wanted == 0 ? 0 : (double) held / wanted, rate);
+        ring.set((int) (sequence % ring.length()), sample);
+        published = sequence + 1;
+        previous = sample;
+        return true;
+    }
+
+    // Samples with a sequence of at least from, oldest first; pass the last one's sequence + 1 to follow along
+    public List<Sample> since(long from) {
+        long end = published;
+        long start = Math.max(Math.max(0, from), end - ring.length());
+        List<Sample> samples = new ArrayList<>((int) Math.max(0, end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Sample sample = ring.get((int) (sequence % ring.length()));
+            if (sample != null && sample.getSequence() == sequence) { // else the writer lapped it meanwhile
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
+    public List<Sample> getSamples() {
+        return since(0);
+    }
+
+    // Most recent sample, or null before the first
+    public Sample latest() {
+        long end = published;
+        return end == 0 ? null : ring.get((int) ((end - 1) % ring.length()));
+    }
+
+    public long getPublished() { return published; }
+    public int getCapacity() { return ring.length(); }
+    public int getIntervalCycles() { return intervalCycles; }
+}
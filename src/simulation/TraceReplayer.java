@@ -0,0 +1,198 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Reads a trace written by TraceWriter and rebuilds swarm state at any timestamp, without
+// re-running the simulation. Records are mapped read-only; since they are fixed-size and in time
+// order, finding the cut-off for a timestamp is a binary search.
+public final class TraceReplayer {
+    private static final int RECORDS_PER_WINDOW = (1 << 30) / TraceWriter.RECORD_BYTES;
+
+    private final MappedByteBuffer[] windows;
+    private final long recordCount;
+    private final List<String> peerIds;
+
+    // Peer state after replaying every record up to a timestamp
+    public static final class SwarmState {
+        private final long time;
+        private final BitSet[] pieces;
+        private final byte[] lastEvent;
+        private final Set<Long> choked = new HashSet<>(); // peer << 32 | choked peer
+        private int inFlightTransfers;
+        private long completedTransfers;
+        private long failedTransfers;
+
+        SwarmState(long time, int peerCount) {
+            this.time = time;
+            this.pieces = new BitSet[peerCount];
+            this.lastEvent = new byte[peerCount];
+        }
+
+        public long getTime() { return time; }
+        public int getInFlightTransfers() { return inFlightTransfers; }
+        public long getCompletedTransfers() { return completedTransfers; }
+        public long getFailedTransfers() { return failedTransfers; }
+
+        public boolean isPieceCompleted(int peer, int piece) {
+            return pieces[peer] != null && pieces[peer].get(piece);
+        }
+
+        public int getCompletedPieceCount(int peer) {
+            return pieces[peer] == null ? 0 : pieces[peer].cardinality();
+        }
+
+        // Announced and not stopped since
+        public boolean isActive(int peer) {
+            return lastEvent[peer] != TraceWriter.EVENT_NONE && lastEvent[peer] != TraceWriter.EVENT_STOPPED;
+        }
+
+        public boolean isChoked(int peer, int other) {
+            return choked.contains(pair(peer, other));
+        }
+
+        private static long pair(int peer, int other) {
+            return (long) peer << 32 | (other & 0xFFFFFFFFL);
+        }
+
+        private void apply(byte type, byte flag, int peer, int piece, int other) {
+            switch (type) {
+                case TraceWriter.PIECE_COMPLETE -> {
+                    if (pieces[peer] == null) {
+                        pieces[peer] = new BitSet();
+                    }
+                    pieces[peer].set(piece);
+                }
+                case TraceWriter.ANNOUNCE -> {
+                    if (flag != TraceWriter.EVENT_NONE || lastEvent[peer] == TraceWriter.EVENT_NONE) {
+                        lastEvent[peer] = flag == TraceWriter.EVENT_NONE ? TraceWriter.EVENT_STARTED : flag;
+                    }
+                }
+                case TraceWriter.CHOKE -> {
+                    if (flag == 1) {
+                        choked.add(pair(peer, other));
+                    } else {
+                        choked.remove(pair(peer, other));
+                    }
+                }
+                case TraceWriter.TRANSFER_START -> inFlightTransfers++;
+                case TraceWriter.TRANSFER_END -> {
+                    inFlightTransfers--;
+                    if (flag == 1) {
+                        completedTransfers++;
+                    } else {
+                        failedTransfers++;
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown trace record type " + type);
+            }
+        }
+    }
+
+    public TraceReplayer(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(TraceWriter.HEADER_BYTES);
+            if (channel.read(header, 0) < TraceWriter.HEADER_BYTES) {
+                throw new IOException("Trace file too short: " + file);
+            }
+            header.flip();
+            if (header.getInt() != TraceWriter.MAGIC || header.getInt() != TraceWriter.VERSION
+                    || header.getInt() != TraceWriter.RECORD_BYTES) {
+                throw new IOException("Not a trace file, or written by another version: " + file);
+            }
+            int peerCount = header.getInt();
+            this.recordCount = header.getLong();
+            long namesOffset = header.getLong();
+            if (namesOffset != TraceWriter.HEADER_BYTES + recordCount * TraceWriter.RECORD_BYTES
+                    || namesOffset > channel.size()) {
+                throw new IOException("Trace file truncated or never closed: " + file);
+            }
+
+            int windowCount = (int) ((recordCount + RECORDS_PER_WINDOW - 1) / RECORDS_PER_WINDOW);
+            this.windows = new MappedByteBuffer[windowCount];
+            for (int w = 0; w < windowCount; w++) {
+                long first = (long) w * RECORDS_PER_WINDOW;
+                long records = Math.min(RECORDS_PER_WINDOW, recordCount - first);
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        TraceWriter.HEADER_BYTES + first * TraceWriter.RECORD_BYTES, records * TraceWriter.RECORD_BYTES);
+            }
+
+            ByteBuffer names = ByteBuffer.allocate((int) (channel.size() - namesOffset));
+            channel.read(names, namesOffset);
+            names.flip();
+            List<String> ids = new ArrayList<>(peerCount);
+            for (int i = 0; i < peerCount; i++) {
+                byte[] bytes = new byte[names.getInt()];
+                names.get(bytes);
+                ids.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            this.peerIds = Collections.unmodifiableList(ids);
+        }
+    }
+
+    public long getRecordCount() { return recordCount; }
+    public int getPeerCount() { return peerIds.size(); }
+    public List<String> getPeerIds() { return peerIds; }
+
+    public int indexOf(String peerId) {
+        return peerIds.indexOf(peerId);
+    }
+
+    private ByteBuffer windowFor(long record) {
+        return windows[(int) (record / RECORDS_PER_WINDOW)];
+    }
+
+    private static int offset(long record) {
+        return (int) (record % RECORDS_PER_WINDOW) * TraceWriter.RECORD_BYTES;
+    }
+
+    public long getTime(long record) {
+        return windowFor(record).getLong(offset(record));
+    }
+
+    public byte getType(long record) {
+        return windowFor(record).get(offset(record) + 8);
+    }
+
+    // Number of records with a time at or before the given one
+    public long countUpTo(long time) {
+        long low = 0;
+        long high = recordCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getTime(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public SwarmState stateAt(long time) {
+        SwarmState state = new SwarmState(time, peerIds.size());
+        long end = countUpTo(time);
+        for (long record = 0; record < end; record++) {
+            ByteBuffer window = windowFor(record);
+            int at = offset(record);
+            state.apply(window.get(at + 8), window.get(at + 9), window.getInt(at + 12),
+                    window.getInt(at + 16), window.getInt(at + 20));
+        }
+        return state;
+    }
+
+    public SwarmState finalState() {
+        return stateAt(recordCount == 0 ? 0 : getTime(recordCount - 1));
+    }
+}
@@ -0,0 +1,192 @@
+package simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary trace of a simulation run. Events are fixed 24-byte records encoded into a preallocated
+// ring buffer, which is drained in bulk into a memory-mapped file grown a window at a time, so
+// recording an event is a few stores. Peers are referred to by index; their IDs go into a footer
+// on close. Layout: 32-byte header, records in time order, then the peer IDs.
+public final class TraceWriter implements Closeable {
+    static final int MAGIC = 0x54524345; // "TRCE"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    public static final int RECORD_BYTES = 24; // time, type, flag, 2 spare, peer, piece, other
+
+    public static final byte PIECE_COMPLETE = 1; // other = source peer, or -1 when seeded
+    public static final byte ANNOUNCE = 2; // flag = announce event
+    public static final byte CHOKE = 3; // other = choked peer, flag = 1 to choke, 0 to unchoke
+    public static final byte TRANSFER_START = 4; // other = source peer
+    public static final byte TRANSFER_END = 5; // other = source peer, flag = 1 on success
+
+    public static final byte EVENT_NONE = 0;
+    public static final byte EVENT_STARTED = 1;
+    public static final byte EVENT_COMPLETED = 2;
+    public static final byte EVENT_STOPPED = 3;
+
+    private static final int DEFAULT_RING_RECORDS = 4096;
+    private static final long WINDOW_BYTES = 16L << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer ring;
+    private MappedByteBuffer window;
+    private long windowEnd = HEADER_BYTES; // file offset just past the current window
+    private long recordCount;
+    private long lastTime = Long.MIN_VALUE;
+    private final Map<String, Integer> peerIndex = new HashMap<>();
+    private final List<String> peerIds = new ArrayList<>();
+    private boolean closed;
+
+    public TraceWriter(Path file) throws IOException {
+        this(file, DEFAULT_RING_RECORDS);
+    }
+
+    public TraceWriter(Path file, int ringRecords) throws IOException {
+        if (ringRecords < 1) {
+            throw new IllegalArgumentException("Ring buffer must hold at least one record");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.ring = ByteBuffer.allocateDirect(ringRecords * RECORD_BYTES);
+    }
+
+    // Index for a peer ID, assigned in order of first use
+    public int peerIndex(String peerId) {
+        Integer index = peerIndex.get(peerId);
+        if (index == null) {
+            index = peerIds.size();
+            peerIds.add(peerId);
+            peerIndex.put(peerId, index);
+        }
+        return index;
+    }
+
+    public void pieceComplete(long time, int peer, int piece, int source) {
+        record(time, PIECE_COMPLETE, (byte) 0, peer, piece, source);
+    }
+
+    public void announce(long time, int peer, String event) {
+        record(time, ANNOUNCE, eventCode(event), peer, -1, -1);
+    }
+
+    public void choke(long time, int peer, int other, boolean choked) {
+        record(time, CHOKE, (byte) (choked ? 1 : 0), peer, -1, other);
+    }
+
+    public void transferStart(long time, int peer, int piece, int source) {
+        record(time, TRANSFER_START, (byte) 0, peer, piece, source);
+    }
+
+    public void transferEnd(long time, int peer, int piece, int source, boolean success) {
+        record(time, TRANSFER_END, (byte) (success ? 1 : 0), peer, piece, source);
+    }
+
+    static byte eventCode(String event) {
+        if (event == null) {
+            return EVENT_NONE;
+        }
+        return switch (event) {
+            case "started" -> EVENT_STARTED;
+            case "completed" -> EVENT_COMPLETED;
+            case "stopped" -> EVENT_STOPPED;
+            default -> EVENT_NONE;
+        };
+    }
+
+    private void record(long time, byte type, byte flag, int peer, int piece, int other) {
+        if (closed) {
+            throw new IllegalStateException("Trace is closed");
+        }
+        if (time < lastTime) {
+            throw new IllegalArgumentException("Trace time went backwards: " + time + " < " + lastTime);
+        }
+        lastTime = time;
+        if (!ring.hasRemaining()) {
+            drain();
+        }
+        ring.putLong(time).put(type).put(flag).putShort((short) 0).putInt(peer).putInt(piece).putInt(other);
+        recordCount++;
+    }
+
+    // Copies the ring into the mapped file, mapping a fresh window when the current one is full
+    private void drain() {
+        ring.flip();
+        try {
+            while (ring.hasRemaining()) {
+                if (window == null || !window.hasRemaining()) {
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, windowEnd, WINDOW_BYTES);
+                    windowEnd += WINDOW_BYTES;
+                }
+                int chunk = Math.min(ring.remaining(), window.remaining());
+                window.put(window.position(), ring, ring.position(), chunk);
+                window.position(window.position() + chunk);
+                ring.position(ring.position() + chunk);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not extend trace file", e);
+        } finally {
+            ring.clear();
+        }
+    }
+
+    public void flush() {
+        drain();
+        if (window != null) {
+            window.force();
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getPeerCount() {
+        return peerIds.size();
+    }
+
+    // Trims the unused end of the last window and writes the peer IDs and header
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        drain();
+        closed = true;
+        window = null;
+        try (channel) {
+            long namesOffset = HEADER_BYTES + recordCount * RECORD_BYTES;
+            channel.truncate(namesOffset);
+            ByteBuffer names = encodeNames();
+            channel.write(names, namesOffset);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(peerIds.size())
+                    .putLong(recordCount).putLong(namesOffset).flip();
+            channel.write(header, 0);
+        }
+    }
+
+    private ByteBuffer encodeNames() {
+        List<byte[]> encoded = new ArrayList<>(peerIds.size());
+        int size = 0;
+        for (String id : peerIds) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,117 @@
+package test.build;
+
+import util.BencodeReader;
+import util.BencodeWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BencodeTest {
+
+    private static BencodeReader reader(String data) {
+        return new BencodeReader(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void shouldReadScalars() {
+        assertEquals(42L, reader("i42e").readInteger());
+        assertEquals(-7L, reader("i-7e").readInteger());
+        assertEquals(0L, reader("i0e").readInteger());
+        assertEquals("spam", reader("4:spam").readString());
+        assertEquals("", reader("0:").readString());
+    }
+
+    @Test
+    void shouldWalkNestedContainers() {
+        BencodeReader reader = reader("d3:bar4:spam3:fooli1ei2eee");
+        assertEquals(BencodeReader.Token.DICTIONARY, reader.peek());
+        reader.beginDictionary();
+        assertTrue(reader.readKey("bar"));
+        assertEquals("spam", reader.readString());
+        assertFalse(reader.readKey("baz"), "Key should not match but is still consumed");
+        reader.beginList();
+        assertEquals(1L, reader.readInteger());
+        assertEquals(2L, reader.readInteger());
+        assertFalse(reader.hasNext());
+        reader.endContainer();
+        reader.endContainer();
+        assertEquals(BencodeReader.Token.EOF, reader.peek());
+    }
+
+    @Test
+    void shouldMatchKeyAgainstTable() {
+        String[] keys = {"length", "path", "pieces"};
+        BencodeReader reader = reader("4:path6:pieces5:piece6:length");
+        assertEquals(1, reader.readKey(keys));
+        assertEquals(2, reader.readKey(keys));
+        assertEquals(-1, reader.readKey(keys), "Prefix of a key should not match");
+        assertEquals(0, reader.readKey(keys));
+        assertEquals(BencodeReader.Token.EOF, reader.peek());
+    }
+
+    @Test
+    void shouldSkipValues() {
+        BencodeReader reader = reader("ld1:ali1e3:xyzee4:lasti9ee");
+        reader.beginList();
+        reader.skipValue();
+        assertEquals("last", reader.readString());
+        assertEquals(9L, reader.readInteger());
+        reader.endContainer();
+    }
+
+    @Test
+    void shouldSliceWithoutCopying() {
+        BencodeReader reader = reader("5:hello");
+        ByteBuffer bytes = reader.readBytes();
+        assertEquals(5, bytes.remaining());
+        assertEquals('h', bytes.get(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"i-0e", "i03e", "ie", "i12", "5:abc", "x", "l1:a", "i1a2e"})
+    void shouldRejectMalformedInput(String data) {
+        assertThrows(IllegalArgumentException.class, () -> {
+            BencodeReader reader = reader(data);
+            reader.skipValue();
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"-5:abcde", "05:abcde", "00:", "5:abc", "1-:a"})
+    void shouldRejectInvalidStringLengthsAsMalformed(String data) {
+        for (Consumer<BencodeReader> read : List.<Consumer<BencodeReader>>of(
+                BencodeReader::readBytes, BencodeReader::readString, r -> r.readKey("abcde"),
+                BencodeReader::skipValue)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> read.accept(reader(data)));
+            assertTrue(e.getMessage().startsWith("Malformed bencode"), e.getMessage());
+        }
+    }
+
+    @Test
+    void writerShouldRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BencodeWriter(out)
+                .beginDictionary()
+                .writeString("n").writeInteger(Long.MIN_VALUE)
+                .writeString("s").writeString("spam")
+                .writeString("x").beginList().writeInteger(0).writeInteger(-12).endContainer()
+                .endContainer();
+        assertEquals("d1:ni-9223372036854775808e1:s4:spam1:xli0ei-12eee",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writerShouldRejectUnbalancedEnd() {
+        assertThrows(IllegalStateException.class,
+                () -> new BencodeWriter(new ByteArrayOutputStream()).endContainer());
+    }
+}
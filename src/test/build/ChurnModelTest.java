@@ -0,0 +1,154 @@
+package test.build;
+
+import base.Device;
+import simulation.ChurnModel;
+import simulation.ScaleSimulation;
+import simulation.ScaleSpec;
+import model.TorrentFile;
+import torrent.TorrentTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChurnModelTest {
+
+    private static ChurnModel withPeers(ChurnModel model, int count) {
+        for (int i = 0; i < count; i++) {
+            model.add(new Device("PEER" + i, "10.0.0.1", "NYC"));
+        }
+        return model;
+    }
+
+    @Test
+    void peersShouldStartOfflineAndArriveOnTheFirstTickByDefault() {
+        Device peer = new Device("PEER", "10.0.0.1", "NYC");
+        ChurnModel model = new ChurnModel(1);
+        int index = model.add(peer);
+
+        assertFalse(peer.isOnline());
+        assertEquals(1, model.advanceTo(1));
+        assertTrue(peer.isOnline());
+        assertTrue(model.isOnline(index));
+        assertEquals(0, model.advanceTo(100_000), "Without sessions a peer stays forever");
+    }
+
+    @Test
+    void poissonArrivalsShouldFollowTheRate() {
+        ChurnModel model = withPeers(new ChurnModel(7).setPoissonArrivals(10), 1000);
+
+        model.advanceTo(50);
+        assertEquals(500, model.getArrivalCount(), 60);
+        model.advanceTo(200);
+        assertEquals(1000, model.getOnlineCount());
+    }
+
+    @Test
+    void flashCrowdShouldFrontLoadArrivals() {
+        ChurnModel model = withPeers(new ChurnModel(7).setFlashCrowd(100), 10_000);
+
+        model.advanceTo(100);
+        assertEquals(1 - Math.exp(-1), model.getArrivalCount() / 10_000.0, 0.03);
+        model.advanceTo(200);
+        assertEquals(1 - Math.exp(-2), model.getArrivalCount() / 10_000.0, 0.03);
+    }
+
+    @Test
+    void weibullSessionsShouldEndAroundTheMedian() {
+        ChurnModel model = withPeers(new ChurnModel(3).setWeibullSessions(0.5, 100), 10_000);
+        double median = 100 * Math.pow(Math.log(2), 1 / 0.5);
+
+        model.advanceTo(1 + Math.round(median));
+        assertEquals(0.5, model.getDepartureCount() / 10_000.0, 0.03);
+        assertEquals(10_000 - model.getDepartureCount(), model.getOnlineCount());
+    }
+
+    @Test
+    void departedPeersShouldLeaveForGoodWithoutDowntime() {
+        ChurnModel model = withPeers(new ChurnModel(3).setExponentialSessions(10), 100);
+
+        model.advanceTo(1000);
+        assertEquals(0, model.getOnlineCount());
+        assertEquals(100, model.getArrivalCount());
+        assertTrue(model.hasLeft(0));
+    }
+
+    @Test
+    void sessionsLongerThanTheWheelShouldFireOnTime() {
+        Device peer = new Device("PEER", "10.0.0.1", "NYC");
+        ChurnModel model = new ChurnModel(5).setWeibullSessions(1000, 10_000); // almost exactly 10000 s
+        model.add(peer);
+
+        model.advanceTo(9_900);
+        assertTrue(peer.isOnline());
+        model.advanceTo(10_200);
+        assertFalse(peer.isOnline());
+        assertEquals(1, model.getDepartureCount());
+    }
+
+    @Test
+    void peersShouldCycleTowardsTheSessionShareOfTime() {
+        ChurnModel model = withPeers(new ChurnModel(11).setExponentialSessions(600).setMeanDowntime(200), 20_000);
+
+        model.advanceTo(3600);
+        assertEquals(0.75, model.getOnlineCount() / 20_000.0, 0.02);
+        assertTrue(model.getDepartureCount() > 20_000, "Peers should complete several sessions an hour");
+    }
+
+    @Test
+    void sameSeedShouldGiveTheSameSchedule() {
+        ChurnModel a = withPeers(new ChurnModel(9).setPoissonArrivals(5).setSessions("weibull:0.6:300"), 500);
+        ChurnModel b = withPeers(new ChurnModel(9).setPoissonArrivals(5).setSessions("weibull:0.6:300"), 500);
+
+        for (int tick = 1; tick <= 500; tick++) {
+            assertEquals(a.advanceTo(tick), b.advanceTo(tick));
+        }
+    }
+
+    @Test
+    void arrivalsAndDeparturesShouldBeAnnounced() {
+        TorrentTracker tracker = new TorrentTracker("TRK001", "10.0.0.1", "NYC", 1000, 100.0, 100.0, Long.MAX_VALUE);
+        tracker.trackFile(new TorrentFile("HASH001", "file", 1024, 256));
+        Device peer = new Device("PEER", "10.0.0.2", "NYC");
+        ChurnModel model = new ChurnModel(1).announceTo(tracker, "HASH001");
+        model.add(peer);
+
+        assertFalse(tracker.getPeers("HASH001").contains("PEER"));
+        model.advanceTo(1);
+        assertTrue(tracker.getPeers("HASH001").contains("PEER"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"poisson", "poisson:0", "flash:x", "burst:1", "poisson:1:2"})
+    void shouldRejectInvalidArrivals(String spec) {
+        assertThrows(IllegalArgumentException.class, () -> new ChurnModel(1).setArrivals(spec));
+        assertThrows(IllegalArgumentException.class, () -> ChurnModel.validateArrivals(spec));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"exp", "exp:-1", "weibull:1", "weibull:0:10", "lognormal:1:1"})
+    void shouldRejectInvalidSessions(String spec) {
+        assertThrows(IllegalArgumentException.class, () -> new ChurnModel(1).setSessions(spec));
+        assertThrows(IllegalArgumentException.class, () -> ChurnModel.validateSessions(spec));
+    }
+
+    @Test
+    void shouldValidateWithoutAModel() {
+        assertDoesNotThrow(() -> ChurnModel.validateArrivals("flash:20"));
+        assertDoesNotThrow(() -> ChurnModel.validateSessions("weibull:0.6:60"));
+        assertEquals(0.0, ChurnModel.checkDowntime(0));
+        assertThrows(IllegalArgumentException.class, () -> ChurnModel.checkDowntime(-1));
+    }
+
+    @Test
+    void scaleRunShouldCompleteUnderChurn() {
+        ScaleSpec spec = ScaleSpec.parse("clients=a:200:100;arrivals=flash:20;sessions=exp:30;downtime=10;"
+                + "file=1048576;cycles=2000");
+        ScaleSimulation simulation = new ScaleSimulation(spec);
+        ScaleSimulation.Report report = simulation.run();
+
+        assertEquals(200, report.getCompletedClients());
+        assertTrue(simulation.getChurnModel().getDepartureCount() > 0);
+    }
+}
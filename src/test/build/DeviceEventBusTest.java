@@ -0,0 +1,74 @@
+package test.build;
+
+import base.Device;
+import base.DeviceEvent;
+import base.DeviceEventBus;
+import base.Router;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceEventBusTest {
+    private DeviceEventBus bus;
+    private List<String> delivered;
+    private Device device;
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        bus = new DeviceEventBus();
+        delivered = new ArrayList<>();
+        bus.subscribe((tick, events) -> events.forEach(event -> delivered.add(tick + ":" + event)));
+        device = new Device("DEV001", "10.0.0.2", "NYC");
+        router = new Router("RTR001", "10.0.0.1", "NYC", 100);
+        bus.watch(device);
+        bus.watch(router);
+    }
+
+    @Test
+    void shouldDeliverChangesOnlyOnFlush() {
+        device.setOnline(false);
+        router.setBandwidth(50);
+        assertTrue(delivered.isEmpty(), "Nothing is delivered before the tick ends");
+        assertEquals(2, bus.getPendingDeviceCount());
+
+        assertEquals(2, bus.flush());
+        assertEquals(List.of("0:DEV001 OFFLINE", "0:RTR001 BANDWIDTH_CHANGED 100 -> 50"), delivered);
+        assertEquals(1, bus.getTick());
+        assertEquals(0, bus.flush(), "An idle tick delivers nothing");
+    }
+
+    @Test
+    void shouldCoalesceChangesWithinATick() {
+        device.setOnline(false);
+        device.setOnline(true);
+        router.setBandwidth(50);
+        router.setBandwidth(75);
+        router.setOnline(false);
+        bus.flush();
+
+        assertEquals(List.of("0:RTR001 OFFLINE", "0:RTR001 BANDWIDTH_CHANGED 100 -> 75"), delivered);
+
+        router.setBandwidth(20);
+        router.setBandwidth(75);
+        device.setOnline(true); // no change at all
+        assertEquals(0, bus.flush());
+        assertEquals(2, bus.getDeliveredEvents());
+    }
+
+    @Test
+    void unwatchedDevicesShouldBeSilent() {
+        bus.unwatch(device);
+        device.setOnline(false);
+        assertEquals(0, bus.flush());
+
+        List<DeviceEvent> direct = new ArrayList<>();
+        device.addListener(direct::add);
+        device.setOnline(true);
+        assertEquals(DeviceEvent.Type.ONLINE, direct.get(0).getType(), "Listeners hear about changes immediately");
+    }
+}
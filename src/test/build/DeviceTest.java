@@ -5,6 +5,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DeviceTest {
@@ -57,6 +61,8 @@ class DeviceTest {
         assertNotEquals(device, differentDevice, "Devices with different IDs should not be equal");
         assertNotEquals(device, null, "Device should not be equal to null");
         assertNotEquals(device, "DEV001", "Device should not be equal to a string");
+        assertEquals(device.hashCode(), sameDevice.hashCode(), "Equal devices should hash alike");
+        assertTrue(new HashSet<>(List.of(device)).contains(sameDevice));
     }
 
     @Test
@@ -0,0 +1,137 @@
+package test.build;
+
+import model.TorrentFile;
+import torrent.FastResume;
+import torrent.PieceStorage;
+import torrent.TorrentClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastResumeTest {
+    private TorrentFile torrentFile;
+    private static final int PIECE_SIZE = 262144; // 256KB
+
+    @TempDir
+    Path resumeDir;
+
+    @BeforeEach
+    void setUp() {
+        torrentFile = new TorrentFile("hash123", "test.mp4", 10485760L, PIECE_SIZE); // 40 pieces
+    }
+
+    @Test
+    void shouldRoundTripProgress() throws IOException {
+        torrentFile.markPieceCompleted(0);
+        torrentFile.markPieceCompleted(9);
+        torrentFile.markPieceCompleted(39);
+        Path file = FastResume.resumeFile(resumeDir, "hash123");
+        FastResume.save(file, torrentFile);
+
+        TorrentFile restored = new TorrentFile("hash123", "test.mp4", 10485760L, PIECE_SIZE);
+        assertTrue(FastResume.load(file, restored));
+        assertEquals(3, restored.getCompletedPieceCount());
+        assertTrue(restored.isPieceCompleted(0));
+        assertTrue(restored.isPieceCompleted(9));
+        assertTrue(restored.isPieceCompleted(39));
+        assertTrue(restored.getPieces().get(9).isDownloaded());
+        assertFalse(restored.isPieceCompleted(1));
+        assertArrayEquals(torrentFile.getFileModifiedTimes(), restored.getFileModifiedTimes());
+    }
+
+    @Test
+    void shouldRejectMismatchedTorrent() throws IOException {
+        torrentFile.markPieceCompleted(0);
+        Path file = FastResume.resumeFile(resumeDir, "hash123");
+        FastResume.save(file, torrentFile);
+
+        TorrentFile otherHash = new TorrentFile("hash456", "test.mp4", 10485760L, PIECE_SIZE);
+        TorrentFile otherSize = new TorrentFile("hash123", "test.mp4", 1048576L, PIECE_SIZE);
+        assertFalse(FastResume.load(file, otherHash));
+        assertFalse(FastResume.load(file, otherSize));
+        assertEquals(0, otherHash.getCompletedPieceCount());
+    }
+
+    @Test
+    void shouldRejectStaleModificationTimes() throws IOException {
+        torrentFile.markPieceCompleted(0);
+        Path file = FastResume.resumeFile(resumeDir, "hash123");
+        FastResume.save(file, torrentFile);
+
+        TorrentFile restored = new TorrentFile("hash123", "test.mp4", 10485760L, PIECE_SIZE);
+        long[] changed = { torrentFile.getFileModifiedTimes()[0] + 1 };
+        assertFalse(FastResume.load(file, restored, changed));
+        assertTrue(FastResume.load(file, restored, torrentFile.getFileModifiedTimes()));
+    }
+
+    @Test
+    void shouldRejectCorruptOrMissingFile() throws IOException {
+        Path file = FastResume.resumeFile(resumeDir, "hash123");
+        assertFalse(FastResume.load(file, torrentFile), "Missing file should not restore");
+
+        torrentFile.markPieceCompleted(5);
+        FastResume.save(file, torrentFile);
+        byte[] data = Files.readAllBytes(file);
+        data[data.length - 6] ^= 0x01;
+        Files.write(file, data);
+
+        TorrentFile restored = new TorrentFile("hash123", "test.mp4", 10485760L, PIECE_SIZE);
+        assertFalse(FastResume.load(file, restored), "Checksum mismatch should not restore");
+        assertEquals(0, restored.getCompletedPieceCount());
+    }
+
+    @Test
+    void clientShouldResumeFromCheckpoint() throws IOException {
+        TorrentClient client = new TorrentClient("CLIENT1", "192.168.1.10", "NYC",
+                1000, 50.0, 100.0, 100000000L);
+        client.initializeDownload(torrentFile);
+        client.getDownloadingFile("hash123").markPieceCompleted(3);
+        client.shutdown(resumeDir);
+        assertFalse(client.isOnline());
+        assertFalse(Files.exists(resumeDir.resolve("hash123.resume.tmp")));
+
+        TorrentClient restarted = new TorrentClient("CLIENT1", "192.168.1.10", "NYC",
+                1000, 50.0, 100.0, 100000000L);
+        assertTrue(restarted.resumeDownload(torrentFile, resumeDir));
+        assertEquals(1, restarted.getCompletedPieceCount("hash123"));
+        assertEquals(0, restarted.getNextNeededPiece("hash123"));
+    }
+
+    @Test
+    void clientShouldNotResumeOverEditedDataFiles(@TempDir Path downloadDir) throws IOException {
+        TorrentClient client = new TorrentClient("CLIENT1", "192.168.1.10", "NYC",
+                1000, 50.0, 100.0, 100000000L);
+        client.setDownloadDirectory(downloadDir);
+        client.initializeDownload(torrentFile);
+        TorrentFile local = client.getDownloadingFile("hash123");
+        try (PieceStorage storage = new PieceStorage(downloadDir, local)) {
+            storage.writePiece(3, ByteBuffer.allocate(PIECE_SIZE));
+        }
+        local.markPieceCompleted(3);
+        Path data = downloadDir.resolve("test.mp4");
+        Files.setLastModifiedTime(data, FileTime.fromMillis(1_000_000L));
+        client.checkpoint(resumeDir);
+
+        TorrentClient restarted = new TorrentClient("CLIENT1", "192.168.1.10", "NYC",
+                1000, 50.0, 100.0, 100000000L);
+        restarted.setDownloadDirectory(downloadDir);
+        assertTrue(restarted.resumeDownload(torrentFile, resumeDir));
+        assertArrayEquals(new long[] {1_000_000L}, restarted.getDownloadingFile("hash123").getFileModifiedTimes(),
+                "The record holds the data file's own modification time");
+
+        Files.setLastModifiedTime(data, FileTime.fromMillis(2_000_000L)); // edited after the checkpoint
+        TorrentClient stale = new TorrentClient("CLIENT1", "192.168.1.10", "NYC",
+                1000, 50.0, 100.0, 100000000L);
+        stale.setDownloadDirectory(downloadDir);
+        assertFalse(stale.resumeDownload(torrentFile, resumeDir));
+        assertEquals(0, stale.getCompletedPieceCount("hash123"));
+    }
+}
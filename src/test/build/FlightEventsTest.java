@@ -0,0 +1,116 @@
+package test.build;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import model.MerkleTree;
+import model.TorrentFile;
+import base.Device;
+import torrent.TorrentClient;
+import torrent.TorrentTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightEventsTest {
+    private static final int PIECE_SIZE = 262144;
+
+    @TempDir
+    Path dir;
+
+    private static void transferTwoPieces() {
+        TorrentFile file = new TorrentFile("hash123", "test.mp4", 4L * PIECE_SIZE, PIECE_SIZE);
+        TorrentClient seeder = new TorrentClient("SEED1", "10.0.0.2", "LAX", 1000, 100.0, 100.0, 10_000_000L);
+        TorrentClient client = new TorrentClient("PEER1", "10.0.0.3", "NYC", 1000, 100.0, 100.0, 10_000_000L);
+        seeder.initializeDownload(file);
+        client.initializeDownload(file);
+        seeder.getDownloadingFile("hash123").markPieceCompleted(0);
+        assertTrue(client.requestPiece("hash123", 0, seeder));
+        assertFalse(client.requestPiece("hash123", 1, seeder), "The seeder lacks piece 1");
+
+        TorrentTracker tracker = new TorrentTracker("TRK1", "10.0.0.1", "NYC", 1000, 100.0, 100.0, 1_000_000L);
+        tracker.trackFile(file);
+        tracker.announcePeer("hash123", new Device("PEER1", "10.0.0.3", "NYC"), "started");
+        tracker.announce("hash123", "PEER2", "stopped");
+    }
+
+    private List<RecordedEvent> record(Duration threshold, Runnable activity) throws IOException {
+        Path file = dir.resolve("run.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("torrent.PieceRequest", "torrent.PieceComplete", "torrent.Announce",
+                    "torrent.BlockVerification")) {
+                recording.enable(name).withThreshold(threshold);
+            }
+            recording.start();
+            activity.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+
+    @Test
+    void shouldRecordTransfersAndAnnounces() throws IOException {
+        List<RecordedEvent> events = record(Duration.ZERO, FlightEventsTest::transferTwoPieces);
+
+        List<RecordedEvent> requests = named(events, "torrent.PieceRequest");
+        assertEquals(2, requests.size());
+        RecordedEvent stored = requests.stream().filter(e -> e.getBoolean("success")).findFirst().orElseThrow();
+        assertEquals("hash123", stored.getString("infoHash"));
+        assertEquals(0, stored.getInt("pieceIndex"));
+        assertEquals("PEER1", stored.getString("client"));
+        assertEquals("SEED1", stored.getString("peer"));
+        assertEquals(PIECE_SIZE, stored.getLong("bytes"));
+
+        List<RecordedEvent> completed = named(events, "torrent.PieceComplete");
+        assertEquals(1, completed.size());
+        assertTrue(completed.get(0).getDouble("simulatedMillis") > 0);
+
+        List<RecordedEvent> announces = named(events, "torrent.Announce");
+        assertEquals(2, announces.size(), "Both announce forms are recorded");
+        assertEquals("started", announces.get(0).getString("event"));
+        assertEquals("TRK1", announces.get(0).getString("tracker"));
+        assertEquals("PEER2", announces.get(1).getString("peer"));
+        assertNull(announces.get(1).getString("location"), "An ID-only announce has no location");
+        assertNull(announces.get(0).getStackTrace(), "Stack traces are off by default");
+    }
+
+    @Test
+    void shouldRecordBlockVerification() throws IOException {
+        byte[] leaves = new byte[2 * MerkleTree.HASH_LENGTH]; // one 32KB piece of two blocks
+        leaves[MerkleTree.HASH_LENGTH] = 1;
+        MerkleTree tree = new MerkleTree(leaves);
+        byte[] firstLeaf = Arrays.copyOf(leaves, MerkleTree.HASH_LENGTH);
+        TorrentFile file = new TorrentFile("hash456", "small.data", 32768, 32768);
+        file.setPieceLayer(tree.getRoot());
+
+        List<RecordedEvent> events = record(Duration.ZERO, () -> {
+            assertTrue(file.verifyBlock(0, 0, firstLeaf, tree.getProof(0, 1)));
+            assertFalse(file.verifyBlock(0, 1, firstLeaf, tree.getProof(1, 1)));
+        });
+
+        List<RecordedEvent> verifications = named(events, "torrent.BlockVerification");
+        assertEquals(2, verifications.size());
+        assertEquals(1, verifications.stream().filter(e -> e.getBoolean("verified")).count());
+    }
+
+    @Test
+    void thresholdShouldDropShortEvents() throws IOException {
+        List<RecordedEvent> events = record(Duration.ofSeconds(10), FlightEventsTest::transferTwoPieces);
+
+        assertTrue(named(events, "torrent.PieceRequest").isEmpty());
+        assertTrue(named(events, "torrent.Announce").isEmpty());
+    }
+}
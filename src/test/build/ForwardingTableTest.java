@@ -0,0 +1,66 @@
+package test.build;
+
+import base.ForwardingTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForwardingTableTest {
+
+    @Test
+    void shouldLearnAndUpdatePorts() {
+        ForwardingTable table = new ForwardingTable(100);
+        table.learn(0xAAL, 1, 0);
+        table.learn(0xBBL, 2, 0);
+        table.learn(0xAAL, 3, 50);
+
+        assertEquals(3, table.lookup(0xAAL, 60));
+        assertEquals(2, table.lookup(0xBBL, 100));
+        assertEquals(ForwardingTable.NOT_FOUND, table.lookup(0xBBL, 101));
+        assertEquals(ForwardingTable.NOT_FOUND, table.lookup(0xCCL, 0));
+        assertEquals(2, table.size());
+        assertThrows(IllegalArgumentException.class, () -> table.learn(0, 1, 0));
+    }
+
+    @Test
+    void expireAndRemovePortShouldDropEntries() {
+        ForwardingTable table = new ForwardingTable(1000);
+        for (long mac = 1; mac <= 100; mac++) {
+            table.learn(mac, (int) (mac % 4), mac < 50 ? 0 : 500);
+        }
+        assertEquals(49, table.expire(1050));
+        assertEquals(51, table.size());
+        int onPortOne = table.removePort(1);
+        assertTrue(onPortOne > 0);
+        assertEquals(51 - onPortOne, table.size());
+        for (long mac = 50; mac <= 100; mac++) {
+            int expected = mac % 4 == 1 ? ForwardingTable.NOT_FOUND : (int) (mac % 4);
+            assertEquals(expected, table.lookup(mac, 1050), "MAC " + mac);
+        }
+    }
+
+    @Test
+    void shouldMatchHashMapUnderRandomChurn() {
+        ForwardingTable table = new ForwardingTable(Long.MAX_VALUE / 2);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int n = 0; n < 200_000; n++) {
+            long mac = 1 + random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(mac) != null, table.remove(mac));
+            } else {
+                int port = 1 + random.nextInt(48);
+                table.learn(mac, port, n);
+                expected.put(mac, port);
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        for (long mac = 1; mac <= 5000; mac++) {
+            assertEquals(expected.getOrDefault(mac, ForwardingTable.NOT_FOUND), table.lookup(mac, 200_000));
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package test.build;
 
 import base.Device;
+import base.DeviceEvent;
 import base.Hub;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -176,4 +178,73 @@ class HubTest {
         assertTrue(hub.removeDevice(device1));
         assertEquals(1, hub.getConnectedDeviceCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldTrackOnlineDevicesIncrementally() {
+        hub.addDevice(device1);
+        hub.addDevice(device2);
+        device3.setOnline(false);
+        hub.addDevice(device3);
+        assertEquals(2, hub.getOnlineDeviceCount());
+
+        device3.setOnline(true);
+        device1.setOnline(false);
+        device1.setOnline(false); // No change, no double count
+        assertEquals(2, hub.getOnlineDeviceCount());
+
+        hub.removeDevice(device3);
+        device3.setOnline(false); // Detached devices no longer report to the hub
+        assertEquals(1, hub.getOnlineDeviceCount());
+        assertFalse(hub.addDevice(new Device("DEV002", "192.168.1.9", "NYC")), "Membership is by device ID");
+    }
+
+    @Test
+    void shouldAnnounceOnlyRealChangesInPerDeviceShare() {
+        List<DeviceEvent> events = new ArrayList<>();
+        hub.addListener(events::add);
+        hub.addDevice(device1);
+        hub.addDevice(device2);
+        events.clear();
+
+        device2.setOnline(false);
+        assertEquals(1, events.size());
+        assertEquals(DeviceEvent.Type.BANDWIDTH_CHANGED, events.get(0).getType());
+        device1.setOnline(false); // A lone device and an idle hub both get the full medium
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void removingAnEqualInstanceShouldDetachTheConnectedDevice() {
+        hub.addDevice(device1);
+        hub.addDevice(device2);
+        Device copy = new Device("DEV001", "192.168.1.9", "NYC");
+        copy.setOnline(false);
+
+        assertTrue(hub.removeDevice(copy));
+        assertEquals(1, hub.getOnlineDeviceCount(), "The connected device was online, not the copy");
+        device1.setOnline(false);
+        device1.setOnline(true);
+        assertEquals(1, hub.getOnlineDeviceCount(), "The removed device no longer reports to the hub");
+    }
+
+    @Test
+    void contentionShouldDegradeWithStationsAndSmallFrames() {
+        assertEquals(1.0, hub.getChannelEfficiency(), "An idle or single-station segment never collides");
+        hub.addDevice(device1);
+        hub.addDevice(device2);
+        hub.addDevice(device3);
+        double threeStations = hub.getChannelEfficiency();
+        for (int i = 4; i <= PORT_COUNT; i++) {
+            hub.addDevice(new Device("DEV" + String.format("%03d", i), "192.168.1." + (i + 10), "NYC"));
+        }
+        double eightStations = hub.getChannelEfficiency();
+        assertTrue(threeStations < 1.0 && eightStations < threeStations);
+        assertTrue(eightStations > 0.9, "Full-size frames keep efficiency high: " + eightStations);
+
+        hub.setFrameSize(64);
+        assertTrue(hub.getChannelEfficiency() < 0.45, "Minimum frames waste a slot per frame");
+        assertEquals(hub.getContendedThroughput() / PORT_COUNT, hub.getContendedThroughputPerDevice(), 1e-9);
+        assertTrue(hub.getContendedThroughput() < BANDWIDTH);
+        assertThrows(IllegalArgumentException.class, () -> hub.setFrameSize(10));
+    }
+}
@@ -0,0 +1,105 @@
+package test.build;
+
+import util.IPAddress;
+import util.IPUtils;
+import util.IPv4Address;
+import util.IPv6Address;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IPUtilsTest {
+
+    @Test
+    void shouldPackDottedQuads() {
+        assertEquals(0xC0A80101L, IPUtils.parseIPv4("192.168.1.1"));
+        assertEquals(0L, IPUtils.parseIPv4("0.0.0.0"));
+        assertEquals(0xFFFFFFFFL, IPUtils.parseIPv4("255.255.255.255"));
+        assertEquals(0x0A000001L, IPUtils.parseIPv4("10.0.0.1"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "1.2.3", "1.2.3.4.5", "256.1.1.1", "01.1.1.1", "1.1.1.00", "1..1.1",
+            ".1.1.1", "1.1.1.", " 1.1.1.1", "1.1.1.1 ", "-1.1.1.1", "a.b.c.d", "1.1.1.1111"})
+    void shouldRejectInvalidAddresses(String ip) {
+        assertEquals(-1L, IPUtils.parseIPv4(ip));
+        assertFalse(IPUtils.isValidIPv4(ip));
+        assertThrows(IllegalArgumentException.class, () -> IPUtils.validateIP(ip));
+        assertThrows(IllegalArgumentException.class, () -> IPv4Address.parse(ip));
+    }
+
+    @Test
+    void shouldRejectNull() {
+        assertFalse(IPUtils.isValidIPv4(null));
+        assertThrows(IllegalArgumentException.class, () -> IPUtils.validateIP(null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0.0.0.0", "9.99.100.255", "172.16.0.1", "255.255.255.255"})
+    void formattingShouldRoundTrip(String ip) {
+        assertEquals(ip, IPv4Address.parse(ip).toString());
+        assertEquals(ip, IPUtils.validateIP(ip));
+    }
+
+    @Test
+    void addressesShouldCompareByValue() {
+        IPv4Address a = IPv4Address.parse("10.0.0.1");
+        IPv4Address b = IPv4Address.of(0x0A000001);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertTrue(IPv4Address.parse("200.0.0.1").compareTo(a) > 0, "Comparison should be unsigned");
+    }
+
+    @Test
+    void shouldPackIPv6IntoTwoLongs() {
+        long[] packed = new long[2];
+        assertTrue(IPUtils.parseIPv6("2001:db8:85a3:0:0:8a2e:370:7334", packed));
+        assertEquals(0x20010DB885A30000L, packed[0]);
+        assertEquals(0x00008A2E03707334L, packed[1]);
+
+        assertTrue(IPUtils.parseIPv6("2001:DB8::1", packed));
+        assertEquals(0x20010DB800000000L, packed[0]);
+        assertEquals(1L, packed[1]);
+
+        assertTrue(IPUtils.parseIPv6("::", packed));
+        assertArrayEquals(new long[] {0, 0}, packed);
+
+        assertTrue(IPUtils.parseIPv6("fe80::", packed));
+        assertArrayEquals(new long[] {0xFE80000000000000L, 0}, packed);
+
+        assertTrue(IPUtils.parseIPv6("::ffff:192.168.1.1", packed));
+        assertArrayEquals(new long[] {0, 0x0000FFFFC0A80101L}, packed);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ":", ":::", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1::2::3", "12345::",
+            ":1:2:3:4:5:6:7", "1:2:3:4:5:6:7:", "1:2:3:4:5:6:7:8::", "::1:2:3:4:5:6:7:8", "g::1",
+            "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3", "::1.2.3.4:5", " ::1", "::1 "})
+    void shouldRejectInvalidIPv6(String ip) {
+        assertFalse(IPUtils.isValidIPv6(ip));
+        assertThrows(IllegalArgumentException.class, () -> IPv6Address.parse(ip));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"::", "::1", "2001:db8::1", "fe80::1:0:0:1", "1:0:0:2::3", "2001:db8:0:1:1:1:1:1",
+            "::ffff:10.0.0.1", "1:2:3:4:5:6:7:8"})
+    void ipv6FormattingShouldRoundTrip(String ip) {
+        assertEquals(ip, IPv6Address.parse(ip).toString());
+        assertEquals(ip, IPAddress.parse(ip).toString());
+    }
+
+    @Test
+    void shouldPickAddressFamilyFromText() {
+        assertFalse(IPAddress.parse("10.0.0.1").isIPv6());
+        assertTrue(IPAddress.parse("2001:db8::1").isIPv6());
+        assertEquals(IPv6Address.of(0x20010DB800000000L, 1), IPAddress.parse("2001:0db8:0000::0001"));
+
+        byte[] bytes = new byte[16];
+        IPv6Address.parse("2001:db8::ff").writeTo(bytes, 0);
+        assertEquals(0x20, bytes[0]);
+        assertEquals(0x0D, bytes[2]);
+        assertEquals((byte) 0xFF, bytes[15]);
+    }
+}
@@ -0,0 +1,59 @@
+package test.build;
+
+import base.Device;
+import base.LatencyModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyModelTest {
+    private LatencyModel model;
+
+    @BeforeEach
+    void setUp() {
+        model = LatencyModel.withDefaultLocations();
+    }
+
+    @Test
+    void shouldEstimateRttFromDistance() {
+        double coastToCoast = model.getRtt("NYC", "LAX");
+        double transatlantic = model.getRtt("NYC", "LON");
+        double local = model.getRtt("NYC", "NYC");
+
+        assertEquals(LatencyModel.LOCAL_RTT_MS, local, 1e-9);
+        assertTrue(coastToCoast > 50 && coastToCoast < 80, "NYC-LAX is about 3900 km: " + coastToCoast);
+        assertTrue(model.getRtt("NYC", "SYD") > transatlantic);
+        assertEquals(coastToCoast, model.getRtt("LAX", "NYC"), 1e-9, "RTT should be symmetric");
+    }
+
+    @Test
+    void measuredRttShouldOverrideEstimate() {
+        model.setRtt("NYC", "FRA", 75.0);
+        assertEquals(75.0, model.getRtt("FRA", "NYC"), 1e-9);
+        assertEquals(75.0, model.getRtt(model.indexOf("NYC"), model.indexOf("FRA")), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> model.setRtt("NYC", "MARS", 1.0));
+    }
+
+    @Test
+    void unknownLocationsShouldUseDefaults() {
+        assertEquals(-1, model.indexOf("MARS"));
+        assertEquals(LatencyModel.DEFAULT_RTT_MS, model.getRtt("NYC", "MARS"), 1e-9);
+        assertEquals(LatencyModel.LOCAL_RTT_MS, model.getRtt("MARS", "MARS"), 1e-9);
+        assertEquals(LatencyModel.DEFAULT_RTT_MS, model.getRtt(null, "NYC"), 1e-9);
+
+        model.addLocation("MARS", 0, 0);
+        assertNotEquals(LatencyModel.DEFAULT_RTT_MS, model.getRtt("NYC", "MARS"));
+        assertThrows(IllegalArgumentException.class, () -> model.addLocation("BAD", 91, 0));
+    }
+
+    @Test
+    void transferTimeShouldIncludeRttAndStreaming() {
+        // 1 MB at 8 Mbps streams in one second
+        double millis = model.getTransferMillis("NYC", "NYC", 1_000_000, 8.0);
+        assertEquals(LatencyModel.LOCAL_RTT_MS + 1000.0, millis, 1e-6);
+        assertEquals(model.getRtt("NYC", "LAX"), model.getRtt(new Device("A", "10.0.0.1", "NYC"),
+                new Device("B", "10.0.0.2", "LAX")), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, model.getTransferMillis("NYC", "LAX", 1, 0));
+    }
+}
@@ -0,0 +1,105 @@
+package test.build;
+
+import util.Log;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTest {
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    void shouldFormatArgumentsOnTheWriterThread() {
+        StringWriter out = new StringWriter();
+        try (Log log = new Log(out, Log.Level.DEBUG, 16)) {
+            log.log(Log.Level.DEBUG, "Peer {} downloaded piece {} from {}", "PEER1", 42, "SEED1");
+            log.log(Log.Level.INFO, "{}/{} done", 3, 40);
+            log.log(Log.Level.WARN, "Insufficient storage for: {}", "big.iso");
+            log.log(Log.Level.INFO, "no placeholders", "ignored");
+            log.log(Log.Level.ERROR, "{} and {} but not {}", "a", "b");
+        }
+        assertEquals("Peer PEER1 downloaded piece 42 from SEED1" + NL
+                + "3/40 done" + NL
+                + "WARN Insufficient storage for: big.iso" + NL
+                + "no placeholders" + NL
+                + "ERROR a and b but not null" + NL, out.toString());
+    }
+
+    @Test
+    void shouldDropLinesBelowTheLevel() {
+        StringWriter out = new StringWriter();
+        try (Log log = new Log(out, Log.Level.WARN, 16)) {
+            assertFalse(log.isEnabled(Log.Level.INFO));
+            log.log(Log.Level.INFO, "hidden");
+            log.log(Log.Level.ERROR, "shown");
+            log.setLevel(Log.Level.OFF);
+            assertFalse(log.isEnabled(Log.Level.ERROR));
+            log.log(Log.Level.ERROR, "also hidden");
+        }
+        assertEquals("ERROR shown" + NL, out.toString());
+    }
+
+    @Test
+    void concurrentWritersShouldLoseNothingWhenTheRingWraps() throws InterruptedException {
+        StringWriter out = new StringWriter();
+        int threads = 4;
+        int perThread = 5000;
+        try (Log log = new Log(out, Log.Level.INFO, 64)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String name = "T" + t;
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        log.log(Log.Level.INFO, "{} {}", name, i);
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            log.flush();
+            assertEquals(threads * perThread, out.toString().split(NL).length);
+        }
+        for (int t = 0; t < threads; t++) {
+            int last = -1;
+            for (String line : out.toString().split(NL)) {
+                if (line.startsWith("T" + t + " ")) {
+                    int i = Integer.parseInt(line.substring(line.indexOf(' ') + 1));
+                    assertEquals(last + 1, i, "Lines from one thread stay in order");
+                    last = i;
+                }
+            }
+            assertEquals(perThread - 1, last);
+        }
+    }
+
+    @Test
+    void callersShouldNotWaitOnADeadWriter() {
+        Writer broken = new StringWriter() {
+            @Override
+            public StringWriter append(CharSequence csq) {
+                throw new IllegalStateException("stream gone");
+            }
+        };
+        Log log = new Log(broken, Log.Level.INFO, 2);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 100; i++) {
+                log.log(Log.Level.INFO, "line {}", i);
+            }
+            log.close();
+        });
+    }
+
+    @Test
+    void shouldRejectCapacitiesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new Log(new StringWriter(), Log.Level.INFO, 100));
+    }
+}
@@ -0,0 +1,107 @@
+package test.build;
+
+import model.MerkleTree;
+import model.Piece;
+import model.TorrentFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleTreeTest {
+    private static final int PIECE_SIZE = 262144; // 256KB, 16 blocks
+    private static final int FILE_SIZE = 1048576 - 5000; // 4 pieces, last one short
+    private ByteBuffer data;
+    private MerkleTree tree;
+
+    @BeforeEach
+    void setUp() {
+        data = ByteBuffer.allocate(FILE_SIZE);
+        for (int i = 0; i < FILE_SIZE; i++) {
+            data.put(i, (byte) (i * 7 + (i >>> 11)));
+        }
+        tree = MerkleTree.fromData(data);
+    }
+
+    private ByteBuffer block(ByteBuffer source, int globalBlock) {
+        int start = globalBlock * Piece.BLOCK_SIZE;
+        return source.duplicate().limit(Math.min(FILE_SIZE, start + Piece.BLOCK_SIZE)).position(start);
+    }
+
+    @Test
+    void shouldPadLeavesToPowerOfTwo() {
+        assertEquals(64, tree.getLeafCount());
+        assertEquals(6, tree.getHeight());
+        assertEquals(4, tree.getNodeCount(4), "Piece layer should have one node per piece");
+        assertEquals(MerkleTree.HASH_LENGTH, tree.getRoot().length);
+
+        MerkleTree odd = new MerkleTree(new byte[3 * MerkleTree.HASH_LENGTH]);
+        assertEquals(3, odd.getLeafCount());
+        assertEquals(2, odd.getHeight());
+    }
+
+    @Test
+    void proofsShouldVerifyAgainstRootAndPieceLayer() {
+        for (int leaf : new int[] {0, 17, 63}) {
+            byte[] leafHash = MerkleTree.hashBlock(block(data, leaf));
+            assertTrue(MerkleTree.verifyProof(tree.getRoot(), leaf, leafHash, tree.getProof(leaf, 6)));
+            assertTrue(MerkleTree.verifyProof(tree.getNode(4, leaf / 16), leaf % 16, leafHash, tree.getProof(leaf, 4)));
+            assertFalse(MerkleTree.verifyProof(tree.getRoot(), leaf ^ 1, leafHash, tree.getProof(leaf, 6)),
+                    "Proof should be bound to its position");
+        }
+    }
+
+    @Test
+    void shouldPinpointCorruptBlocks() {
+        ByteBuffer corrupt = ByteBuffer.allocate(FILE_SIZE).put(data.duplicate()).flip();
+        corrupt.put(5 * Piece.BLOCK_SIZE + 10, (byte) ~corrupt.get(5 * Piece.BLOCK_SIZE + 10));
+        corrupt.put(40 * Piece.BLOCK_SIZE, (byte) ~corrupt.get(40 * Piece.BLOCK_SIZE));
+
+        assertArrayEquals(new int[] {5, 40}, tree.findMismatchedLeaves(MerkleTree.fromData(corrupt)));
+        assertEquals(0, tree.findMismatchedLeaves(MerkleTree.fromData(data)).length);
+    }
+
+    @Test
+    void torrentFileShouldVerifyBlocksIncrementally() {
+        TorrentFile file = new TorrentFile("hash123", "test.bin", FILE_SIZE, PIECE_SIZE);
+        file.setPieceLayer(tree.getLayer(4));
+        Piece last = file.getPieces().get(3);
+        assertEquals(16, last.getBlockCount());
+
+        for (int block = 0; block < 16; block++) {
+            int leaf = 48 + block;
+            assertFalse(file.isPieceCompleted(3));
+            byte[] proof = tree.getProof(leaf, 4);
+            assertTrue(file.verifyBlock(3, block, MerkleTree.hashBlock(block(data, leaf)), proof));
+            assertTrue(last.isBlockVerified(block));
+        }
+        assertTrue(file.isPieceCompleted(3));
+        assertTrue(last.isVerified());
+        assertEquals(-1, last.nextUnverifiedBlock(0));
+    }
+
+    @Test
+    void torrentFileShouldRejectBadBlocks() {
+        TorrentFile file = new TorrentFile("hash123", "test.bin", FILE_SIZE, PIECE_SIZE);
+        assertFalse(file.verifyBlock(0, 0, new byte[32], new byte[128]), "No piece layer yet");
+        file.setPieceLayer(tree.getLayer(4));
+
+        byte[] proof = tree.getProof(2, 4);
+        assertFalse(file.verifyBlock(0, 2, new byte[32], proof));
+        assertFalse(file.verifyBlock(0, 2, MerkleTree.hashBlock(block(data, 2)), new byte[32]));
+        assertFalse(file.getPieces().get(0).isBlockVerified(2));
+        assertEquals(2, file.getPieces().get(0).nextUnverifiedBlock(2));
+        assertTrue(file.verifyBlock(0, 2, MerkleTree.hashBlock(block(data, 2)), proof));
+        assertEquals(1, file.getPieces().get(0).getVerifiedBlockCount());
+    }
+
+    @Test
+    void pieceLayerShouldRequireAlignedLayout() {
+        TorrentFile oddPieces = new TorrentFile("hash456", "x", 100000L, 100000);
+        assertThrows(IllegalArgumentException.class, () -> oddPieces.setPieceLayer(new byte[32]));
+        TorrentFile file = new TorrentFile("hash123", "test.bin", FILE_SIZE, PIECE_SIZE);
+        assertThrows(IllegalArgumentException.class, () -> file.setPieceLayer(new byte[32]));
+    }
+}
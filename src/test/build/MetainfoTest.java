@@ -0,0 +1,120 @@
+package test.build;
+
+import model.TorrentFile;
+import torrent.Metainfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetainfoTest {
+    private static final int PIECE_SIZE = 262144; // 256KB
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] hashes(int pieceCount) {
+        byte[] hashes = new byte[pieceCount * TorrentFile.PIECE_HASH_LENGTH];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = (byte) i;
+        }
+        return hashes;
+    }
+
+    private static byte[] encode(Metainfo metainfo) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        metainfo.write(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void shouldRoundTripSingleFileTorrent() throws IOException {
+        TorrentFile source = new TorrentFile("unused", "test.mp4", 1048576L, PIECE_SIZE, hashes(4));
+        byte[] data = encode(new Metainfo("http://tracker.example/announce", source));
+
+        Metainfo parsed = Metainfo.parse(ByteBuffer.wrap(data));
+        TorrentFile file = parsed.getTorrentFile();
+        assertEquals("http://tracker.example/announce", parsed.getAnnounce());
+        assertEquals("test.mp4", file.getFileName());
+        assertEquals(1048576L, file.getFileSize());
+        assertEquals(PIECE_SIZE, file.getPieceSize());
+        assertEquals(4, file.getPieceCount());
+        assertArrayEquals(source.getPieceHash(3), file.getPieceHash(3));
+    }
+
+    @Test
+    void infoHashShouldCoverRawInfoDictionary() throws IOException {
+        Metainfo metainfo = new Metainfo(null,
+                new TorrentFile("unused", "test.mp4", 1048576L, PIECE_SIZE, hashes(4)));
+        String expected = Metainfo.sha1Hex(ByteBuffer.wrap(metainfo.encodeInfo()));
+
+        TorrentFile parsed = Metainfo.parse(new ByteArrayInputStream(encode(metainfo))).getTorrentFile();
+        assertEquals(expected, parsed.getInfoHash());
+        assertEquals(40, parsed.getInfoHash().length());
+    }
+
+    @Test
+    void shouldIgnoreUnknownKeysAndSumMultiFileLengths() {
+        String info = "d5:filesld6:lengthi100e4:pathl1:aeed6:lengthi50e4:pathl1:beee"
+                + "4:name3:dir12:piece lengthi262144e6:pieces20:aaaaaaaaaaaaaaaaaaaa7:privatei1ee";
+        String data = "d7:comment2:hi8:announce3:url4:info" + info + "e";
+        TorrentFile file = Metainfo.parse(ByteBuffer.wrap(data.getBytes(StandardCharsets.US_ASCII))).getTorrentFile();
+
+        assertEquals("dir", file.getFileName());
+        assertEquals(150L, file.getFileSize());
+        assertEquals(2, file.getFileCount());
+        assertEquals("b", file.getFilePath(1));
+        assertEquals(100L, file.getFileOffset(1));
+        assertEquals(Metainfo.sha1Hex(ByteBuffer.wrap(info.getBytes(StandardCharsets.US_ASCII))),
+                file.getInfoHash());
+    }
+
+    @Test
+    void shouldRoundTripMultiFileTorrent() throws IOException {
+        TorrentFile source = new TorrentFile("unused", "album", List.of("cd1/a.flac", "b.flac"),
+                new long[] {300000L, 500000L}, PIECE_SIZE, hashes(4));
+        TorrentFile file = Metainfo.parse(ByteBuffer.wrap(encode(new Metainfo(null, source)))).getTorrentFile();
+
+        assertTrue(file.isMultiFile());
+        assertEquals("cd1/a.flac", file.getFilePath(0));
+        assertEquals(500000L, file.getFileLength(1));
+        assertEquals(800000L, file.getFileSize());
+    }
+
+    @Test
+    void shouldLoadLargeTorrentFromDisk() throws IOException {
+        int pieceCount = 100_000;
+        long size = (long) pieceCount * 16384;
+        TorrentFile source = new TorrentFile("unused", "big.iso", size, 16384, hashes(pieceCount));
+        Path path = tempDir.resolve("big.torrent");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            new Metainfo("url", source).write(out);
+        }
+
+        TorrentFile file = Metainfo.load(path).getTorrentFile();
+        assertEquals(pieceCount, file.getPieceCount());
+        assertArrayEquals(source.getPieceHash(pieceCount - 1), file.getPieceHash(pieceCount - 1));
+    }
+
+    @Test
+    void shouldRejectMissingFields() {
+        byte[] data = "d4:infod4:name1:xee".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalArgumentException.class, () -> Metainfo.parse(ByteBuffer.wrap(data)));
+    }
+
+    @Test
+    void torrentFileShouldValidatePieceHashLength() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TorrentFile("hash", "x", 1048576L, PIECE_SIZE, new byte[20]));
+    }
+}
@@ -0,0 +1,72 @@
+package test.build;
+
+import simulation.Simulation;
+import simulation.SimulationConfig;
+import torrent.TorrentTracker;
+import util.Metrics;
+import util.MetricsServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsServerTest {
+
+    private static HttpURLConnection open(int port, String path) throws IOException {
+        return (HttpURLConnection) URI.create("http://localhost:" + port + path).toURL().openConnection();
+    }
+
+    private static String scrape(int port) throws IOException {
+        HttpURLConnection connection = open(port, MetricsServer.PATH);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+        try (var in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void shouldRenderThePrometheusTextFormat() {
+        Metrics metrics = new Metrics();
+        metrics.counter("client.bytes_downloaded").add(4096);
+        metrics.counter("requests_total").increment();
+        metrics.gauge("swarm.seeders").set(3);
+        metrics.histogram("tracker.announce-latency").record(100);
+
+        String text = MetricsServer.render(metrics.snapshot());
+
+        assertTrue(text.contains("# TYPE client_bytes_downloaded_total counter\nclient_bytes_downloaded_total 4096\n"));
+        assertTrue(text.contains("\nrequests_total 1\n"), "An existing _total suffix is kept");
+        assertTrue(text.contains("# TYPE swarm_seeders gauge\nswarm_seeders 3\n"));
+        assertTrue(text.contains("# TYPE tracker_announce_latency summary\n"));
+        assertTrue(text.contains("tracker_announce_latency{quantile=\"0.99\"} 100\n"));
+        assertTrue(text.contains("tracker_announce_latency_sum 100\ntracker_announce_latency_count 1\n"));
+    }
+
+    @Test
+    void shouldServeALiveSimulation() throws IOException {
+        Simulation simulation = new Simulation(new SimulationConfig().setPeerCount(4).setMaxCycles(100));
+        try (MetricsServer server = simulation.serveMetrics(0)) {
+            String before = scrape(server.getPort());
+            assertTrue(before.contains("\nswarm_leechers 4\n"));
+            assertTrue(before.contains("\nswarm_seeders 1\n"));
+
+            assertTrue(simulation.run());
+            String after = scrape(server.getPort());
+            assertTrue(after.contains("\nswarm_seeders 5\n"));
+            assertTrue(after.contains("\nswarm_leechers 0\n"));
+            assertTrue(after.contains("\nswarm_completed_pieces 200\n"));
+            assertTrue(after.contains("\nswarm_total_pieces 200\n"));
+            assertTrue(after.contains("\nclient_bytes_downloaded_total " + 4 * 10_485_760L + "\n"));
+            assertTrue(after.contains("\n" + TorrentTracker.ANNOUNCES.replace('.', '_') + "_total 9\n"),
+                    "Each peer announces started, then completed");
+            assertTrue(after.contains("client_piece_latency_us_count 160\n"));
+
+            assertEquals(404, open(server.getPort(), "/other").getResponseCode());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package test.build;
+
+import util.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void shouldReturnTheSameInstrumentForAName() {
+        Metrics metrics = new Metrics();
+        assertSame(metrics.counter("a"), metrics.counter("a"));
+        assertSame(metrics.histogram("h"), metrics.histogram("h"));
+        assertNotSame(metrics.gauge("a"), metrics.gauge("b"));
+    }
+
+    @Test
+    void histogramShouldReportPercentilesWithinBucketPrecision() {
+        Metrics.Histogram histogram = new Metrics().histogram("latency");
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        Metrics.HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(100_000, snapshot.getMax());
+        assertEquals(50_000.5, snapshot.getMean(), 1e-9);
+        assertEquals(50_000, snapshot.getPercentile(50), 50_000 / 32.0);
+        assertEquals(99_000, snapshot.getPercentile(99), 99_000 / 32.0);
+        assertEquals(100_000, snapshot.getPercentile(100));
+        assertEquals(1, snapshot.getPercentile(0));
+        assertEquals(31, snapshot.getCountAtOrBelow(31), "Small values are exact");
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(101));
+    }
+
+    @Test
+    void histogramShouldCoverTheWholeLongRange() {
+        Metrics.Histogram histogram = new Metrics().histogram("wide");
+        histogram.record(0);
+        histogram.record(Long.MAX_VALUE);
+        Metrics.HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(0, snapshot.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, snapshot.getPercentile(100));
+    }
+
+    @Test
+    void resetShouldStartANewInterval() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        metrics.counter("bytes").add(1000);
+        metrics.gauge("queue").set(7);
+        metrics.histogram("latency").record(5);
+        Thread.sleep(5);
+
+        Metrics.Snapshot first = metrics.snapshotAndReset();
+        assertEquals(1000, first.getCounter("bytes"));
+        assertTrue(first.getRate("bytes") > 0);
+        assertTrue(first.getIntervalNanos() >= 5_000_000);
+        assertEquals(1, first.getHistogram("latency").getCount());
+
+        Metrics.Snapshot second = metrics.snapshot();
+        assertEquals(0, second.getCounter("bytes"));
+        assertEquals(7, second.getGauge("queue"), "Gauges are levels and survive a reset");
+        assertEquals(0, second.getHistogram("latency").getCount());
+        assertEquals(0, second.getHistogram("latency").getMax());
+        assertEquals(0, second.getCounter("unknown"));
+    }
+
+    @Test
+    void concurrentRecordingShouldLoseNothingAcrossResets() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        Metrics.Counter counter = metrics.counter("events");
+        Metrics.Histogram histogram = metrics.histogram("values");
+        int threads = 4;
+        int perThread = 200_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counter.increment();
+                    histogram.record(i & 1023);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long counted = 0;
+        long recorded = 0;
+        while (workers.stream().anyMatch(Thread::isAlive)) {
+            Metrics.Snapshot interval = metrics.snapshotAndReset();
+            counted += interval.getCounter("events");
+            recorded += interval.getHistogram("values").getCount();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Metrics.Snapshot last = metrics.snapshotAndReset();
+        counted += last.getCounter("events");
+        recorded += last.getHistogram("values").getCount();
+
+        assertEquals((long) threads * perThread, counted);
+        assertEquals((long) threads * perThread, recorded);
+    }
+}
@@ -0,0 +1,107 @@
+package test.build;
+
+import simulation.ParameterSweep;
+import simulation.Simulation;
+import simulation.SimulationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParameterSweepTest {
+    private static final String GRID = "peers=3,8;piece=131072,262144;bandwidth=1000,10:1000;"
+            + "picker=sequential,random,rarest;cycles=100;seed=1..2";
+
+    @Test
+    void shouldParseConfig() {
+        SimulationConfig config = SimulationConfig.parse("peers=10;piece=65536;file=1048576;"
+                + "bandwidth=10:100:1000;picker=rarest;cycles=50;sleep=0;seed=7");
+
+        assertEquals(10, config.getPeerCount());
+        assertEquals(65536, config.getPieceSize());
+        assertEquals(1048576, config.getFileSize());
+        assertEquals(List.of(10, 100, 1000), config.getBandwidthMix());
+        assertEquals(100, config.getBandwidth(4));
+        assertEquals(SimulationConfig.PiecePicker.RAREST, config.getPicker());
+        assertEquals(50, config.getMaxCycles());
+        assertEquals(0, config.getSleepMillis());
+        assertEquals(7, config.getSeed());
+        assertEquals(config.toString(), SimulationConfig.parse(config.toString()).toString());
+
+        assertThrows(IllegalArgumentException.class, () -> SimulationConfig.parse("peers=0"));
+        assertThrows(IllegalArgumentException.class, () -> SimulationConfig.parse("picker=fastest"));
+        assertThrows(IllegalArgumentException.class, () -> SimulationConfig.parse("bandwidth=10:x"));
+        assertThrows(IllegalArgumentException.class, () -> SimulationConfig.parse("speed=10"));
+    }
+
+    @Test
+    void everyPickerShouldFinishTheDownload() {
+        for (SimulationConfig.PiecePicker picker : SimulationConfig.PiecePicker.values()) {
+            Simulation simulation = new Simulation(new SimulationConfig().setPeerCount(6).setPicker(picker)
+                    .setMaxCycles(100));
+
+            assertTrue(simulation.run(), picker + " should complete");
+            assertEquals(6, simulation.getCompletedPeerCount());
+            assertEquals(6 * 40, simulation.getTransfers());
+            assertEquals(simulation.getCycle(), simulation.getCompletionCycle());
+        }
+    }
+
+    @Test
+    void shouldExpandTheGridInOrder() {
+        List<SimulationConfig> configs = ParameterSweep.parse(GRID).getConfigs();
+
+        assertEquals(2 * 2 * 2 * 3 * 2, configs.size());
+        assertEquals("peers=3;piece=131072;file=10485760;bandwidth=1000;picker=sequential;cycles=100;sleep=1000;seed=1",
+                configs.get(0).toString());
+        assertEquals(2, configs.get(1).getSeed(), "The last key varies fastest");
+        assertEquals(8, configs.get(configs.size() - 1).getPeerCount());
+
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parse("peers=3,x"));
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parse("seed=5..1"));
+    }
+
+    @Test
+    void resultsShouldNotDependOnTheThreadCount() {
+        ParameterSweep sweep = ParameterSweep.parse(GRID);
+        List<ParameterSweep.Result> serial = sweep.run(1);
+        List<ParameterSweep.Result> parallel = sweep.run(4);
+
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); i++) {
+            ParameterSweep.Result expected = serial.get(i);
+            ParameterSweep.Result actual = parallel.get(i);
+            assertSame(expected.getConfig(), actual.getConfig());
+            assertTrue(actual.isCompleted());
+            assertEquals(expected.getCompletionCycle(), actual.getCompletionCycle());
+            assertEquals(expected.getTransfers(), actual.getTransfers());
+            assertEquals(expected.getMeanTransferMillis(), actual.getMeanTransferMillis());
+            assertEquals(expected.getSlowestPeerMillis(), actual.getSlowestPeerMillis());
+        }
+    }
+
+    @Test
+    void shouldWriteCsvAndJson() throws IOException {
+        List<ParameterSweep.Result> results = ParameterSweep.parse("peers=2;piece=1048576;bandwidth=10:1000;"
+                + "picker=rarest,sequential;seed=3").run(2);
+
+        StringWriter csv = new StringWriter();
+        ParameterSweep.writeCsv(results, csv);
+        String[] lines = csv.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("peers,piece,file,bandwidth,picker,seed,completed,"));
+        assertTrue(lines[1].startsWith("2,1048576,10485760,10:1000,rarest,3,true,"));
+        assertEquals(lines[0].split(",").length, lines[2].split(",").length);
+
+        StringWriter json = new StringWriter();
+        ParameterSweep.writeJson(results, json);
+        String text = json.toString();
+        assertTrue(text.startsWith("[\n  {\"peers\": 2, \"piece\": 1048576,"));
+        assertTrue(text.contains("\"bandwidth\": \"10:1000\", \"picker\": \"sequential\""));
+        assertTrue(text.contains("\"completed\": true"));
+        assertTrue(text.endsWith("}\n]\n"));
+    }
+}
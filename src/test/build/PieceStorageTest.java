@@ -0,0 +1,76 @@
+package test.build;
+
+import model.TorrentFile;
+import torrent.PieceStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PieceStorageTest {
+    private static final int PIECE_SIZE = 16384; // 16KB
+    private TorrentFile torrent;
+
+    @TempDir
+    Path root;
+
+    @BeforeEach
+    void setUp() {
+        // 10000 + 20000 + 5000 bytes -> 3 pieces, the first two spanning file boundaries
+        torrent = new TorrentFile("hash123", "album", List.of("a.bin", "nested/b.bin", "c.bin"),
+                new long[] {10000L, 20000L, 5000L}, PIECE_SIZE, null);
+    }
+
+    private static ByteBuffer pattern(int length, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) (i * 31 + seed));
+        }
+        return buffer.flip();
+    }
+
+    @Test
+    void shouldWriteAndReadPiecesSpanningFiles() throws IOException {
+        try (PieceStorage storage = new PieceStorage(root, torrent)) {
+            for (int i = 0; i < torrent.getPieceCount(); i++) {
+                storage.writePiece(i, pattern(torrent.getPieces().get(i).getSize(), i));
+            }
+            for (int i = 0; i < torrent.getPieceCount(); i++) {
+                ByteBuffer read = ByteBuffer.allocate(torrent.getPieces().get(i).getSize());
+                storage.readPiece(i, read);
+                assertEquals(pattern(read.capacity(), i), read.flip(), "Piece " + i + " should round trip");
+            }
+        }
+        assertEquals(10000L, Files.size(root.resolve("album/a.bin")));
+        assertEquals(20000L, Files.size(root.resolve("album/nested/b.bin")));
+        assertEquals(5000L, Files.size(root.resolve("album/c.bin")));
+    }
+
+    @Test
+    void singleFileTorrentShouldLiveDirectlyUnderRoot() throws IOException {
+        TorrentFile single = new TorrentFile("hash456", "file.bin", 20000L, PIECE_SIZE);
+        try (PieceStorage storage = new PieceStorage(root, single)) {
+            storage.writePiece(1, pattern(20000 - PIECE_SIZE, 7));
+            assertEquals(root.resolve("file.bin"), storage.getPath(0));
+        }
+        assertEquals(20000L, Files.size(root.resolve("file.bin")));
+    }
+
+    @Test
+    void shouldRejectInvalidRequests() throws IOException {
+        try (PieceStorage storage = new PieceStorage(root, torrent)) {
+            assertThrows(IllegalArgumentException.class, () -> storage.writePiece(3, pattern(10, 0)));
+            assertThrows(IllegalArgumentException.class, () -> storage.writePiece(0, pattern(10, 0)));
+        }
+        TorrentFile escaping = new TorrentFile("hash789", "dir", List.of("../outside.bin"),
+                new long[] {10L}, PIECE_SIZE, null);
+        assertThrows(IllegalArgumentException.class, () -> new PieceStorage(root, escaping));
+    }
+}
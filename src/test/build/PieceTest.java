@@ -48,4 +48,28 @@ class PieceTest {
         assertTrue(piece.isDownloaded());
         assertTrue(piece.isVerified());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldTrackVerifiedBlocks() {
+        assertEquals(16, piece.getBlockCount());
+        assertEquals(0, piece.getVerifiedBlockCount());
+        assertEquals(0, piece.nextUnverifiedBlock(0));
+
+        piece.markBlockVerified(0);
+        piece.markBlockVerified(1);
+        piece.markBlockVerified(16); // Out of range, ignored
+        assertTrue(piece.isBlockVerified(1));
+        assertEquals(2, piece.getVerifiedBlockCount());
+        assertEquals(2, piece.nextUnverifiedBlock(0));
+
+        piece.setVerified(true);
+        assertEquals(16, piece.getVerifiedBlockCount());
+        assertEquals(-1, piece.nextUnverifiedBlock(0));
+    }
+
+    @Test
+    void shortPieceShouldRoundUpBlockCount() {
+        assertEquals(1, new Piece(0, 1000).getBlockCount());
+        assertEquals(2, new Piece(0, Piece.BLOCK_SIZE + 1).getBlockCount());
+    }
+}
@@ -0,0 +1,39 @@
+package test.build;
+
+import util.RandomStreams;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamsTest {
+
+    @Test
+    void streamsShouldDependOnlyOnSeedAndName() {
+        RandomStreams first = new RandomStreams(42);
+        RandomStreams second = new RandomStreams(42);
+        second.stream("other").nextLong(); // asking for other streams first changes nothing
+
+        assertEquals(first.stream("client/PEER1").nextLong(), second.stream("client/PEER1").nextLong());
+        assertNotEquals(first.stream("client/PEER1").nextLong(), first.stream("client/PEER2").nextLong());
+        assertNotEquals(first.seedFor("churn"), new RandomStreams(43).seedFor("churn"));
+    }
+
+    @Test
+    void shuffleShouldBeReproducibleAndKeepEveryElement() {
+        List<Integer> a = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            a.add(i);
+        }
+        List<Integer> b = new ArrayList<>(a);
+        RandomStreams.shuffle(a, new SplittableRandom(7));
+        RandomStreams.shuffle(b, new SplittableRandom(7));
+
+        assertEquals(a, b);
+        assertNotEquals(new ArrayList<>(a).stream().sorted().toList(), a, "50 elements should not stay sorted");
+        assertEquals(50, a.stream().distinct().count());
+    }
+}
@@ -2,9 +2,12 @@ package test.build;
 
 import base.Device;
 import base.Router;
+import util.IPAddress;
+import util.IPv4Address;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -109,4 +112,74 @@ class RouterTest {
         assertEquals(0, router.getConnectedDevices().size(), "Should not add null device");
         assertTrue(router.getRoutingTable().isEmpty(), "Routing table should remain empty");
     }
-}
\ No newline at end of file
+
+    @Test
+    void routeShouldResolvePackedAddresses() {
+        router.addDevice(device1);
+        assertEquals("DEV001", router.route(IPv4Address.parse("192.168.1.2")));
+        assertNull(router.route(IPv4Address.parse("192.168.1.99")));
+    }
+
+    @Test
+    void shouldRouteIPv6Devices() {
+        Device device = new Device("DEV6", "2001:db8::10", "NYC");
+        router.addDevice(device);
+        assertEquals("DEV6", router.route(IPAddress.parse("2001:db8:0:0::10")));
+        assertEquals("DEV6", router.getRoutingTable().get("2001:DB8::10"));
+        assertTrue(router.getRoutingTable().containsKey("2001:db8::10"));
+        assertEquals("2001:db8::10", device.getIpAddress());
+    }
+
+    @Test
+    void shouldRouteSubnetsToNextHops() {
+        router.addDevice(device1);
+        router.addRoute("10.0.0.0/8", "RTR-CORE");
+        router.addRoute("10.20.0.0/16", "RTR-EDGE");
+        router.addRoute("0.0.0.0/0", "RTR-UPLINK");
+
+        assertEquals("DEV001", router.route(IPv4Address.parse("192.168.1.2")));
+        assertEquals("RTR-EDGE", router.route(IPv4Address.parse("10.20.3.4")));
+        assertEquals("RTR-CORE", router.route(IPv4Address.parse("10.21.3.4")));
+        assertEquals("RTR-UPLINK", router.route(IPv4Address.parse("8.8.8.8")));
+
+        assertTrue(router.removeRoute("10.20.0.0/16"));
+        assertEquals("RTR-CORE", router.route(IPv4Address.parse("10.20.3.4")));
+
+        router.removeDevice(device1);
+        assertEquals("RTR-UPLINK", router.route(IPv4Address.parse("192.168.1.2")));
+        assertEquals(0, router.getRoutingTable().size(), "Routes are not connected devices");
+    }
+
+    @Test
+    void routingTableViewShouldWriteThrough() {
+        Map<String, String> table = router.getRoutingTable();
+        assertSame(table, router.getRoutingTable(), "One view per router");
+        table.put("10.0.0.5", "DEV005");
+        router.addDevice(device1);
+        assertEquals("DEV005", router.route(IPv4Address.parse("10.0.0.5")));
+        assertEquals(Map.of("10.0.0.5", "DEV005", "192.168.1.2", "DEV001"), new HashMap<>(table));
+
+        assertEquals("DEV005", table.remove("10.0.0.5"));
+        assertNull(router.route(IPv4Address.parse("10.0.0.5")));
+        table.entrySet().removeIf(entry -> entry.getValue().equals("DEV001"));
+        assertNull(router.route(IPv4Address.parse("192.168.1.2")));
+        assertTrue(table.isEmpty());
+        assertNull(table.remove("not an address"));
+        assertThrows(IllegalArgumentException.class, () -> table.put("not an address", "DEV"));
+    }
+
+    @Test
+    void routerWithoutRoutesShouldRouteNothing() {
+        assertNull(router.route(IPv4Address.parse("10.0.0.1")));
+        assertFalse(router.removeRoute("10.0.0.0/8"));
+        assertFalse(router.removeDevice(device1));
+        assertNull(router.route(IPv4Address.parse("192.168.1.2")));
+    }
+
+    @Test
+    void shouldRejectMalformedRoutes() {
+        for (String cidr : new String[] {"10.0.0.0", "10.0.0.0/", "10.0.0.0/33", "10.0.0.0/8a", "10.0.0/8", "10.0.0.1/8", null}) {
+            assertThrows(IllegalArgumentException.class, () -> router.addRoute(cidr, "HOP"), "Should reject " + cidr);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package test.build;
+
+import base.RoutingTrie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.IPUtils;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingTrieTest {
+    private RoutingTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new RoutingTrie();
+    }
+
+    private static int ip(String address) {
+        return (int) IPUtils.parseIPv4(address);
+    }
+
+    @Test
+    void shouldPreferLongestPrefix() {
+        trie.add(0, 0, "default");
+        trie.add(ip("10.0.0.0"), 8, "ten");
+        trie.add(ip("10.1.0.0"), 16, "ten-one");
+        trie.add(ip("10.1.2.0"), 23, "ten-one-two");
+        trie.add(ip("10.1.2.3"), 32, "host");
+
+        assertEquals("host", trie.lookup(ip("10.1.2.3")));
+        assertEquals("ten-one-two", trie.lookup(ip("10.1.3.200")));
+        assertEquals("ten-one", trie.lookup(ip("10.1.4.1")));
+        assertEquals("ten", trie.lookup(ip("10.200.0.1")));
+        assertEquals("default", trie.lookup(ip("192.168.1.1")));
+        assertEquals(5, trie.size());
+    }
+
+    @Test
+    void shorterPrefixAddedLaterShouldNotOverrideLonger() {
+        trie.add(ip("172.16.5.0"), 24, "narrow");
+        trie.add(ip("172.16.0.0"), 12, "wide");
+
+        assertEquals("narrow", trie.lookup(ip("172.16.5.9")));
+        assertEquals("wide", trie.lookup(ip("172.31.0.1")));
+        assertNull(trie.lookup(ip("172.32.0.1")));
+    }
+
+    @Test
+    void removeShouldFallBackToShorterPrefix() {
+        trie.add(ip("10.0.0.0"), 8, "ten");
+        trie.add(ip("10.0.0.0"), 12, "ten-narrow");
+        trie.add(ip("10.0.0.0"), 20, "ten-narrower");
+
+        assertTrue(trie.remove(ip("10.0.0.0"), 12));
+        assertFalse(trie.remove(ip("10.0.0.0"), 12));
+        assertEquals("ten", trie.lookup(ip("10.1.0.0")));
+        assertEquals("ten-narrower", trie.lookup(ip("10.0.1.0")));
+
+        assertTrue(trie.remove(ip("10.0.0.0"), 8));
+        assertNull(trie.lookup(ip("10.1.0.0")));
+        assertNull(trie.get(ip("10.0.0.0"), 8));
+    }
+
+    @Test
+    void shouldRejectInvalidPrefixes() {
+        assertThrows(IllegalArgumentException.class, () -> trie.add(ip("10.0.0.1"), 8, "hop"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add(0, 33, "hop"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add(0, 0, null));
+    }
+
+    @Test
+    void shouldMatchLinearScanOnRandomRoutes() {
+        Random random = new Random(7);
+        int[] prefixes = new int[2000];
+        int[] lengths = new int[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            lengths[i] = random.nextInt(33);
+            prefixes[i] = random.nextInt() & RoutingTrie.mask(lengths[i]);
+            trie.add(prefixes[i], lengths[i], "R" + i);
+        }
+        for (int i = 0; i < prefixes.length; i += 3) {
+            trie.remove(prefixes[i], lengths[i]);
+        }
+        for (int n = 0; n < 20000; n++) {
+            // Half the probes land inside a known prefix so long matches get exercised
+            int address = n % 2 == 0 ? random.nextInt() : prefixes[random.nextInt(prefixes.length)] | random.nextInt(256);
+            String expected = null;
+            int bestLength = -1;
+            for (int i = 0; i < prefixes.length; i++) {
+                String hop = trie.get(prefixes[i], lengths[i]);
+                if (hop != null && lengths[i] > bestLength && (address & RoutingTrie.mask(lengths[i])) == prefixes[i]) {
+                    expected = hop;
+                    bestLength = lengths[i];
+                }
+            }
+            assertEquals(expected, trie.lookup(address), "Lookup of " + IPUtils.formatIPv4(address));
+        }
+    }
+}
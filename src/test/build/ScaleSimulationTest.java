@@ -0,0 +1,133 @@
+package test.build;
+
+import simulation.ScaleSimulation;
+import simulation.ScaleSpec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScaleSimulationTest {
+
+    @Test
+    void shouldParseCompactSpec() {
+        ScaleSpec spec = ScaleSpec.parse("clients=fiber:10:1000,cable:90:100;locations=NYC:3,LAX:1;"
+                + "churn=0.05;seeders=2;file=1048576;piece=262144;cycles=50;seed=7");
+
+        assertEquals(2, spec.getBandwidthClasses().size());
+        assertEquals(100, spec.getClientCount());
+        assertEquals(1000, spec.getBandwidthClasses().get(0).getBandwidth());
+        assertEquals(0.05, spec.getChurnRate());
+        assertEquals(2, spec.getSeeders());
+        assertEquals(1048576L, spec.getFileSize());
+        assertEquals(50, spec.getMaxCycles());
+        assertEquals(7L, spec.getSeed());
+    }
+
+    @Test
+    void shouldDistributeLocationsByWeight() {
+        String[] locations = ScaleSpec.parse("clients=a:8:100;locations=NYC:3,LAX:1").assignLocations(8);
+        int nyc = 0;
+        for (String location : locations) {
+            if (location.equals("NYC")) {
+                nyc++;
+            }
+        }
+        assertEquals(6, nyc);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "clients=a:1", "clients=a:x:100", "churn=2;clients=a:1:100", "bogus=1;clients=a:1:100",
+            "clients=a:1:100;piece=0", "clients=a:1:100;piece=-1", "clients=a:1:100;file=0", "clients=a:1:100;cycles=0",
+            "clients=a:1:100;arrivals=poisson:0", "clients=a:1:100;sessions=weibull:1", "clients=a:1:100;downtime=-1"})
+    void shouldRejectInvalidSpecs(String spec) {
+        assertThrows(IllegalArgumentException.class, () -> ScaleSpec.parse(spec));
+    }
+
+    @Test
+    void swarmShouldCompleteAndReport() {
+        ScaleSpec spec = ScaleSpec.parse("clients=fast:20:400,slow:180:100;locations=NYC,LAX;file=1048576;cycles=200");
+        ScaleSimulation.Report report = new ScaleSimulation(spec).run();
+
+        assertEquals(200, report.getClients());
+        assertEquals(200, report.getCompletedClients());
+        assertTrue(report.getCompletionCycle() > 0);
+        assertEquals(200L * 4, report.getTransfers(), "Every client should fetch each of the 4 pieces once");
+        assertTrue(report.getEvents() >= report.getTransfers());
+    }
+
+    @Test
+    void heapShouldOnlyBeMeasuredOnRequest() {
+        ScaleSpec spec = ScaleSpec.parse("clients=a:1000:100;file=1048576;cycles=1");
+        ScaleSimulation.Report plain = new ScaleSimulation(spec).run();
+        assertEquals(0, plain.getHeapBytesPerClient());
+        assertFalse(plain.toString().contains("Heap per client"));
+
+        assertTrue(ScaleSimulation.measured(spec).run().getHeapBytesPerClient() > 0);
+    }
+
+    @Test
+    void churnShouldNotPreventCompletion() {
+        ScaleSpec spec = ScaleSpec.parse("clients=a:100:100;churn=0.2;file=1048576;cycles=500");
+        ScaleSimulation simulation = new ScaleSimulation(spec);
+        ScaleSimulation.Report report = simulation.run();
+
+        assertEquals(100, report.getCompletedClients());
+        assertTrue(report.getEvents() > report.getTransfers(), "Churn should add online/offline events");
+        assertEquals(100 + spec.getSeeders(), simulation.getTracker().getOnlinePeerCount("SCALE001"),
+                "Churned clients come back and the tracker hears about it");
+    }
+
+    @Test
+    void dualStackSwarmShouldComplete() {
+        ScaleSpec spec = ScaleSpec.parse("clients=a:40:100;ipv6=0.5;file=1048576;cycles=500");
+        assertEquals(0.5, spec.getIPv6Share());
+        ScaleSimulation.Report report = new ScaleSimulation(spec).run();
+
+        assertEquals(40, report.getCompletedClients());
+        assertThrows(IllegalArgumentException.class, () -> ScaleSpec.parse("clients=a:1:100;ipv6=2"));
+    }
+
+    @Test
+    void localityShouldCutCrossRegionTraffic() {
+        String base = "clients=a:200:100;locations=NYC:1,LAX:1,LON:1,TYO:1;file=1048576;cycles=500";
+        ScaleSimulation.Report random = new ScaleSimulation(ScaleSpec.parse(base)).run();
+        ScaleSimulation.Report local = new ScaleSimulation(ScaleSpec.parse(base + ";locality=true")).run();
+
+        assertEquals(200, local.getCompletedClients());
+        assertTrue(local.getCrossRegionBytes() < random.getCrossRegionBytes(),
+                local.getCrossRegionBytes() + " vs " + random.getCrossRegionBytes());
+        assertTrue(local.getMeanTransferMillis() < random.getMeanTransferMillis());
+    }
+
+    @Test
+    void sameSeedShouldReproduceRunsInParallel() throws Exception {
+        ScaleSpec spec = ScaleSpec.parse("clients=a:200:100;locations=NYC,LAX,FRA;locality=true;"
+                + "arrivals=poisson:20;sessions=weibull:0.6:60;downtime=20;file=1048576;cycles=300;seed=5");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ScaleSimulation.Report>> runs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                runs.add(pool.submit(() -> new ScaleSimulation(spec).run()));
+            }
+            ScaleSimulation.Report expected = runs.get(0).get();
+            for (Future<ScaleSimulation.Report> run : runs) {
+                ScaleSimulation.Report report = run.get();
+                assertEquals(expected.getEvents(), report.getEvents());
+                assertEquals(expected.getTransfers(), report.getTransfers());
+                assertEquals(expected.getCrossRegionBytes(), report.getCrossRegionBytes());
+                assertEquals(expected.getMeanTransferMillis(), report.getMeanTransferMillis());
+                assertEquals(expected.getCompletionCycle(), report.getCompletionCycle());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
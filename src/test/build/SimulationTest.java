@@ -0,0 +1,38 @@
+package test.build;
+
+import simulation.ChurnModel;
+import simulation.Simulation;
+import util.Log;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    private static String eventLog(long seed) {
+        StringWriter captured = new StringWriter();
+        Log log = new Log(captured, Log.Level.DEBUG, 1024);
+        Log previous = Log.setGlobal(log);
+        try {
+            Simulation simulation = new Simulation(5, seed, new ChurnModel(seed).setPoissonArrivals(2));
+            for (int cycle = 0; cycle < 20 && !simulation.runCycle(); cycle++) {
+                // run to completion or the cycle limit
+            }
+        } finally {
+            log.close();
+            Log.setGlobal(previous);
+        }
+        return captured.toString();
+    }
+
+    @Test
+    void sameSeedShouldReplayTheSameEventLog() {
+        String log = eventLog(7);
+
+        assertTrue(log.contains("downloaded piece"));
+        assertEquals(log, eventLog(7));
+        assertNotEquals(log, eventLog(8));
+    }
+}
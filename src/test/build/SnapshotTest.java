@@ -0,0 +1,137 @@
+package test.build;
+
+import model.SwarmInfo;
+import simulation.ScaleSimulation;
+import simulation.ScaleSpec;
+import simulation.Snapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+    private static final String SWARM = "clients=fast:20:400,slow:130:100;locations=NYC,LAX,FRA;seeders=2;"
+            + "file=2097152;seed=9";
+
+    @TempDir
+    Path dir;
+
+    private static void assertSameRun(ScaleSimulation.Report expected, ScaleSimulation.Report actual) {
+        assertEquals(expected.getEvents(), actual.getEvents());
+        assertEquals(expected.getTransfers(), actual.getTransfers());
+        assertEquals(expected.getCrossRegionBytes(), actual.getCrossRegionBytes());
+        assertEquals(expected.getMeanTransferMillis(), actual.getMeanTransferMillis());
+        assertEquals(expected.getCompletedClients(), actual.getCompletedClients());
+        assertEquals(expected.getCompletionCycle(), actual.getCompletionCycle());
+        assertEquals(expected.getCycles(), actual.getCycles());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"churn=0.05", "arrivals=poisson:10;sessions=weibull:0.7:20;downtime=5"})
+    void restoredRunShouldContinueExactlyLikeAnUninterruptedOne(String churn) throws IOException {
+        ScaleSimulation.Report uninterrupted = new ScaleSimulation(
+                ScaleSpec.parse(SWARM + ";" + churn + ";cycles=400")).run();
+
+        Path file = dir.resolve("warm" + Snapshot.FILE_EXTENSION);
+        ScaleSimulation warmUp = new ScaleSimulation(ScaleSpec.parse(SWARM + ";" + churn + ";cycles=6"));
+        warmUp.setCheckpoints(file, 6);
+        warmUp.run();
+        assertTrue(Files.exists(file));
+
+        ScaleSimulation resumed = ScaleSimulation.restore(ScaleSpec.parse(SWARM + ";" + churn + ";cycles=400"), file);
+        SwarmInfo before = warmUp.getTracker().getSwarm("SCALE001");
+        SwarmInfo after = resumed.getTracker().getSwarm("SCALE001");
+        assertTrue(before.getTotalTransferred() > 0);
+        assertEquals(before.getTotalTransferred(), after.getTotalTransferred());
+        assertEquals(before.getNumSeeders(), after.getNumSeeders());
+        assertEquals(before.getNumLeechers(), after.getNumLeechers());
+        assertEquals(150, uninterrupted.getCompletedClients());
+        assertSameRun(uninterrupted, resumed.run());
+    }
+
+    // A small budget spreads the capture over cycles 6 to 9, while the run keeps changing the members
+    @ParameterizedTest
+    @ValueSource(strings = {"churn=0.05", "arrivals=poisson:10;sessions=weibull:0.7:20;downtime=5"})
+    void snapshotCapturedOverSeveralCyclesShouldHoldItsOwnCycle(String churn) throws IOException {
+        ScaleSimulation.Report uninterrupted = new ScaleSimulation(
+                ScaleSpec.parse(SWARM + ";" + churn + ";cycles=400")).run();
+
+        Path file = dir.resolve("chunked" + Snapshot.FILE_EXTENSION);
+        ScaleSimulation warmUp = new ScaleSimulation(ScaleSpec.parse(SWARM + ";" + churn + ";cycles=9"));
+        warmUp.setCheckpoints(file, 6, 100);
+        warmUp.run();
+
+        ScaleSimulation resumed = ScaleSimulation.restore(ScaleSpec.parse(SWARM + ";" + churn + ";cycles=400"), file);
+        assertSameRun(uninterrupted, resumed.run());
+    }
+
+    @Test
+    void oneSnapshotShouldForkSeveralExperiments() throws IOException {
+        Path file = dir.resolve("fork" + Snapshot.FILE_EXTENSION);
+        ScaleSimulation warmUp = new ScaleSimulation(ScaleSpec.parse(SWARM + ";cycles=4"));
+        warmUp.run();
+        assertDoesNotThrow(() -> warmUp.checkpoint(file).get());
+
+        ScaleSimulation.Report random = ScaleSimulation.restore(ScaleSpec.parse(SWARM + ";cycles=400"), file).run();
+        ScaleSimulation.Report local = ScaleSimulation.restore(
+                ScaleSpec.parse(SWARM + ";locality=true;cycles=400"), file).run();
+
+        assertEquals(150, random.getCompletedClients());
+        assertEquals(150, local.getCompletedClients());
+        assertTrue(local.getCrossRegionBytes() < random.getCrossRegionBytes(),
+                "The locality fork should move fewer bytes across regions");
+    }
+
+    @Test
+    void shouldRejectSnapshotsOfAnotherSwarm() throws IOException {
+        Path file = dir.resolve("other" + Snapshot.FILE_EXTENSION);
+        ScaleSimulation simulation = new ScaleSimulation(ScaleSpec.parse(SWARM + ";cycles=2"));
+        simulation.setCheckpoints(file, 2);
+        simulation.run();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ScaleSimulation.restore(ScaleSpec.parse("clients=a:10:100;file=2097152;seeders=2"), file));
+        assertThrows(IllegalArgumentException.class,
+                () -> ScaleSimulation.restore(ScaleSpec.parse(SWARM + ";sessions=exp:60"), file));
+    }
+
+    @Test
+    void shouldDetectCorruption() throws IOException {
+        Path file = dir.resolve("state" + Snapshot.FILE_EXTENSION);
+        byte[] state = new byte[10_000];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = (byte) (i * 31 % 7);
+        }
+        Snapshot.write(file, state);
+        assertArrayEquals(state, Snapshot.read(file));
+        assertTrue(Files.size(file) < state.length / 4, "Repetitive state should compress");
+
+        byte[] data = Files.readAllBytes(file);
+        data[9] ^= 1; // checksum
+        Files.write(file, data);
+        assertThrows(IOException.class, () -> Snapshot.read(file));
+
+        Files.write(file, new byte[] { 1, 2, 3 });
+        assertThrows(IOException.class, () -> Snapshot.read(file));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 30 })
+    void shouldRejectImplausibleLengths(int length) throws IOException {
+        Path file = dir.resolve("state" + Snapshot.FILE_EXTENSION);
+        Snapshot.write(file, new byte[1000]);
+        byte[] data = Files.readAllBytes(file);
+        ByteBuffer.wrap(data).putInt(5, length);
+        Files.write(file, data);
+
+        IOException e = assertThrows(IOException.class, () -> Snapshot.read(file));
+        assertTrue(e.getMessage().contains("corrupt"), e.getMessage());
+    }
+}
@@ -0,0 +1,157 @@
+package test.build;
+
+import model.SwarmInfo;
+import model.TorrentFile;
+import simulation.ScaleSimulation;
+import simulation.ScaleSpec;
+import simulation.Simulation;
+import simulation.SimulationConfig;
+import simulation.SwarmHealth;
+import torrent.TorrentClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwarmHealthTest {
+    private static final int PIECE_SIZE = 262144;
+
+    private static TorrentClient member(String id, TorrentFile file, int... pieces) {
+        TorrentClient client = new TorrentClient(id, "10.0.0.2", "NYC", 100, 10.0, 10.0, 10_000_000L);
+        client.initializeDownload(file);
+        for (int piece : pieces) {
+            client.getDownloadingFile(file.getInfoHash()).markPieceCompleted(piece);
+        }
+        return client;
+    }
+
+    @Test
+    void shouldSummarizePieceAvailability() {
+        TorrentFile file = new TorrentFile("hash123", "test.mp4", 4L * PIECE_SIZE, PIECE_SIZE);
+        SwarmInfo swarm = new SwarmInfo("hash123");
+        swarm.addPeer("SEED", true);
+        swarm.addPeer("PEER1", false);
+        swarm.updateTransferred(PIECE_SIZE);
+        TorrentClient offline = member("PEER2", file, 3);
+        offline.setOnline(false);
+        List<TorrentClient> members = List.of(member("SEED", file, 0, 1, 2, 3), member("PEER1", file, 0, 1), offline);
+
+        SwarmHealth health = new SwarmHealth(swarm, 1, 8);
+        assertNull(health.latest());
+        assertTrue(health.sample(0, members));
+        SwarmHealth.Sample sample = health.latest();
+
+        assertEquals(1, sample.getSeeders());
+        assertEquals(1, sample.getLeechers());
+        assertEquals(PIECE_SIZE, sample.getBytesTransferred());
+        assertEquals(2, sample.getOnlinePeers());
+        assertEquals(1, sample.getMinAvailability());
+        assertEquals(2, sample.getMedianAvailability());
+        assertEquals(1.5, sample.getMeanAvailability(), 1e-9);
+        assertEquals(2, sample.getMaxAvailability());
+        assertEquals(0, sample.getMissingPieces());
+        assertEquals(1.5, sample.getDistributedCopies(), 1e-9, "One full copy plus half the pieces again");
+        assertEquals(1, sample.getCompletedPeers());
+        assertEquals(7.0 / 12, sample.getCompletion(), 1e-9);
+    }
+
+    @Test
+    void shouldSampleOnItsIntervalAndKeepTheLatest() {
+        TorrentFile file = new TorrentFile("hash123", "test.mp4", 4L * PIECE_SIZE, PIECE_SIZE);
+        List<TorrentClient> members = List.of(member("SEED", file, 0, 1, 2, 3));
+        SwarmHealth health = new SwarmHealth(new SwarmInfo("hash123"), 2, 3);
+        for (int cycle = 0; cycle <= 10; cycle++) {
+            assertEquals(cycle % 2 == 0, health.sample(cycle, members));
+        }
+
+        assertEquals(6, health.getPublished());
+        List<SwarmHealth.Sample> samples = health.getSamples();
+        assertEquals(3, samples.size(), "Only the ring's worth survives");
+        assertEquals(List.of(3L, 4L, 5L), samples.stream().map(SwarmHealth.Sample::getSequence).toList());
+        assertEquals(10, health.latest().getCycle());
+        assertEquals(1, health.since(5).size());
+        assertTrue(health.since(6).isEmpty());
+    }
+
+    @Test
+    void shouldTrackASimulationToCompletion() {
+        Simulation simulation = new Simulation(new SimulationConfig().setPeerCount(4).setMaxCycles(100));
+        SwarmHealth health = simulation.monitorHealth(1, 256);
+        SwarmHealth.Sample first = health.latest();
+        assertEquals(1, first.getSeeders());
+        assertEquals(4, first.getLeechers());
+        assertEquals(1.0, first.getDistributedCopies(), 1e-9, "Only the initial seeder holds anything");
+
+        assertTrue(simulation.run());
+        SwarmHealth.Sample last = health.latest();
+        assertEquals(simulation.getCycle() + 1, health.getPublished());
+        assertEquals(5, last.getSeeders());
+        assertEquals(0, last.getLeechers());
+        assertEquals(5, last.getMinAvailability());
+        assertEquals(5.0, last.getDistributedCopies(), 1e-9);
+        assertEquals(1.0, last.getCompletion(), 1e-9);
+        assertEquals(4L * 10_485_760L, last.getBytesTransferred());
+        double finished = 0;
+        for (SwarmHealth.Sample sample : health.getSamples()) {
+            finished += sample.getCompletionRate();
+        }
+        assertEquals(4, finished, 1e-9, "Completions per cycle add up to every peer");
+    }
+
+    @Test
+    void readersShouldFollowALiveRun() throws InterruptedException {
+        Simulation simulation = new Simulation(new SimulationConfig().setPeerCount(8).setPieceSize(65536)
+                .setMaxCycles(500));
+        SwarmHealth health = simulation.monitorHealth(1, 4);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Long> seen = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            long next = 0;
+            while (!done.get() || next < health.getPublished()) {
+                for (SwarmHealth.Sample sample : health.since(next)) {
+                    if (sample.getSequence() < next) {
+                        failure.set("Sample " + sample.getSequence() + " read twice");
+                    }
+                    next = sample.getSequence() + 1;
+                    seen.add(sample.getSequence());
+                }
+            }
+        });
+        reader.start();
+        boolean completed = simulation.run();
+        done.set(true);
+        reader.join(10_000);
+
+        assertFalse(reader.isAlive());
+        assertTrue(completed);
+        assertNull(failure.get(), failure.get());
+        assertEquals(health.getPublished() - 1, seen.get(seen.size() - 1), "The reader catches up with the run");
+    }
+
+    @Test
+    void shouldMonitorAScaleRun() {
+        ScaleSimulation simulation = new ScaleSimulation(ScaleSpec.parse("clients=fiber:50:1000;seeders=2"));
+        SwarmHealth health = simulation.monitorHealth(1, 16);
+        ScaleSimulation.Report report = simulation.run();
+
+        SwarmHealth.Sample last = health.latest();
+        assertEquals(report.getCompletionCycle(), last.getCycle());
+        assertEquals(52, last.getSeeders());
+        assertEquals(0, last.getLeechers());
+        assertEquals(2000L * PIECE_SIZE, last.getBytesTransferred(), "Every transfer reaches the tracker's swarm");
+        assertEquals(2, health.getSamples().get(0).getSeeders());
+    }
+
+    @Test
+    void shouldRejectInvalidSettings() {
+        SwarmInfo swarm = new SwarmInfo("hash123");
+        assertThrows(IllegalArgumentException.class, () -> new SwarmHealth(null, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SwarmHealth(swarm, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SwarmHealth(swarm, 1, 0));
+    }
+}
@@ -3,6 +3,12 @@ package test.build;
 import model.SwarmInfo;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SwarmInfoTest {
@@ -27,7 +33,7 @@ class SwarmInfoTest {
         assertEquals(1, swarmInfo.getNumSeeders());
         assertEquals(0, swarmInfo.getNumLeechers());
 
-        swarmInfo.removePeer("peer1", true);
+        swarmInfo.removePeer("peer1");
         assertEquals(0, swarmInfo.getNumSeeders());
     }
 
@@ -37,7 +43,7 @@ class SwarmInfoTest {
         assertEquals(0, swarmInfo.getNumSeeders());
         assertEquals(1, swarmInfo.getNumLeechers());
 
-        swarmInfo.removePeer("peer1", false);
+        swarmInfo.removePeer("peer1");
         assertEquals(0, swarmInfo.getNumLeechers());
     }
 
@@ -62,10 +68,125 @@ class SwarmInfoTest {
 
     @Test
     void shouldPreventDuplicatePeers() {
-        swarmInfo.addPeer("peer1", true);
-        swarmInfo.addPeer("peer1", true);
+        assertTrue(swarmInfo.addPeer("peer1", true));
+        assertFalse(swarmInfo.addPeer("peer1", true));
 
         assertEquals(1, swarmInfo.getActivePeers().size());
-        assertEquals(2, swarmInfo.getNumSeeders()); // Counter still increments
+        assertEquals(1, swarmInfo.getNumSeeders());
+    }
+
+    @Test
+    void shouldIgnoreRemovingUnknownPeers() {
+        swarmInfo.addPeer("peer1", false);
+        assertFalse(swarmInfo.removePeer("peer2"));
+        assertTrue(swarmInfo.removePeer("peer1"));
+        assertFalse(swarmInfo.removePeer("peer1"));
+
+        assertEquals(0, swarmInfo.getNumSeeders());
+        assertEquals(0, swarmInfo.getNumLeechers());
+        assertFalse(swarmInfo.hasPeer("peer1"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void deprecatedRemoveShouldUseTheRecordedRole() {
+        swarmInfo.addPeer("peer1", true);
+        swarmInfo.removePeer("peer1", false);
+        swarmInfo.removePeer("peer1", false);
+
+        assertEquals(0, swarmInfo.getNumSeeders());
+        assertEquals(0, swarmInfo.getNumLeechers(), "A wrong or repeated flag no longer drifts the counts");
+    }
+
+    @Test
+    void shouldPromoteLeechersButNeverDemoteSeeders() {
+        swarmInfo.addPeer("peer1", false);
+        assertTrue(swarmInfo.addPeer("peer1", true));
+        assertFalse(swarmInfo.addPeer("peer1", false));
+
+        assertTrue(swarmInfo.isSeeder("peer1"));
+        SwarmInfo.Counts counts = swarmInfo.getCounts();
+        assertEquals(1, counts.getSeeders());
+        assertEquals(0, counts.getLeechers());
+        assertEquals(1, counts.getPeers());
+
+        swarmInfo.removePeer("peer1");
+        assertEquals(0, swarmInfo.getNumPeers(), "Removal uses the role the peer had");
+    }
+
+    @Test
+    void countsShouldStayConsistentUnderConcurrentUpdates() throws InterruptedException {
+        int threads = 4;
+        int perThread = 2000;
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                swarmInfo.addPeer("peer" + t + "-" + i, false);
+            }
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                SwarmInfo.Counts counts = swarmInfo.getCounts();
+                if (counts.getPeers() != threads * perThread) {
+                    torn.set(counts.getSeeders() + " seeders and " + counts.getLeechers() + " leechers");
+                }
+            }
+        });
+        reader.start();
+
+        // Each writer promotes its own peers, twice over, while the reader checks every pair it sees
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    swarmInfo.addPeer("peer" + id + "-" + i, true);
+                    swarmInfo.addPeer("peer" + id + "-" + i, true);
+                    swarmInfo.updateTransferred(1);
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(torn.get(), "Promotions move a peer between counts in one step: " + torn.get());
+        assertEquals(threads * perThread, swarmInfo.getNumSeeders());
+        assertEquals(0, swarmInfo.getNumLeechers());
+        assertEquals(threads * perThread, swarmInfo.getActivePeers().size());
+        assertEquals(threads * perThread, swarmInfo.getTotalTransferred());
+    }
+
+    @Test
+    void concurrentAddsAndRemovesShouldLeaveNoDrift() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            workers.add(new Thread(() -> {
+                for (int round = 0; round < 500; round++) {
+                    for (int i = 0; i < 20; i++) {
+                        swarmInfo.addPeer("peer" + i, i % 2 == 0); // every thread fights over the same ids
+                    }
+                    for (int i = 0; i < 20; i++) {
+                        swarmInfo.removePeer("peer" + i);
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(0, swarmInfo.getNumSeeders());
+        assertEquals(0, swarmInfo.getNumLeechers());
+        assertTrue(swarmInfo.getActivePeers().isEmpty());
     }
 }
\ No newline at end of file
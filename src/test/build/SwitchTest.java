@@ -151,4 +151,44 @@ class SwitchTest {
         assertEquals(2, networkSwitch.getOccupiedPorts().size(),
                 "Should maintain port count");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldFloodUntilDestinationIsLearned() {
+        networkSwitch.addDevice(1, testDevice1);
+        networkSwitch.addDevice(2, testDevice2);
+        assertEquals(2, networkSwitch.getPort(testDevice2));
+        assertEquals(-1, networkSwitch.getPort(new Device("DEV003", "192.168.1.4", "NYC")));
+
+        assertEquals(Switch.FLOOD, networkSwitch.forward(testDevice1, testDevice2, 0));
+        assertEquals(List.of(2), networkSwitch.getFloodPorts(1));
+        assertEquals(1, networkSwitch.forward(testDevice2, testDevice1, 10), "Reply destination was learned");
+        assertEquals(2, networkSwitch.forward(testDevice1, testDevice2, 20));
+        assertEquals(Switch.FILTER, networkSwitch.forward(1, testDevice1.getMacAddress(), testDevice1.getMacAddress(), 30));
+    }
+
+    @Test
+    void learnedEntriesShouldAgeOutAndFollowPortMoves() {
+        Switch agingSwitch = new Switch("SW002", "192.168.1.5", "NYC", 4, 1000, 1000);
+        long mac1 = testDevice1.getMacAddress();
+        long mac2 = testDevice2.getMacAddress();
+        agingSwitch.forward(1, mac1, mac2, 0);
+        assertEquals(1, agingSwitch.forward(2, mac2, mac1, 1000));
+        assertEquals(Switch.FLOOD, agingSwitch.forward(2, mac2, mac1, 1001), "Entry should age out");
+
+        agingSwitch.forward(3, mac1, mac2, 1100);
+        assertEquals(3, agingSwitch.forward(2, mac2, mac1, 1200), "Station moved to port 3");
+
+        agingSwitch.addDevice(3, testDevice1);
+        agingSwitch.removeDevice(3);
+        assertEquals(Switch.FLOOD, agingSwitch.forward(2, mac2, mac1, 1300), "Unplugging flushes the port");
+    }
+
+    @Test
+    void macAddressesShouldBeStableLocallyAdministeredUnicast() {
+        long mac = testDevice1.getMacAddress();
+        assertEquals(mac, new Device("DEV001", "10.0.0.1", "LAX").getMacAddress());
+        assertNotEquals(mac, testDevice2.getMacAddress());
+        assertEquals(0x02, (mac >>> 40) & 0x03, "Locally administered, not multicast");
+        assertEquals(0, mac >>> 48);
+    }
+}
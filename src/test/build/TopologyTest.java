@@ -0,0 +1,170 @@
+package test.build;
+
+import base.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopologyTest {
+    private Topology topology;
+    private Router core;
+    private Router fastEdge;
+    private Router slowEdge;
+    private Switch lan;
+    private Hub hub;
+    private Device peerA;
+    private Device peerB;
+
+    // peerA - lan switch - (fastEdge | slowEdge) - core - hub - peerB
+    @BeforeEach
+    void setUp() {
+        core = new Router("CORE", "10.0.0.1", "NYC", 10000);
+        fastEdge = new Router("FAST", "10.0.1.1", "NYC", 1000);
+        slowEdge = new Router("SLOW", "10.0.2.1", "NYC", 10);
+        lan = new Switch("LAN", "10.0.3.1", "NYC", 8, 1000);
+        hub = new Hub("HUB", "10.0.4.1", "LAX", 4, 100, false);
+        peerA = new Device("PEER-A", "10.0.3.2", "NYC");
+        peerB = new Device("PEER-B", "10.0.4.2", "LAX");
+
+        lan.addDevice(1, peerA);
+        lan.addDevice(2, fastEdge);
+        lan.addDevice(3, slowEdge);
+        core.addDevice(fastEdge);
+        core.addDevice(slowEdge);
+        core.addDevice(hub);
+        hub.addDevice(peerB);
+
+        topology = new Topology();
+        topology.add(core);
+        topology.add(lan);
+    }
+
+    private static List<String> ids(Topology.Path path) {
+        return path.getDevices().stream().map(Device::getDeviceID).toList();
+    }
+
+    @Test
+    void shouldDiscoverDevicesThroughConnections() {
+        assertEquals(7, topology.getDeviceCount());
+        assertEquals(7, topology.getLinkCount());
+    }
+
+    @Test
+    void shouldPreferHigherBandwidthRoute() {
+        Topology.Path path = topology.findPath(peerA, peerB);
+
+        assertEquals(List.of("PEER-A", "LAN", "FAST", "CORE", "HUB", "PEER-B"), ids(path));
+        assertEquals(5, path.getHopCount());
+        assertEquals(5 * Topology.DEFAULT_LINK_LATENCY_MS, path.getLatency(), 1e-9);
+        assertEquals(100.0, path.getBandwidth(), 1e-9, "Hub is the bottleneck");
+    }
+
+    @Test
+    void latencyShouldOutweighBandwidthWhenLarge() {
+        topology.setLinkLatency(lan, fastEdge, 500);
+        assertEquals("SLOW", ids(topology.findPath(peerA, peerB)).get(2));
+    }
+
+    @Test
+    void shouldCachePathsUntilTopologyChanges() {
+        Topology.Path first = topology.findPath(peerA, peerB);
+        assertSame(first, topology.findPath(peerA, peerB));
+        assertEquals(1, topology.getCacheHits());
+        assertEquals(1, topology.getCacheMisses());
+
+        fastEdge.setOnline(false);
+        assertEquals(0, topology.getCachedPathCount(), "Going offline should invalidate cached paths");
+        assertEquals("SLOW", ids(topology.findPath(peerA, peerB)).get(2));
+
+        fastEdge.setOnline(true);
+        core.removeDevice(hub);
+        assertNull(topology.findPath(peerA, peerB), "Removing the hub disconnects peer B");
+        assertEquals(5, topology.getDeviceCount());
+    }
+
+    @Test
+    void churnShouldOnlyDropPathsItCanAffect() {
+        Device peerC = new Device("PEER-C", "10.0.3.3", "NYC");
+        lan.addDevice(4, peerC);
+        Topology.Path path = topology.findPath(peerA, peerB);
+        topology.findPath(peerA, slowEdge);
+
+        peerC.setOnline(false);
+        peerC.setOnline(true);
+        assertEquals(2, topology.getCachedPathCount(), "A leaf off the path changes nothing");
+        slowEdge.setOnline(false);
+        assertSame(path, topology.findPath(peerA, peerB));
+        assertNull(topology.findPath(peerA, slowEdge));
+        assertEquals(3, topology.getCacheMisses());
+
+        fastEdge.setOnline(false);
+        assertNull(topology.findPath(peerA, peerB));
+        slowEdge.setOnline(true);
+        assertEquals("SLOW", ids(topology.findPath(peerA, peerB)).get(2), "A returning node can open a path");
+        fastEdge.setOnline(true);
+        assertEquals("FAST", ids(topology.findPath(peerA, peerB)).get(2), "...or beat a cached one");
+    }
+
+    @Test
+    void bandwidthChangesShouldRerouteWithoutARebuild() {
+        assertEquals("FAST", ids(topology.findPath(peerA, peerB)).get(2));
+        slowEdge.setBandwidth(100000);
+        assertEquals("SLOW", ids(topology.findPath(peerA, peerB)).get(2));
+        slowEdge.setBandwidth(10);
+        assertEquals("FAST", ids(topology.findPath(peerA, peerB)).get(2));
+
+        Device peerC = new Device("PEER-C", "10.0.4.3", "LAX");
+        hub.addDevice(peerC);
+        double shared = topology.findPath(peerA, peerB).getBandwidth();
+        assertTrue(shared < 100.0, "Two stations share the hub");
+        peerC.setOnline(false);
+        assertEquals(100.0, topology.findPath(peerA, peerB).getBandwidth(), 1e-9);
+    }
+
+    @Test
+    void devicesShouldServeSeveralTopologies() {
+        Topology other = new Topology();
+        other.add(core);
+        assertNotNull(other.findPath(core, peerB));
+        assertNotNull(topology.findPath(peerA, peerB));
+
+        hub.setOnline(false);
+        assertNull(other.findPath(core, peerB));
+        assertNull(topology.findPath(peerA, peerB));
+    }
+
+    @Test
+    void shouldPickUpNewConnections() {
+        Device peerC = new Device("PEER-C", "10.0.3.3", "NYC");
+        assertNull(topology.findPath(peerA, peerC), "Unknown devices have no path");
+
+        lan.addDevice(4, peerC);
+        assertEquals(List.of("PEER-A", "LAN", "PEER-C"), ids(topology.findPath(peerA, peerC)));
+    }
+
+    @Test
+    void offlineEndpointsShouldBeUnreachable() {
+        peerB.setOnline(false);
+        assertNull(topology.findPath(peerA, peerB));
+        assertEquals(List.of("PEER-A"), ids(topology.findPath(peerA, peerA)));
+    }
+
+    @Test
+    void cacheShouldEvictLeastRecentlyUsedPaths() {
+        Topology small = new Topology(2);
+        small.add(core);
+        small.add(lan);
+        small.findPath(peerA, peerB);
+        small.findPath(peerB, peerA);
+        small.findPath(peerA, peerB);
+        small.findPath(peerA, core);
+
+        assertEquals(2, small.getCachedPathCount());
+        small.findPath(peerA, peerB);
+        assertEquals(2, small.getCacheHits(), "Recently used path should survive eviction");
+        assertThrows(IllegalArgumentException.class, () -> new Topology(0));
+    }
+}
@@ -1,9 +1,14 @@
 package test.build;
 
+import base.LatencyModel;
 import torrent.TorrentClient;
 import model.TorrentFile;
+import util.Metrics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TorrentClientTest {
@@ -118,4 +123,59 @@ class TorrentClientTest {
         assertEquals(-1, client.getNextNeededPiece("nonexistent"));
         assertFalse(client.isDownloadComplete("nonexistent"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldSelectNearestPeerHoldingPiece() {
+        LatencyModel model = LatencyModel.withDefaultLocations();
+        TorrentClient nearby = new TorrentClient("NEAR", "192.168.1.13", "CHI", 1000, 50.0, 100.0, 10000000L);
+        TorrentClient local = new TorrentClient("LOCAL", "192.168.1.14", "NYC", 1000, 50.0, 100.0, 10000000L);
+        for (TorrentClient c : List.of(client, peer, nearby, local)) {
+            c.initializeDownload(testFile);
+        }
+        peer.getDownloadingFile("hash123").markPieceCompleted(0);
+        nearby.getDownloadingFile("hash123").markPieceCompleted(0);
+
+        assertSame(peer, client.selectPeer("hash123", 0, List.of(peer, nearby, local)),
+                "Without a model the first holder wins");
+        client.setLatencyModel(model);
+        assertSame(nearby, client.selectPeer("hash123", 0, List.of(peer, nearby, local)));
+        nearby.setOnline(false);
+        assertSame(peer, client.selectPeer("hash123", 0, List.of(peer, nearby, local)));
+        assertNull(client.selectPeer("hash123", 1, List.of(peer, nearby, local)));
+    }
+
+    @Test
+    void transfersShouldAccumulateSimulatedTimeAndCrossRegionBytes() {
+        client.setLatencyModel(LatencyModel.withDefaultLocations());
+        client.initializeDownload(testFile);
+        peer.initializeDownload(testFile);
+        peer.getDownloadingFile("hash123").markPieceCompleted(0);
+
+        assertTrue(client.requestPiece("hash123", 0, peer));
+        double expected = client.getLatencyModel().getTransferMillis("LAX", "NYC", PIECE_SIZE, 50.0);
+        assertEquals(expected, client.getTransferMillis(), 1e-9);
+        assertEquals(PIECE_SIZE, client.getCrossRegionBytes());
+    }
+
+    @Test
+    void shouldRecordTransfersIntoItsMetrics() {
+        Metrics metrics = new Metrics();
+        client.setMetrics(metrics);
+        peer.setMetrics(metrics);
+        client.initializeDownload(testFile);
+        peer.initializeDownload(testFile);
+        peer.getDownloadingFile("hash123").markPieceCompleted(0);
+        peer.getDownloadingFile("hash123").markPieceCompleted(1);
+
+        assertTrue(client.requestPiece("hash123", 0, peer));
+        assertTrue(client.requestPiece("hash123", 1, peer));
+
+        Metrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2L * PIECE_SIZE, snapshot.getCounter(TorrentClient.BYTES_DOWNLOADED));
+        assertEquals(2L * PIECE_SIZE, snapshot.getCounter(TorrentClient.BYTES_UPLOADED));
+        Metrics.HistogramSnapshot latency = snapshot.getHistogram(TorrentClient.PIECE_LATENCY);
+        assertEquals(2, latency.getCount());
+        // 256KB at the peer's 50 Mbps upload limit
+        assertEquals(Math.round(LatencyModel.streamMillis(PIECE_SIZE, 50.0) * 1000), latency.getMax());
+    }
+}
@@ -1,9 +1,13 @@
 package test.build;
 
+import model.FileSegment;
 import model.TorrentFile;
 import model.Piece;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TorrentFileTest {
@@ -120,4 +124,65 @@ class TorrentFileTest {
             torrentFile.getPieces().add(new Piece(4, PIECE_SIZE));
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void singleFileTorrentShouldHaveOneFile() {
+        assertFalse(torrentFile.isMultiFile());
+        assertEquals(1, torrentFile.getFileCount());
+        assertEquals("test.mp4", torrentFile.getFilePath(0));
+        assertEquals(1048576L, torrentFile.getFileLength(0));
+        assertEquals(0, torrentFile.getFileIndex(1048575L));
+    }
+
+    @Test
+    void shouldMapPiecesAcrossFileBoundaries() {
+        // 100KB, empty, 300KB and 200KB files over 256KB pieces
+        TorrentFile multi = new TorrentFile("hash999", "album",
+                List.of("a.bin", "empty.txt", "b.bin", "sub/c.bin"),
+                new long[] {102400L, 0L, 307200L, 204800L}, PIECE_SIZE, null);
+
+        assertTrue(multi.isMultiFile());
+        assertEquals(614400L, multi.getFileSize());
+        assertEquals(3, multi.getPieceCount());
+        assertEquals(0, multi.getFileIndex(0));
+        assertEquals(2, multi.getFileIndex(102400L), "Empty file should be skipped");
+        assertEquals(3, multi.getFileIndex(409600L));
+
+        List<FileSegment> first = multi.getPieceSegments(0);
+        assertEquals(2, first.size());
+        assertEquals(0, first.get(0).getFileIndex());
+        assertEquals(102400, first.get(0).getLength());
+        assertEquals(2, first.get(1).getFileIndex());
+        assertEquals(0L, first.get(1).getFileOffset());
+        assertEquals(102400, first.get(1).getPieceOffset());
+        assertEquals(PIECE_SIZE - 102400, first.get(1).getLength());
+
+        List<FileSegment> last = multi.getPieceSegments(2);
+        assertEquals(1, last.size());
+        assertEquals(3, last.get(0).getFileIndex());
+        assertEquals(614400 - 2 * PIECE_SIZE, last.get(0).getLength());
+        assertTrue(multi.getPieceSegments(3).isEmpty());
+    }
+
+    @Test
+    void modificationTimesShouldComeOnlyFromRestoredProgress() {
+        TorrentFile multi = new TorrentFile("hash999", "album",
+                List.of("a.bin", "b.bin", "c.bin"),
+                new long[] {102400L, 307200L, 204800L}, PIECE_SIZE, null);
+        multi.markPieceCompleted(0);
+        assertArrayEquals(new long[3], multi.getFileModifiedTimes(), "Completing a piece writes no file");
+
+        multi.restoreProgress(multi.toBitfield(), new long[] {1L, 2L, 3L});
+        assertArrayEquals(new long[] {1L, 2L, 3L}, multi.getFileModifiedTimes());
+        assertThrows(IllegalArgumentException.class, () -> multi.restoreProgress(multi.toBitfield(), new long[2]));
+    }
+
+    @Test
+    void shouldRejectInvalidFileLayout() {
+        assertThrows(IllegalArgumentException.class, () -> new TorrentFile("h", "dir",
+                List.of("a", "b"), new long[] {1L}, PIECE_SIZE, null));
+        assertThrows(IllegalArgumentException.class, () -> new TorrentFile("h", "dir",
+                List.of("a"), new long[] {-1L}, PIECE_SIZE, null));
+        assertThrows(IllegalArgumentException.class, () -> torrentFile.getFileIndex(1048576L));
+    }
+}
@@ -2,6 +2,7 @@ package test.build;
 
 import torrent.TorrentServer;
 import model.TorrentFile;
+import util.Metrics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import java.util.Set;
@@ -136,4 +137,19 @@ class TorrentServerTest {
         assertNotNull(peers, "Should return empty set after hosting null file");
         assertTrue(peers.isEmpty(), "Should have no peers after hosting null file");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRecordRegistrationsIntoItsMetrics() {
+        Metrics metrics = new Metrics();
+        server.setMetrics(metrics);
+        server.hostFile(testFile);
+        server.registerPeer("hash123", "PEER1");
+        server.registerPeer("hash123", "PEER1");
+        server.registerPeer("unknown", "PEER2");
+
+        Metrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getCounter(TorrentServer.REGISTRATIONS));
+        assertEquals(1, snapshot.getGauge(TorrentServer.ACTIVE_PEERS));
+        assertEquals(1, snapshot.getGauge(TorrentServer.HOSTED_FILES));
+    }
+}
@@ -1,11 +1,19 @@
 package test.build;
 
+import base.Device;
+import base.DeviceEventBus;
+import model.SwarmInfo;
+import torrent.TorrentClient;
 import torrent.TorrentTracker;
+import util.Metrics;
 import model.TorrentFile;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TorrentTrackerTest {
@@ -40,7 +48,7 @@ class TorrentTrackerTest {
     }
 
     @ParameterizedTest
-    @ValueSource(strings = {"started", "completed", "stopped", "paused"})
+    @ValueSource(strings = {"started", "completed", "paused"})
     void shouldHandleVariousAnnounceEvents(String event) {
         tracker.trackFile(testFile);
         tracker.announce("hash123", "PEER1", event);
@@ -129,4 +137,150 @@ class TorrentTrackerTest {
             tracker.announce("hash123", "PEER1", null);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldEncodeCompactPeerList() {
+        tracker.trackFile(testFile);
+        tracker.announcePeer("hash123", new Device("PEER1", "192.168.1.20", "NYC"), "started");
+        tracker.announce("hash123", "PEER2", "started"); // No address known
+
+        assertTrue(tracker.getPeers("hash123").contains("PEER1"));
+        byte[] compact = tracker.getCompactPeers("hash123");
+        assertArrayEquals(new byte[] {(byte) 192, (byte) 168, 1, 20, 0x1A, (byte) 0xE1}, compact);
+        assertEquals(0, tracker.getCompactPeers("unknown").length);
+    }
+
+    @Test
+    void shouldSeparateIPv6PeersIntoPeers6() {
+        tracker.trackFile(testFile);
+        tracker.announcePeer("hash123", new Device("PEER1", "192.168.1.20", "NYC"), "started");
+        tracker.announcePeer("hash123", new Device("PEER2", "2001:db8::2", "LAX"), "started");
+
+        assertEquals(TorrentTracker.COMPACT_PEER_LENGTH, tracker.getCompactPeers("hash123").length);
+        byte[] compact6 = tracker.getCompactPeers6("hash123");
+        assertEquals(TorrentTracker.COMPACT_PEER6_LENGTH, compact6.length);
+        assertEquals(0x20, compact6[0]);
+        assertEquals(0x01, compact6[1]);
+        assertEquals(2, compact6[15]);
+        assertEquals(0x1A, compact6[16]);
+        assertEquals((byte) 0xE1, compact6[17]);
+        assertEquals(0, tracker.getCompactPeers6("unknown").length);
+    }
+
+    @Test
+    void onlinePeerCountsShouldFollowEventBatches() {
+        tracker.trackFile(testFile);
+        DeviceEventBus bus = new DeviceEventBus();
+        bus.subscribe(tracker);
+        Device first = new Device("PEER1", "10.0.0.2", "NYC");
+        Device second = new Device("PEER2", "10.0.0.3", "NYC");
+        bus.watch(first);
+        bus.watch(second);
+        tracker.announcePeer("hash123", first, "started");
+        tracker.announcePeer("hash123", second, "started");
+        tracker.announcePeer("hash123", second, "completed");
+        assertEquals(2, tracker.getOnlinePeerCount("hash123"));
+
+        first.setOnline(false);
+        assertEquals(2, tracker.getOnlinePeerCount("hash123"), "Counts change when the tick is flushed");
+        bus.flush();
+        assertEquals(1, tracker.getOnlinePeerCount("hash123"));
+
+        second.setOnline(false);
+        second.setOnline(true);
+        first.setOnline(true);
+        bus.flush();
+        assertEquals(2, tracker.getOnlinePeerCount("hash123"));
+        assertEquals(0, tracker.getOnlinePeerCount("unknown"));
+    }
+
+    @Test
+    void stoppedPeersShouldLeaveEveryView() {
+        Metrics metrics = new Metrics();
+        tracker.setMetrics(metrics);
+        tracker.trackFile(testFile);
+        DeviceEventBus bus = new DeviceEventBus();
+        bus.subscribe(tracker);
+        Device first = new Device("PEER1", "10.0.0.2", "NYC");
+        Device second = new Device("PEER2", "10.0.0.3", "NYC");
+        bus.watch(first);
+        bus.watch(second);
+        tracker.announcePeer("hash123", first, "started");
+        tracker.announcePeer("hash123", second, "started");
+
+        second.setOnline(false); // churn takes the device down, then announces
+        tracker.announcePeer("hash123", second, "stopped");
+        bus.flush();
+        assertEquals(Set.of("PEER1"), tracker.getPeers("hash123"));
+        assertEquals(TorrentTracker.COMPACT_PEER_LENGTH, tracker.getCompactPeers("hash123").length);
+        assertEquals(1, tracker.getOnlinePeerCount("hash123"));
+        assertEquals(1, metrics.snapshot().getGauge(TorrentTracker.ONLINE_PEERS));
+
+        second.setOnline(true);
+        tracker.announcePeer("hash123", second, "started");
+        bus.flush();
+        assertEquals(Set.of("PEER1", "PEER2"), tracker.getPeers("hash123"));
+        assertEquals(2, tracker.getOnlinePeerCount("hash123"));
+        assertEquals(2, metrics.snapshot().getGauge(TorrentTracker.ONLINE_PEERS));
+    }
+
+    @Test
+    void shouldRecordAnnouncesIntoItsMetrics() {
+        Metrics metrics = new Metrics();
+        tracker.setMetrics(metrics);
+        tracker.trackFile(testFile);
+        tracker.announcePeer("hash123", new Device("PEER1", "192.168.1.10", "NYC"), "started");
+        tracker.announcePeer("hash123", new Device("PEER2", "192.168.1.11", "NYC"), "started");
+        tracker.announce("hash123", "PEER3", "started");
+
+        Metrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getCounter(TorrentTracker.ANNOUNCES), "Both announce forms count");
+        assertEquals(2, snapshot.getGauge(TorrentTracker.ONLINE_PEERS), "Only devices are known to be online");
+        assertEquals(3, snapshot.getHistogram(TorrentTracker.ANNOUNCE_LATENCY).getCount());
+    }
+
+    @Test
+    void swarmShouldFollowAnnounces() {
+        tracker.trackFile(testFile);
+        SwarmInfo swarm = tracker.getSwarm("hash123");
+        tracker.announce("hash123", "PEER1", "started");
+        tracker.announce("hash123", "PEER2", "started");
+        tracker.announce("hash123", "PEER2", "started");
+        assertEquals(0, swarm.getNumSeeders());
+        assertEquals(2, swarm.getNumLeechers(), "Repeated announces count once");
+
+        tracker.announce("hash123", "PEER2", "completed");
+        tracker.announce("hash123", "PEER3", "completed");
+        assertEquals(2, swarm.getNumSeeders());
+        assertEquals(1, swarm.getNumLeechers());
+
+        tracker.announce("hash123", "PEER2", "stopped");
+        tracker.announce("hash123", "PEER4", "stopped");
+        assertEquals(1, swarm.getNumSeeders());
+        assertEquals(1, swarm.getNumLeechers());
+        assertEquals(Set.of("PEER1", "PEER3"), tracker.getPeers("hash123"), "Stopped peers leave the peer list");
+        assertNull(tracker.getSwarm("unknown"));
+    }
+
+    @Test
+    void clientsHoldingTheWholeFileShouldSeed() {
+        tracker.trackFile(testFile);
+        TorrentClient client = new TorrentClient("PEER1", "10.0.0.2", "NYC", 100, 10.0, 10.0, 10_000_000L);
+        client.initializeDownload(testFile);
+        for (int piece = 0; piece < testFile.getPieceCount(); piece++) {
+            client.getDownloadingFile("hash123").markPieceCompleted(piece);
+        }
+        tracker.announcePeer("hash123", client, "started"); // a returning seeder announces started
+        Device offline = new Device("PEER2", "10.0.0.3", "NYC");
+        offline.setOnline(false);
+        tracker.announcePeer("hash123", offline, "started");
+
+        SwarmInfo swarm = tracker.getSwarm("hash123");
+        assertEquals(1, swarm.getNumSeeders());
+        assertEquals(0, swarm.getNumLeechers(), "An offline device cannot join");
+
+        tracker.recordTransfer("hash123", PIECE_SIZE);
+        tracker.recordTransfer("unknown", PIECE_SIZE);
+        assertEquals(PIECE_SIZE, swarm.getTotalTransferred());
+    }
+}
@@ -0,0 +1,120 @@
+package test.build;
+
+import simulation.ScaleSimulation;
+import simulation.ScaleSpec;
+import simulation.Simulation;
+import simulation.TraceReplayer;
+import simulation.TraceWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceWriterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldRoundTripRecordsAndPeerIds() throws IOException {
+        Path file = dir.resolve("run.trace");
+        try (TraceWriter trace = new TraceWriter(file, 2)) { // tiny ring, so it drains repeatedly
+            int seed = trace.peerIndex("SEED");
+            int peer = trace.peerIndex("PEER1");
+            assertEquals(seed, trace.peerIndex("SEED"));
+            trace.pieceComplete(0, seed, 0, -1);
+            trace.pieceComplete(0, seed, 1, -1);
+            trace.announce(0, seed, "completed");
+            trace.announce(1, peer, "started");
+            trace.transferStart(2, peer, 0, seed);
+            trace.transferEnd(3, peer, 0, seed, true);
+            trace.pieceComplete(3, peer, 0, seed);
+            trace.choke(4, seed, peer, true);
+            trace.transferStart(5, peer, 1, seed);
+            trace.announce(6, peer, "stopped");
+        }
+        assertEquals(32 + 10 * TraceWriter.RECORD_BYTES + 2 * 4 + "SEED".length() + "PEER1".length(),
+                Files.size(file), "The unused end of the mapped window is trimmed");
+
+        TraceReplayer replayer = new TraceReplayer(file);
+        assertEquals(10, replayer.getRecordCount());
+        assertEquals(2, replayer.getPeerCount());
+        int peer = replayer.indexOf("PEER1");
+        int seed = replayer.indexOf("SEED");
+        assertEquals(TraceWriter.TRANSFER_START, replayer.getType(4));
+
+        TraceReplayer.SwarmState early = replayer.stateAt(2);
+        assertTrue(early.isActive(peer));
+        assertEquals(0, early.getCompletedPieceCount(peer));
+        assertEquals(2, early.getCompletedPieceCount(seed));
+        assertEquals(1, early.getInFlightTransfers());
+
+        TraceReplayer.SwarmState later = replayer.stateAt(5);
+        assertTrue(later.isPieceCompleted(peer, 0));
+        assertEquals(1, later.getCompletedTransfers());
+        assertEquals(1, later.getInFlightTransfers());
+        assertTrue(later.isChoked(seed, peer));
+
+        assertFalse(replayer.finalState().isActive(peer));
+        assertEquals(7, replayer.countUpTo(3));
+        assertEquals(0, replayer.countUpTo(-1));
+    }
+
+    @Test
+    void shouldRejectTimeGoingBackwards() throws IOException {
+        try (TraceWriter trace = new TraceWriter(dir.resolve("bad.trace"))) {
+            trace.announce(5, trace.peerIndex("PEER1"), "started");
+            assertThrows(IllegalArgumentException.class, () -> trace.announce(4, 0, "stopped"));
+        }
+    }
+
+    @Test
+    void shouldRejectFilesThatAreNotTraces() throws IOException {
+        Path file = Files.write(dir.resolve("junk.trace"), new byte[64]);
+        assertThrows(IOException.class, () -> new TraceReplayer(file));
+    }
+
+    @Test
+    void replayShouldMatchTheScaleRun() throws IOException {
+        ScaleSpec spec = ScaleSpec.parse("clients=a:100:100;arrivals=poisson:20;sessions=exp:60;downtime=5;"
+                + "file=1048576;cycles=500");
+        ScaleSimulation simulation = new ScaleSimulation(spec);
+        Path file = dir.resolve("scale.trace");
+        ScaleSimulation.Report report;
+        try (TraceWriter trace = new TraceWriter(file)) {
+            simulation.recordTo(trace);
+            report = simulation.run();
+        }
+
+        TraceReplayer replayer = new TraceReplayer(file);
+        TraceReplayer.SwarmState end = replayer.finalState();
+        assertEquals(report.getTransfers(), end.getCompletedTransfers());
+        assertEquals(0, end.getInFlightTransfers());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(4, end.getCompletedPieceCount(replayer.indexOf("PEER" + i)));
+        }
+
+        TraceReplayer.SwarmState start = replayer.stateAt(0);
+        assertEquals(4, start.getCompletedPieceCount(replayer.indexOf("SEED1")));
+        assertFalse(start.isActive(replayer.indexOf("PEER0")), "Clients arrive later under the churn model");
+    }
+
+    @Test
+    void simulationShouldRecordItsTransfers() throws IOException {
+        Path file = dir.resolve("small.trace");
+        try (TraceWriter trace = new TraceWriter(file)) {
+            Simulation simulation = new Simulation(3, 1, null);
+            simulation.recordTo(trace);
+            simulation.runCycle();
+        }
+
+        TraceReplayer replayer = new TraceReplayer(file);
+        TraceReplayer.SwarmState afterFirstCycle = replayer.stateAt(1);
+        assertEquals(9, afterFirstCycle.getCompletedTransfers(), "Three peers fetch three pieces each");
+        assertTrue(afterFirstCycle.isActive(replayer.indexOf("PEER001")));
+        assertEquals(3, afterFirstCycle.getCompletedPieceCount(replayer.indexOf("PEER002")));
+    }
+}
@@ -0,0 +1,134 @@
+package torrent;
+
+import model.TorrentFile;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/*
+ * Binary fast-resume record, one per torrent:
+ *
+ *   int    magic 'TRSM'
+ *   byte   version
+ *   short  info hash length, followed by the UTF-8 info hash
+ *   int    piece count
+ *   int    file count, followed by one long mtime per file
+ *   byte[] bitfield, (pieceCount + 7) / 8 bytes, piece 0 in the high bit
+ *   int    CRC32 of everything above
+ */
+public final class FastResume {
+    public static final String FILE_EXTENSION = ".resume";
+
+    private static final int MAGIC = 0x5452534D;
+    private static final byte VERSION = 1;
+
+    private FastResume() {
+    }
+
+    public static Path resumeFile(Path directory, String infoHash) {
+        return directory.resolve(infoHash + FILE_EXTENSION);
+    }
+
+    public static void save(Path file, TorrentFile torrent) throws IOException {
+        save(file, torrent, torrent.getFileModifiedTimes());
+    }
+
+    // mtimes are the data files' modification times as of now, e.g. from PieceStorage
+    public static void save(Path file, TorrentFile torrent, long[] mtimes) throws IOException {
+        if (mtimes == null || mtimes.length != torrent.getFileCount()) {
+            throw new IllegalArgumentException("Expected one modification time per file");
+        }
+        byte[] hash = torrent.getInfoHash().getBytes(StandardCharsets.UTF_8);
+        byte[] bitfield = torrent.toBitfield();
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 2 + hash.length + 4 + 4
+                + mtimes.length * 8 + bitfield.length + 4);
+        buffer.putInt(MAGIC).put(VERSION);
+        buffer.putShort((short) hash.length).put(hash);
+        buffer.putInt(torrent.getPieceCount());
+        buffer.putInt(mtimes.length);
+        for (long mtime : mtimes) {
+            buffer.putLong(mtime);
+        }
+        buffer.put(bitfield);
+        buffer.putInt(checksum(buffer.array(), buffer.position()));
+        buffer.flip();
+
+        // Write next to the target and rename over it so a crash never leaves a torn file
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Trusts the record without looking at the data files
+    public static boolean load(Path file, TorrentFile torrent) throws IOException {
+        return load(file, torrent, null);
+    }
+
+    // Restores progress into torrent; returns false when the record is missing, corrupt,
+    // belongs to another torrent or the data files changed since it was written
+    public static boolean load(Path file, TorrentFile torrent, long[] currentModifiedTimes) throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (data.length < 4 || checksum(data, data.length - 4) != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+            return false;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data, 0, data.length - 4);
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                return false;
+            }
+            byte[] hash = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(hash);
+            if (!torrent.getInfoHash().equals(new String(hash, StandardCharsets.UTF_8))) {
+                return false;
+            }
+            if (buffer.getInt() != torrent.getPieceCount()) {
+                return false;
+            }
+            long[] mtimes = new long[buffer.getInt()];
+            for (int i = 0; i < mtimes.length; i++) {
+                mtimes[i] = buffer.getLong();
+            }
+            if (currentModifiedTimes != null && !Arrays.equals(mtimes, currentModifiedTimes)) {
+                return false;
+            }
+            byte[] bitfield = new byte[(torrent.getPieceCount() + 7) >>> 3];
+            buffer.get(bitfield);
+            if (buffer.hasRemaining() || mtimes.length != torrent.getFileModifiedTimes().length) {
+                return false;
+            }
+            torrent.restoreProgress(bitfield, mtimes);
+            return true;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            return false;
+        }
+    }
+
+    private static int checksum(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,206 @@
+package torrent;
+
+import model.TorrentFile;
+import util.BencodeReader;
+import util.BencodeWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+public class Metainfo {
+    // Keys the parser keeps, matched against the raw bytes so no key is decoded
+    private static final String[] TOP_KEYS = {"announce", "info"};
+    private static final String[] INFO_KEYS = {"name", "length", "piece length", "pieces", "files"};
+    private static final String[] FILE_KEYS = {"length", "path"};
+
+    private final String announce;
+    private final TorrentFile torrentFile;
+
+    public Metainfo(String announce, TorrentFile torrentFile) {
+        this.announce = announce;
+        this.torrentFile = torrentFile;
+    }
+
+    public String getAnnounce() { return announce; }
+    public TorrentFile getTorrentFile() { return torrentFile; }
+
+    public static Metainfo load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static Metainfo parse(InputStream in) throws IOException {
+        return parse(BencodeReader.of(in));
+    }
+
+    public static Metainfo parse(ByteBuffer data) {
+        return parse(new BencodeReader(data));
+    }
+
+    private static Metainfo parse(BencodeReader reader) {
+        String announce = null;
+        String name = null;
+        long length = -1;
+        long pieceLength = -1;
+        ByteBuffer pieces = null;
+        String infoHash = null;
+        List<String> filePaths = null;
+        long[] fileLengths = null;
+
+        reader.beginDictionary();
+        while (reader.hasNext()) {
+            int key = reader.readKey(TOP_KEYS);
+            if (key == 0) {
+                announce = reader.readString();
+            } else if (key == 1) {
+                int start = reader.position();
+                reader.beginDictionary();
+                while (reader.hasNext()) {
+                    switch (reader.readKey(INFO_KEYS)) {
+                        case 0 -> name = reader.readString();
+                        case 1 -> length = reader.readInteger();
+                        case 2 -> pieceLength = reader.readInteger();
+                        case 3 -> pieces = reader.readBytes();
+                        case 4 -> {
+                            filePaths = new ArrayList<>();
+                            fileLengths = readFiles(reader, filePaths);
+                        }
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endContainer();
+                infoHash = sha1Hex(reader.slice(start, reader.position()));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endContainer();
+
+        if (infoHash == null || name == null || (length < 0 && filePaths == null) || pieces == null
+                || pieceLength <= 0 || pieceLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Metainfo is missing required info fields");
+        }
+        if (pieces.remaining() % TorrentFile.PIECE_HASH_LENGTH != 0) {
+            throw new IllegalArgumentException("Piece hashes length is not a multiple of "
+                    + TorrentFile.PIECE_HASH_LENGTH);
+        }
+        byte[] pieceHashes = new byte[pieces.remaining()];
+        pieces.get(pieceHashes);
+        TorrentFile file = filePaths != null
+                ? new TorrentFile(infoHash, name, filePaths, fileLengths, (int) pieceLength, pieceHashes)
+                : new TorrentFile(infoHash, name, length, (int) pieceLength, pieceHashes);
+        return new Metainfo(announce, file);
+    }
+
+    private static long[] readFiles(BencodeReader reader, List<String> paths) {
+        long[] lengths = new long[16];
+        reader.beginList();
+        while (reader.hasNext()) {
+            long length = -1;
+            StringBuilder path = new StringBuilder();
+            reader.beginDictionary();
+            while (reader.hasNext()) {
+                int key = reader.readKey(FILE_KEYS);
+                if (key == 0) {
+                    length = reader.readInteger();
+                } else if (key == 1) {
+                    reader.beginList();
+                    while (reader.hasNext()) {
+                        if (path.length() > 0) {
+                            path.append('/');
+                        }
+                        path.append(reader.readString());
+                    }
+                    reader.endContainer();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endContainer();
+            if (length < 0 || path.length() == 0) {
+                throw new IllegalArgumentException("File entry needs a length and a path");
+            }
+            if (paths.size() == lengths.length) {
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            lengths[paths.size()] = length;
+            paths.add(path.toString());
+        }
+        reader.endContainer();
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("Multi-file torrent has no files");
+        }
+        return Arrays.copyOf(lengths, paths.size());
+    }
+
+    // The info hash is SHA-1 over the exact bencoded info dictionary
+    public byte[] encodeInfo() {
+        ByteArrayOutputStream info = new ByteArrayOutputStream();
+        try {
+            BencodeWriter writer = new BencodeWriter(info).beginDictionary();
+            if (torrentFile.isMultiFile()) {
+                writer.writeString("files").beginList();
+                for (int i = 0; i < torrentFile.getFileCount(); i++) {
+                    writer.beginDictionary()
+                            .writeString("length").writeInteger(torrentFile.getFileLength(i))
+                            .writeString("path").beginList();
+                    for (String part : torrentFile.getFilePath(i).split("/")) {
+                        writer.writeString(part);
+                    }
+                    writer.endContainer().endContainer();
+                }
+                writer.endContainer();
+            } else {
+                writer.writeString("length").writeInteger(torrentFile.getFileSize());
+            }
+            writer.writeString("name").writeString(torrentFile.getFileName())
+                    .writeString("piece length").writeInteger(torrentFile.getPieceSize())
+                    .writeString("pieces").writeBytes(requirePieceHashes())
+                    .endContainer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return info.toByteArray();
+    }
+
+    public void write(OutputStream out) throws IOException {
+        BencodeWriter writer = new BencodeWriter(out).beginDictionary();
+        if (announce != null) {
+            writer.writeString("announce").writeString(announce);
+        }
+        writer.writeString("info");
+        out.write(encodeInfo());
+        writer.endContainer();
+    }
+
+    private byte[] requirePieceHashes() {
+        byte[] hashes = torrentFile.getPieceHashes();
+        if (hashes == null) {
+            throw new IllegalStateException("Torrent has no piece hashes");
+        }
+        return hashes;
+    }
+
+    public static String sha1Hex(ByteBuffer data) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            sha1.update(data.duplicate());
+            return HexFormat.of().formatHex(sha1.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
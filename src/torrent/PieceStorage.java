@@ -0,0 +1,119 @@
+package torrent;
+
+import model.FileSegment;
+import model.TorrentFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads and writes whole pieces of a torrent laid out as files under a root directory
+public class PieceStorage implements Closeable {
+    private final TorrentFile torrent;
+    private final Path[] paths;
+    private final FileChannel[] channels;
+
+    public PieceStorage(Path root, TorrentFile torrent) {
+        this.torrent = torrent;
+        this.paths = new Path[torrent.getFileCount()];
+        this.channels = new FileChannel[torrent.getFileCount()];
+        Path base = (torrent.isMultiFile() ? root.resolve(torrent.getFileName()) : root).normalize();
+        for (int i = 0; i < paths.length; i++) {
+            Path path = base.resolve(torrent.getFilePath(i)).normalize();
+            if (!path.startsWith(base)) {
+                throw new IllegalArgumentException("File path escapes download directory: " + torrent.getFilePath(i));
+            }
+            paths[i] = path;
+        }
+    }
+
+    public Path getPath(int fileIndex) {
+        return paths[fileIndex];
+    }
+
+    public void writePiece(int pieceIndex, ByteBuffer data) throws IOException {
+        int pieceLength = requirePieceLength(pieceIndex, data);
+        int base = data.position();
+        for (FileSegment segment : torrent.getPieceSegments(pieceIndex)) {
+            ByteBuffer chunk = data.duplicate();
+            chunk.position(base + segment.getPieceOffset()).limit(base + segment.getPieceOffset() + segment.getLength());
+            FileChannel channel = channel(segment.getFileIndex());
+            long position = segment.getFileOffset();
+            while (chunk.hasRemaining()) {
+                position += channel.write(chunk, position);
+            }
+        }
+        data.position(base + pieceLength);
+    }
+
+    public void readPiece(int pieceIndex, ByteBuffer destination) throws IOException {
+        int pieceLength = requirePieceLength(pieceIndex, destination);
+        int base = destination.position();
+        for (FileSegment segment : torrent.getPieceSegments(pieceIndex)) {
+            ByteBuffer chunk = destination.duplicate();
+            chunk.position(base + segment.getPieceOffset()).limit(base + segment.getPieceOffset() + segment.getLength());
+            FileChannel channel = channel(segment.getFileIndex());
+            long position = segment.getFileOffset();
+            while (chunk.hasRemaining()) {
+                int read = channel.read(chunk, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + paths[segment.getFileIndex()]);
+                }
+                position += read;
+            }
+        }
+        destination.position(base + pieceLength);
+    }
+
+    private int requirePieceLength(int pieceIndex, ByteBuffer buffer) {
+        if (pieceIndex < 0 || pieceIndex >= torrent.getPieceCount()) {
+            throw new IllegalArgumentException("Invalid piece index: " + pieceIndex);
+        }
+        int pieceLength = torrent.getPieces().get(pieceIndex).getSize();
+        if (buffer.remaining() < pieceLength) {
+            throw new IllegalArgumentException("Buffer smaller than piece " + pieceIndex);
+        }
+        return pieceLength;
+    }
+
+    private FileChannel channel(int fileIndex) throws IOException {
+        FileChannel channel = channels[fileIndex];
+        if (channel == null) {
+            Files.createDirectories(paths[fileIndex].getParent());
+            channel = FileChannel.open(paths[fileIndex], StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channels[fileIndex] = channel;
+        }
+        return channel;
+    }
+
+    public long[] getFileModifiedTimes() throws IOException {
+        long[] times = new long[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            times[i] = Files.exists(paths[i]) ? Files.getLastModifiedTime(paths[i]).toMillis() : 0L;
+        }
+        return times;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] != null) {
+                try {
+                    channels[i].close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+                channels[i] = null;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
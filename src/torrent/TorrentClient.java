@@ -1,47 +1,154 @@
 package torrent;
 
 import base.Computer;
+import base.LatencyModel;
 import model.PeerStatus;
 import model.Piece;
 import model.TorrentFile;
+import util.FlightEvents;
+import util.IPAddress;
+import util.Log;
+import util.Metrics;
+import util.RandomStreams;
+import util.SplitMix;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 public class TorrentClient extends Computer {
+    public static final String PIECE_LATENCY = "client.piece_latency_us"; // simulated, RTT included
+    public static final String BYTES_DOWNLOADED = "client.bytes_downloaded";
+    public static final String BYTES_UPLOADED = "client.bytes_uploaded";
+    public static final String FAILED_REQUESTS = "client.failed_requests";
+
     private final Map<String, TorrentFile> downloadingFiles;
     private final Map<String, PeerStatus> peerStatuses;
-    private final Random random;
+    private SplitMix random;
+    private LatencyModel latencyModel; // null ignores location
+    private Path downloadDirectory; // where PieceStorage keeps the data; null when pieces are only simulated
+    private double transferMillis;
+    private long crossRegionBytes;
+    private Metrics.Histogram pieceLatency;
+    private Metrics.Counter bytesDownloaded;
+    private Metrics.Counter bytesUploaded;
+    private Metrics.Counter failedRequests;
 
     public TorrentClient(String deviceID, String ipAddress, String location,
                          int bandwidth, double maxUploadSpeed, double maxDownloadSpeed,
                          long storageCapacity) {
-        super(deviceID, ipAddress, location, bandwidth, maxUploadSpeed, maxDownloadSpeed, storageCapacity);
+        this(deviceID, IPAddress.parse(ipAddress), location, bandwidth, maxUploadSpeed, maxDownloadSpeed,
+                storageCapacity);
+    }
+
+    public TorrentClient(String deviceID, IPAddress address, String location,
+                         int bandwidth, double maxUploadSpeed, double maxDownloadSpeed,
+                         long storageCapacity) {
+        super(deviceID, address, location, bandwidth, maxUploadSpeed, maxDownloadSpeed, storageCapacity);
         this.downloadingFiles = new HashMap<>();
         this.peerStatuses = new HashMap<>();
-        this.random = new Random();
+        this.random = new RandomStreams(0).stream(String.valueOf(deviceID)); // reproducible per client
+        setMetrics(Metrics.global());
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.pieceLatency = metrics.histogram(PIECE_LATENCY);
+        this.bytesDownloaded = metrics.counter(BYTES_DOWNLOADED);
+        this.bytesUploaded = metrics.counter(BYTES_UPLOADED);
+        this.failedRequests = metrics.counter(FAILED_REQUESTS);
+    }
+
+    // Lets a simulation hand out streams derived from its own seed
+    public void setRandom(SplitMix random) {
+        this.random = Objects.requireNonNull(random);
+    }
+
+    public void setLatencyModel(LatencyModel latencyModel) {
+        this.latencyModel = latencyModel;
+    }
+
+    public LatencyModel getLatencyModel() {
+        return latencyModel;
+    }
+
+    public void setDownloadDirectory(Path downloadDirectory) {
+        this.downloadDirectory = downloadDirectory;
+    }
+
+    public Path getDownloadDirectory() {
+        return downloadDirectory;
     }
 
     public void initializeDownload(TorrentFile file) {
         if (hasStorageSpace(file.getFileSize())) {
             // Create a new instance of TorrentFile
-            TorrentFile newFile = new TorrentFile(
-                    file.getInfoHash(),
-                    file.getFileName(),
-                    file.getFileSize(),
-                    file.getPieceSize()
-            );
+            TorrentFile newFile = new TorrentFile(file);
             downloadingFiles.put(file.getInfoHash(), newFile);
-            System.out.println(getDeviceID() + " started for " + file.getInfoHash());
-            System.out.println("Started downloading: " + file.getFileName());
+            Log log = Log.global();
+            if (log.isEnabled(Log.Level.DEBUG)) {
+                log.log(Log.Level.DEBUG, "{} started for {}", getDeviceID(), file.getInfoHash());
+                log.log(Log.Level.DEBUG, "Started downloading: {}", file.getFileName());
+            }
         } else {
-            System.out.println("Insufficient storage for: " + file.getFileName());
+            Log.global().log(Log.Level.WARN, "Insufficient storage for: {}", file.getFileName());
         }
     }
 
+    public boolean resumeDownload(TorrentFile file, Path resumeDirectory) throws IOException {
+        initializeDownload(file);
+        TorrentFile localFile = downloadingFiles.get(file.getInfoHash());
+        if (localFile == null) {
+            return false;
+        }
+        // A data file touched since the checkpoint makes the record stale, so nothing is trusted
+        return FastResume.load(FastResume.resumeFile(resumeDirectory, file.getInfoHash()), localFile,
+                fileModifiedTimes(localFile));
+    }
+
+    public void checkpoint(Path resumeDirectory) throws IOException {
+        for (TorrentFile file : downloadingFiles.values()) {
+            FastResume.save(FastResume.resumeFile(resumeDirectory, file.getInfoHash()), file, fileModifiedTimes(file));
+        }
+    }
+
+    // Modification times of the data files on disk; without a download directory nothing is on disk
+    private long[] fileModifiedTimes(TorrentFile file) throws IOException {
+        if (downloadDirectory == null) {
+            return new long[file.getFileCount()];
+        }
+        try (PieceStorage storage = new PieceStorage(downloadDirectory, file)) {
+            return storage.getFileModifiedTimes();
+        }
+    }
+
+    public void shutdown(Path resumeDirectory) throws IOException {
+        checkpoint(resumeDirectory);
+        setOnline(false);
+    }
+
     public boolean requestPiece(String infoHash, int pieceIndex, TorrentClient peer) {
+        FlightEvents.PieceRequest event = new FlightEvents.PieceRequest();
+        event.begin();
+        long bytes = transferPiece(infoHash, pieceIndex, peer);
+        if (event.shouldCommit()) {
+            event.infoHash = infoHash;
+            event.pieceIndex = pieceIndex;
+            event.client = getDeviceID();
+            event.peer = peer == null ? null : peer.getDeviceID();
+            event.bytes = Math.max(0, bytes);
+            event.success = bytes >= 0;
+            event.commit();
+        }
+        return bytes >= 0;
+    }
+
+    // Size of the piece once it is stored, -1 if the request is refused or the transfer fails
+    private long transferPiece(String infoHash, int pieceIndex, TorrentClient peer) {
         // Validate inputs
         if (peer == null || infoHash == null) {
-            return false;
+            return -1;
         }
 
         // Get files from both sides
@@ -49,34 +156,49 @@ public class TorrentClient extends Computer {
         TorrentFile peerFile = peer.getDownloadingFile(infoHash);
 
         if (localFile == null || peerFile == null) {
-            return false;
+            return -1;
         }
 
         // Validate piece index
         if (pieceIndex < 0 || pieceIndex >= localFile.getPieceCount()) {
-            return false;
+            return -1;
         }
 
         // Check if we already have the piece
         if (localFile.isPieceCompleted(pieceIndex)) {
-            return false;
+            return -1;
         }
 
         // Check if peer has the piece
         if (!peerFile.isPieceCompleted(pieceIndex)) {
-            return false;
+            return -1;
         }
 
         // Get the piece and simulate transfer
         Piece piece = localFile.getPieces().get(pieceIndex);
         if (simulateTransfer(piece, peer)) {
             localFile.markPieceCompleted(pieceIndex);
+            double millis = recordTransferTime(piece.getSize(), peer);
+            pieceLatency.record(Math.round(millis * 1000));
             updatePeerStatus(peer.getDeviceID(), 0, piece.getSize());
             peer.updatePeerStatus(getDeviceID(), piece.getSize(), 0);
-            return true;
+            bytesDownloaded.add(piece.getSize());
+            peer.bytesUploaded.add(piece.getSize());
+            FlightEvents.PieceComplete event = new FlightEvents.PieceComplete();
+            if (event.shouldCommit()) {
+                event.infoHash = infoHash;
+                event.pieceIndex = pieceIndex;
+                event.client = getDeviceID();
+                event.peer = peer.getDeviceID();
+                event.bytes = piece.getSize();
+                event.simulatedMillis = millis;
+                event.commit();
+            }
+            return piece.getSize();
         }
 
-        return false;
+        failedRequests.increment();
+        return -1;
     }
 
     private boolean simulateTransfer(Piece piece, TorrentClient peer) {
@@ -90,6 +212,168 @@ public class TorrentClient extends Computer {
         return random.nextDouble() < successRate;
     }
 
+    // Simulated time for the piece: RTT between the locations plus streaming at the slower side's rate
+    private double recordTransferTime(long bytes, TorrentClient peer) {
+        double mbps = Math.min(getMaxDownloadSpeed(), peer.getMaxUploadSpeed());
+        double millis = 0;
+        if (mbps > 0) {
+            millis = latencyModel != null
+                    ? latencyModel.getTransferMillis(peer.getLocation(), getLocation(), bytes, mbps)
+                    : LatencyModel.streamMillis(bytes, mbps);
+            transferMillis += millis;
+        }
+        if (!Objects.equals(getLocation(), peer.getLocation())) {
+            crossRegionBytes += bytes;
+        }
+        return millis;
+    }
+
+    // Online candidate holding the piece with the lowest RTT; the first one wins ties
+    public TorrentClient selectPeer(String infoHash, int pieceIndex, Collection<TorrentClient> candidates) {
+        TorrentClient best = null;
+        double bestRtt = Double.POSITIVE_INFINITY;
+        int from = latencyModel == null ? -1 : latencyModel.indexOf(getLocation()); // looked up once per call
+        for (TorrentClient candidate : candidates) {
+            TorrentFile file = candidate == this ? null : candidate.getDownloadingFile(infoHash);
+            if (file == null || !candidate.isOnline() || !file.isPieceCompleted(pieceIndex)) {
+                continue;
+            }
+            double rtt = latencyModel == null ? 0
+                    : from >= 0 ? latencyModel.getRtt(from, latencyModel.indexOf(candidate.getLocation()))
+                    : latencyModel.getRtt(this, candidate);
+            if (best == null || rtt < bestRtt) {
+                best = candidate;
+                bestRtt = rtt;
+            }
+        }
+        return best;
+    }
+
+    // Everything a simulation snapshot needs to resume this client: online state, progress per
+    // torrent, transfer totals, per-peer counters and the position of its random stream
+    public void writeState(DataOutput out) throws IOException {
+        captureState().write(out);
+    }
+
+    // Copies the state without encoding it, so a snapshot can be encoded on another thread
+    public State captureState() {
+        return new State(this);
+    }
+
+    // A client's snapshot state, copied out of the live client; write() encodes it as writeState does
+    public static final class State {
+        private final boolean online;
+        private final double transferMillis;
+        private final long crossRegionBytes;
+        private final long randomState;
+        private final String[] infoHashes;
+        private final byte[][] bitfields;
+        private final long[][] fileModifiedTimes;
+        private final String[] peerIds;
+        private final long[] uploadedBytes;
+        private final long[] downloadedBytes;
+        private final double[] uploadSpeeds;
+        private final double[] downloadSpeeds;
+        private final long[] lastUpdateTimes;
+
+        private State(TorrentClient client) {
+            this.online = client.isOnline();
+            this.transferMillis = client.transferMillis;
+            this.crossRegionBytes = client.crossRegionBytes;
+            this.randomState = client.random.getState();
+            int files = client.downloadingFiles.size();
+            this.infoHashes = new String[files];
+            this.bitfields = new byte[files][];
+            this.fileModifiedTimes = new long[files][];
+            int f = 0;
+            for (TorrentFile file : client.downloadingFiles.values()) {
+                infoHashes[f] = file.getInfoHash();
+                bitfields[f] = file.toBitfield();
+                fileModifiedTimes[f++] = file.getFileModifiedTimes();
+            }
+            int peers = client.peerStatuses.size();
+            this.peerIds = new String[peers];
+            this.uploadedBytes = new long[peers];
+            this.downloadedBytes = new long[peers];
+            this.uploadSpeeds = new double[peers];
+            this.downloadSpeeds = new double[peers];
+            this.lastUpdateTimes = new long[peers];
+            int p = 0;
+            for (Map.Entry<String, PeerStatus> entry : client.peerStatuses.entrySet()) {
+                PeerStatus status = entry.getValue();
+                peerIds[p] = entry.getKey();
+                uploadedBytes[p] = status.getUploadedBytes();
+                downloadedBytes[p] = status.getDownloadedBytes();
+                uploadSpeeds[p] = status.getUploadSpeed();
+                downloadSpeeds[p] = status.getDownloadSpeed();
+                lastUpdateTimes[p++] = status.getLastUpdateTime();
+            }
+        }
+
+        // Roughly how much copying this state took: one per peer counter, plus the client itself
+        public int getEntries() {
+            return 1 + peerIds.length;
+        }
+
+        public void write(DataOutput out) throws IOException {
+            out.writeBoolean(online);
+            out.writeDouble(transferMillis);
+            out.writeLong(crossRegionBytes);
+            out.writeLong(randomState);
+            out.writeInt(infoHashes.length);
+            for (int f = 0; f < infoHashes.length; f++) {
+                out.writeUTF(infoHashes[f]);
+                out.writeInt(bitfields[f].length);
+                out.write(bitfields[f]);
+                out.writeInt(fileModifiedTimes[f].length);
+                for (long mtime : fileModifiedTimes[f]) {
+                    out.writeLong(mtime);
+                }
+            }
+            out.writeInt(peerIds.length);
+            for (int p = 0; p < peerIds.length; p++) {
+                out.writeUTF(peerIds[p]);
+                out.writeLong(uploadedBytes[p]);
+                out.writeLong(downloadedBytes[p]);
+                out.writeDouble(uploadSpeeds[p]);
+                out.writeDouble(downloadSpeeds[p]);
+                out.writeLong(lastUpdateTimes[p]);
+            }
+        }
+    }
+
+    // Reverses writeState; every saved torrent must already be initialised on this client
+    public void readState(DataInput in) throws IOException {
+        setOnline(in.readBoolean());
+        transferMillis = in.readDouble();
+        crossRegionBytes = in.readLong();
+        random.setState(in.readLong());
+        int files = in.readInt();
+        for (int f = 0; f < files; f++) {
+            String infoHash = in.readUTF();
+            byte[] bitfield = new byte[in.readInt()];
+            in.readFully(bitfield);
+            long[] mtimes = new long[in.readInt()];
+            for (int i = 0; i < mtimes.length; i++) {
+                mtimes[i] = in.readLong();
+            }
+            TorrentFile file = downloadingFiles.get(infoHash);
+            if (file == null) {
+                throw new IOException(getDeviceID() + " has no download for " + infoHash);
+            }
+            file.restoreProgress(bitfield, mtimes);
+        }
+        peerStatuses.clear();
+        int statuses = in.readInt();
+        for (int i = 0; i < statuses; i++) {
+            peerStatuses.put(in.readUTF(), new PeerStatus(in.readLong(), in.readLong(), in.readDouble(),
+                    in.readDouble(), in.readLong()));
+        }
+    }
+
+    public double getTransferMillis() { return transferMillis; }
+    public long getCrossRegionBytes() { return crossRegionBytes; }
+
     private void updatePeerStatus(String peerId, long uploaded, long downloaded) {
         PeerStatus status = peerStatuses.computeIfAbsent(peerId, k -> new PeerStatus());
         status.updateTransfer(uploaded, downloaded);
@@ -2,6 +2,7 @@ package torrent;
 
 import base.Computer;
 import model.TorrentFile;
+import util.Metrics;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -9,13 +10,27 @@ import java.util.Map;
 import java.util.Set;
 
 public class TorrentServer extends Computer {
+    public static final String REGISTRATIONS = "server.registrations";
+    public static final String ACTIVE_PEERS = "server.active_peers";
+    public static final String HOSTED_FILES = "server.hosted_files";
+
     private final Map<String, Set<String>> activePeers;
+    private Metrics.Counter registrations;
+    private Metrics.Gauge activePeerGauge;
+    private Metrics.Gauge hostedFileGauge;
 
     public TorrentServer(String deviceID, String ipAddress, String location,
                          int bandwidth, double maxUploadSpeed, double maxDownloadSpeed,
                          long storageCapacity) {
         super(deviceID, ipAddress, location, bandwidth, maxUploadSpeed, maxDownloadSpeed, storageCapacity);
         this.activePeers = new HashMap<>();
+        setMetrics(Metrics.global());
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.registrations = metrics.counter(REGISTRATIONS);
+        this.activePeerGauge = metrics.gauge(ACTIVE_PEERS);
+        this.hostedFileGauge = metrics.gauge(HOSTED_FILES);
     }
 
     public void hostFile(TorrentFile file) {
@@ -25,6 +40,7 @@ public class TorrentServer extends Computer {
         String infoHash = file.getInfoHash();
         if (infoHash != null && !activePeers.containsKey(infoHash)) {
             activePeers.put(infoHash, new HashSet<>());
+            hostedFileGauge.add(1);
         }
     }
 
@@ -33,7 +49,10 @@ public class TorrentServer extends Computer {
             return;
         }
         activePeers.computeIfPresent(infoHash, (hash, peers) -> {
-            peers.add(peerId);
+            registrations.increment();
+            if (peers.add(peerId)) {
+                activePeerGauge.add(1);
+            }
             return peers;
         });
     }
@@ -1,23 +1,56 @@
 package torrent;
 
 import base.Computer;
+import base.Device;
+import base.DeviceEvent;
+import base.DeviceEventBus;
+import model.SwarmInfo;
 import model.TorrentFile;
+import util.FlightEvents;
+import util.IPAddress;
+import util.Metrics;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+
+public class TorrentTracker extends Computer implements DeviceEventBus.Subscriber {
+    public static final int DEFAULT_PEER_PORT = 6881;
+    public static final int COMPACT_PEER_LENGTH = 6; // BEP 23: 4-byte address, 2-byte port
+    public static final int COMPACT_PEER6_LENGTH = 18; // BEP 7 peers6: 16-byte address, 2-byte port
+    public static final String ANNOUNCE_LATENCY = "tracker.announce_latency_ns"; // wall clock
+    public static final String ANNOUNCES = "tracker.announces";
+    public static final String ONLINE_PEERS = "tracker.online_peers";
 
-public class TorrentTracker extends Computer {
     private final Map<String, Set<String>> peers;
+    private final Map<String, Map<String, Device>> peerDevices;
+    // Online accounting, kept current by subscribing to a DeviceEventBus that watches the peers
+    private final Map<String, Set<String>> torrentsByPeer;
+    private final Set<String> onlinePeers;
+    private final Map<String, Integer> onlinePeerCounts;
     private final Map<String, TorrentFile> trackedFiles;
+    // Live membership per torrent: stopped peers leave, and peers with nothing left to fetch seed
+    private final Map<String, SwarmInfo> swarms;
+    private Metrics.Histogram announceLatency;
+    private Metrics.Counter announces;
+    private Metrics.Gauge onlinePeerGauge;
 
     public TorrentTracker(String deviceID, String ipAddress, String location,
                           int bandwidth, double maxUploadSpeed, double maxDownloadSpeed,
                           long storageCapacity) {
         super(deviceID, ipAddress, location, bandwidth, maxUploadSpeed, maxDownloadSpeed, storageCapacity);
         this.peers = new HashMap<>();
+        this.peerDevices = new HashMap<>();
+        this.torrentsByPeer = new HashMap<>();
+        this.onlinePeers = new HashSet<>();
+        this.onlinePeerCounts = new HashMap<>();
         this.trackedFiles = new HashMap<>();
+        this.swarms = new HashMap<>();
+        setMetrics(Metrics.global());
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.announceLatency = metrics.histogram(ANNOUNCE_LATENCY);
+        this.announces = metrics.counter(ANNOUNCES);
+        this.onlinePeerGauge = metrics.gauge(ONLINE_PEERS);
     }
 
     public void trackFile(TorrentFile file) {
@@ -27,7 +60,9 @@ public class TorrentTracker extends Computer {
         String infoHash = file.getInfoHash();
         if (infoHash != null && !peers.containsKey(infoHash)) {
             peers.put(infoHash, new HashSet<>());
+            peerDevices.put(infoHash, new HashMap<>());
             trackedFiles.put(infoHash, file);
+            swarms.put(infoHash, new SwarmInfo(infoHash));
         }
     }
 
@@ -35,10 +70,165 @@ public class TorrentTracker extends Computer {
         if (infoHash == null || peerId == null) {
             return;
         }
-        peers.computeIfPresent(infoHash, (hash, peerSet) -> {
-            peerSet.add(peerId);
-            return peerSet;
-        });
+        recordAnnounce(infoHash, peerId, null, event);
+    }
+
+    // A stopped peer leaves every view of the torrent, so departed peers are never handed out
+    private void removePeer(String infoHash, String peerId) {
+        Set<String> peerSet = peers.get(infoHash);
+        if (peerSet != null) {
+            peerSet.remove(peerId);
+        }
+        Map<String, Device> devices = peerDevices.get(infoHash);
+        if (devices == null || devices.remove(peerId) == null) {
+            return;
+        }
+        Set<String> torrents = torrentsByPeer.get(peerId);
+        torrents.remove(infoHash);
+        if (onlinePeers.contains(peerId)) {
+            onlinePeerCounts.merge(infoHash, -1, Integer::sum);
+            if (torrents.isEmpty()) {
+                onlinePeers.remove(peerId);
+                onlinePeerGauge.add(-1);
+            }
+        }
+        if (torrents.isEmpty()) {
+            torrentsByPeer.remove(peerId);
+        }
+    }
+
+    private void updateSwarm(String infoHash, String peerId, String event, boolean seeder) {
+        SwarmInfo swarm = swarms.get(infoHash);
+        if (swarm == null) {
+            return;
+        }
+        if ("stopped".equals(event)) {
+            swarm.removePeer(peerId);
+        } else {
+            swarm.addPeer(peerId, seeder);
+        }
+    }
+
+    // Bytes a swarm's peers report moving between each other
+    public void recordTransfer(String infoHash, long bytes) {
+        SwarmInfo swarm = infoHash == null ? null : swarms.get(infoHash);
+        if (swarm != null) {
+            swarm.updateTransferred(bytes);
+        }
+    }
+
+    public SwarmInfo getSwarm(String infoHash) {
+        return infoHash == null ? null : swarms.get(infoHash);
+    }
+
+    // Announce from a device; the tracker records the address and location it was announced from
+    public void announcePeer(String infoHash, Device peer, String event) {
+        if (infoHash == null || peer == null) {
+            return;
+        }
+        recordAnnounce(infoHash, peer.getDeviceID(), peer, event);
+    }
+
+    // Both announce forms count and time here; peer is null when only the ID is known
+    private void recordAnnounce(String infoHash, String peerId, Device peer, String event) {
+        FlightEvents.Announce flightEvent = new FlightEvents.Announce();
+        flightEvent.begin();
+        long start = System.nanoTime();
+        boolean stopped = "stopped".equals(event);
+        if (stopped) {
+            removePeer(infoHash, peerId);
+        } else {
+            peers.computeIfPresent(infoHash, (hash, peerSet) -> {
+                peerSet.add(peerId);
+                return peerSet;
+            });
+        }
+        // Like an announce with left=0, a client holding the whole torrent seeds whatever event it sends.
+        // A device that is offline cannot really be announcing, so it does not join the live swarm.
+        if (peer == null || peer.isOnline() || stopped) {
+            boolean seeder = "completed".equals(event)
+                    || peer instanceof TorrentClient client && client.isDownloadComplete(infoHash);
+            updateSwarm(infoHash, peerId, event, seeder);
+        }
+        Map<String, Device> devices = peer == null || stopped ? null : peerDevices.get(infoHash);
+        if (devices != null && devices.put(peerId, peer) == null) {
+            torrentsByPeer.computeIfAbsent(peerId, id -> new HashSet<>()).add(infoHash);
+            if (onlinePeers.contains(peerId)) {
+                onlinePeerCounts.merge(infoHash, 1, Integer::sum);
+            } else if (peer.isOnline()) {
+                setPeerOnline(peerId, true);
+            }
+        }
+        announces.increment();
+        announceLatency.record(System.nanoTime() - start);
+        if (flightEvent.shouldCommit()) {
+            flightEvent.infoHash = infoHash;
+            flightEvent.tracker = getDeviceID();
+            flightEvent.peer = peerId;
+            flightEvent.event = event;
+            flightEvent.location = peer == null ? null : peer.getLocation();
+            flightEvent.commit();
+        }
+    }
+
+    @Override
+    public void onDeviceEvents(long tick, List<DeviceEvent> events) {
+        for (DeviceEvent event : events) {
+            String peerId = event.getDevice().getDeviceID();
+            if (event.getType() != DeviceEvent.Type.BANDWIDTH_CHANGED && torrentsByPeer.containsKey(peerId)) {
+                setPeerOnline(peerId, event.getType() == DeviceEvent.Type.ONLINE);
+            }
+        }
+    }
+
+    private void setPeerOnline(String peerId, boolean online) {
+        if (online ? onlinePeers.add(peerId) : onlinePeers.remove(peerId)) {
+            onlinePeerGauge.add(online ? 1 : -1);
+            for (String infoHash : torrentsByPeer.get(peerId)) {
+                onlinePeerCounts.merge(infoHash, online ? 1 : -1, Integer::sum);
+            }
+        }
+    }
+
+    // Announced peers currently online, as of the last delivered event batch
+    public int getOnlinePeerCount(String infoHash) {
+        return infoHash == null ? 0 : onlinePeerCounts.getOrDefault(infoHash, 0);
+    }
+
+    // IPv4 peers with a known address in compact form, COMPACT_PEER_LENGTH bytes each
+    public byte[] getCompactPeers(String infoHash) {
+        return compactPeers(infoHash, false, COMPACT_PEER_LENGTH);
+    }
+
+    // IPv6 peers for dual-stack swarms, COMPACT_PEER6_LENGTH bytes each
+    public byte[] getCompactPeers6(String infoHash) {
+        return compactPeers(infoHash, true, COMPACT_PEER6_LENGTH);
+    }
+
+    private byte[] compactPeers(String infoHash, boolean ipv6, int entryLength) {
+        Map<String, Device> devices = infoHash == null ? null : peerDevices.get(infoHash);
+        if (devices == null) {
+            return new byte[0];
+        }
+        int count = 0;
+        for (Device device : devices.values()) {
+            if (device.getAddress().isIPv6() == ipv6) {
+                count++;
+            }
+        }
+        byte[] compact = new byte[count * entryLength];
+        int offset = 0;
+        for (Device device : devices.values()) {
+            IPAddress address = device.getAddress();
+            if (address.isIPv6() != ipv6) {
+                continue;
+            }
+            address.writeTo(compact, offset);
+            offset += address.getByteLength();
+            compact[offset++] = (byte) (DEFAULT_PEER_PORT >>> 8);
+            compact[offset++] = (byte) DEFAULT_PEER_PORT;
+        }
+        return compact;
     }
 
     public Set<String> getPeers(String infoHash) {
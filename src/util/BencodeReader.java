@@ -0,0 +1,193 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Pull parser over bencoded data; strings are returned as slices of the source buffer
+public class BencodeReader {
+    public enum Token { INTEGER, STRING, LIST, DICTIONARY, END, EOF }
+
+    private final ByteBuffer buffer;
+
+    public BencodeReader(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    public static BencodeReader of(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 8192));
+        in.transferTo(out);
+        return new BencodeReader(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    public int position() {
+        return buffer.position();
+    }
+
+    // Bytes in [from, to) of the underlying data, without copying
+    public ByteBuffer slice(int from, int to) {
+        return buffer.duplicate().limit(to).position(from).slice();
+    }
+
+    public Token peek() {
+        if (!buffer.hasRemaining()) {
+            return Token.EOF;
+        }
+        byte b = buffer.get(buffer.position());
+        if (b == 'i') return Token.INTEGER;
+        if (b == 'l') return Token.LIST;
+        if (b == 'd') return Token.DICTIONARY;
+        if (b == 'e') return Token.END;
+        if (b >= '0' && b <= '9') return Token.STRING;
+        throw malformed("unexpected byte '" + (char) b + "'");
+    }
+
+    public boolean hasNext() {
+        Token token = peek();
+        if (token == Token.EOF) {
+            throw malformed("unterminated container");
+        }
+        return token != Token.END;
+    }
+
+    public void beginList() {
+        expect('l');
+    }
+
+    public void beginDictionary() {
+        expect('d');
+    }
+
+    public void endContainer() {
+        expect('e');
+    }
+
+    public long readInteger() {
+        expect('i');
+        long value = parseDigits('e', true);
+        expect('e');
+        return value;
+    }
+
+    public ByteBuffer readBytes() {
+        int length = readStringLength();
+        ByteBuffer value = slice(buffer.position(), buffer.position() + length);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public String readString() {
+        if (!buffer.hasArray()) {
+            return StandardCharsets.UTF_8.decode(readBytes()).toString();
+        }
+        int length = readStringLength();
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    // Compares the next string against an ASCII key and consumes it either way
+    public boolean readKey(String key) {
+        int length = readStringLength();
+        int start = buffer.position();
+        buffer.position(start + length);
+        return matches(start, length, key);
+    }
+
+    // Index of the ASCII key the next string equals, or -1; the string is consumed either way
+    public int readKey(String[] keys) {
+        int length = readStringLength();
+        int start = buffer.position();
+        buffer.position(start + length);
+        for (int k = 0; k < keys.length; k++) {
+            if (matches(start, length, keys[k])) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int start, int length, String key) {
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void skipValue() {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case INTEGER -> readInteger();
+                case STRING -> {
+                    int length = readStringLength();
+                    buffer.position(buffer.position() + length);
+                }
+                case LIST, DICTIONARY -> {
+                    buffer.get();
+                    depth++;
+                }
+                case END -> {
+                    if (depth == 0) {
+                        throw malformed("unexpected end marker");
+                    }
+                    buffer.get();
+                    depth--;
+                }
+                case EOF -> throw malformed("unexpected end of data");
+            }
+        } while (depth > 0);
+    }
+
+    private int readStringLength() {
+        if (peek() != Token.STRING) {
+            throw malformed("expected string");
+        }
+        long length = parseDigits(':', false); // BEP 3: no sign and no leading zeros
+        expect(':');
+        if (length > buffer.remaining()) {
+            throw malformed("string length " + length + " exceeds data");
+        }
+        return (int) length;
+    }
+
+    private long parseDigits(char terminator, boolean signed) {
+        boolean negative = false;
+        if (signed && buffer.hasRemaining() && buffer.get(buffer.position()) == '-') {
+            negative = true;
+            buffer.get();
+        }
+        int start = buffer.position();
+        long value = 0;
+        while (buffer.hasRemaining() && buffer.get(buffer.position()) != terminator) {
+            byte b = buffer.get();
+            if (b < '0' || b > '9' || value > (Long.MAX_VALUE - 9) / 10) {
+                throw malformed("invalid number");
+            }
+            value = value * 10 + (b - '0');
+        }
+        int digits = buffer.position() - start;
+        if (digits == 0 || (digits > 1 && buffer.get(start) == '0') || (negative && value == 0)) {
+            throw malformed("invalid number");
+        }
+        return negative ? -value : value;
+    }
+
+    private void expect(char c) {
+        if (!buffer.hasRemaining() || buffer.get() != c) {
+            throw malformed("expected '" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed bencode at offset " + buffer.position() + ": " + reason);
+    }
+}
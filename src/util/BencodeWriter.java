@@ -0,0 +1,87 @@
+package util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Streaming bencode encoder; dictionary keys must be written in sorted order by the caller
+public class BencodeWriter {
+    private final OutputStream out;
+    private final byte[] digits = new byte[20];
+    private int depth;
+
+    public BencodeWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public BencodeWriter writeInteger(long value) throws IOException {
+        out.write('i');
+        writeDecimal(value);
+        out.write('e');
+        return this;
+    }
+
+    public BencodeWriter writeString(String value) throws IOException {
+        return writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public BencodeWriter writeBytes(byte[] value) throws IOException {
+        writeDecimal(value.length);
+        out.write(':');
+        out.write(value);
+        return this;
+    }
+
+    public BencodeWriter writeBytes(ByteBuffer value) throws IOException {
+        ByteBuffer source = value.duplicate();
+        writeDecimal(source.remaining());
+        out.write(':');
+        if (source.hasArray()) {
+            out.write(source.array(), source.arrayOffset() + source.position(), source.remaining());
+        } else {
+            while (source.hasRemaining()) {
+                out.write(source.get());
+            }
+        }
+        return this;
+    }
+
+    public BencodeWriter beginList() throws IOException {
+        out.write('l');
+        depth++;
+        return this;
+    }
+
+    public BencodeWriter beginDictionary() throws IOException {
+        out.write('d');
+        depth++;
+        return this;
+    }
+
+    public BencodeWriter endContainer() throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("No open list or dictionary");
+        }
+        out.write('e');
+        depth--;
+        return this;
+    }
+
+    private void writeDecimal(long value) throws IOException {
+        if (value == 0) {
+            out.write('0');
+            return;
+        }
+        boolean negative = value < 0;
+        int pos = digits.length;
+        while (value != 0) {
+            digits[--pos] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        }
+        if (negative) {
+            digits[--pos] = '-';
+        }
+        out.write(digits, pos, digits.length - pos);
+    }
+}
@@ -0,0 +1,127 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Java Flight Recorder events for torrent activity, so a recording shows what the swarm was doing
+ * next to the JVM's own events. Callers follow the usual pattern:
+ *
+ *   FlightEvents.PieceRequest event = new FlightEvents.PieceRequest();
+ *   event.begin();
+ *   ...
+ *   if (event.shouldCommit()) { fill in fields; event.commit(); }
+ *
+ * Without a recording JFR leaves the calls empty and the JIT removes the event object, and with a
+ * threshold set shouldCommit() rejects short events before any field is touched. Fields only ever
+ * point at existing strings. Stack traces are off, since capturing one would cost far more than
+ * the event itself; turn them on per event in the recording settings when needed.
+ */
+public final class FlightEvents {
+    private static final String CATEGORY = "BitTorrent";
+
+    private FlightEvents() {
+    }
+
+    @Name("torrent.PieceRequest")
+    @Label("Piece Request")
+    @Description("A client asking a peer for one piece, from the request until the piece is stored or refused")
+    @Category({ CATEGORY, "Transfer" })
+    @StackTrace(false)
+    public static final class PieceRequest extends Event {
+        @Label("Info Hash")
+        public String infoHash;
+
+        @Label("Piece Index")
+        public int pieceIndex;
+
+        @Label("Client")
+        public String client;
+
+        @Label("Peer")
+        @Description("The peer asked for the piece")
+        public String peer;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("torrent.PieceComplete")
+    @Label("Piece Complete")
+    @Description("A client finished downloading a piece")
+    @Category({ CATEGORY, "Transfer" })
+    @StackTrace(false)
+    public static final class PieceComplete extends Event {
+        @Label("Info Hash")
+        public String infoHash;
+
+        @Label("Piece Index")
+        public int pieceIndex;
+
+        @Label("Client")
+        public String client;
+
+        @Label("Peer")
+        @Description("The peer the piece came from")
+        public String peer;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Simulated Millis")
+        @Description("Simulated transfer time of the piece, RTT included")
+        public double simulatedMillis;
+    }
+
+    @Name("torrent.Announce")
+    @Label("Tracker Announce")
+    @Description("A peer announcing itself to a tracker")
+    @Category({ CATEGORY, "Tracker" })
+    @StackTrace(false)
+    public static final class Announce extends Event {
+        @Label("Info Hash")
+        public String infoHash;
+
+        @Label("Tracker")
+        public String tracker;
+
+        @Label("Peer")
+        public String peer;
+
+        @Label("Event")
+        @Description("started, completed or stopped")
+        public String event;
+
+        @Label("Location")
+        public String location;
+    }
+
+    @Name("torrent.BlockVerification")
+    @Label("Block Verification")
+    @Description("Checking one block of a piece against the torrent's Merkle piece layer")
+    @Category({ CATEGORY, "Verification" })
+    @StackTrace(false)
+    public static final class BlockVerification extends Event {
+        @Label("Info Hash")
+        public String infoHash;
+
+        @Label("Piece Index")
+        public int pieceIndex;
+
+        @Label("Block")
+        public int block;
+
+        @Label("Verified")
+        public boolean verified;
+    }
+}
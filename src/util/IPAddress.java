@@ -0,0 +1,23 @@
+package util;
+
+// Common type for packed IPv4 and IPv6 addresses
+public abstract class IPAddress {
+    IPAddress() {
+    }
+
+    // Picks the family from the text: anything with a colon is IPv6
+    public static IPAddress parse(String ip) {
+        if (ip != null && ip.indexOf(':') >= 0) {
+            return IPv6Address.parse(ip);
+        }
+        return IPv4Address.parse(ip);
+    }
+
+    public abstract boolean isIPv6();
+
+    // Address length in bytes: 4 or 16
+    public abstract int getByteLength();
+
+    // Writes the address in network byte order
+    public abstract void writeTo(byte[] destination, int offset);
+}
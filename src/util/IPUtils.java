@@ -1,21 +1,214 @@
 package util;
 
-import java.util.regex.Pattern;
-
 public class IPUtils {
+    private static final long INVALID = -1L;
+
     public static String validateIP(String ip) {
-        // Define the IPv4 regex pattern
-        String regex = "^(25[0-5]|2[0-4][0-9]|1[0-9]{1,2}|[1-9]?[0-9])"
-                + "(\\.(25[0-5]|2[0-4][0-9]|1[0-9]{1,2}|[1-9]?[0-9])){3}$";
+        if (parseIPv4(ip) == INVALID) {
+            throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+        }
+        return ip;
+    }
 
-        // Compile the pattern
-        Pattern pattern = Pattern.compile(regex);
+    public static boolean isValidIPv4(CharSequence ip) {
+        return parseIPv4(ip) != INVALID;
+    }
 
-        // Throw an exception if the input does not match the pattern
-        if (!pattern.matcher(ip).matches()) {
-            throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+    // Dotted quad packed big-endian into the low 32 bits, or -1 when ip is not a valid
+    // address. Octets are 0-255 without leading zeros, signs or whitespace; nothing is allocated.
+    public static long parseIPv4(CharSequence ip) {
+        return ip == null ? INVALID : parseIPv4(ip, 0, ip.length());
+    }
+
+    public static long parseIPv4(CharSequence ip, int from, int to) {
+        int length = to - from;
+        if (length < 7 || length > 15) {
+            return INVALID;
         }
+        long packed = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = ip.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    return INVALID;
+                }
+                packed = (packed << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (digits > 0 && octet == 0) {
+                    return INVALID; // leading zero
+                }
+                octet = octet * 10 + (c - '0');
+                digits++;
+                if (octet > 255) {
+                    return INVALID;
+                }
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits == 0 || dots != 3) {
+            return INVALID;
+        }
+        return (packed << 8) | octet;
+    }
 
-        return ip;
+    public static boolean isValidIPv6(CharSequence ip) {
+        return parseIPv6(ip, new long[2]);
+    }
+
+    // Parses an IPv6 address, with :: compression and an optional trailing dotted quad, into
+    // out[0] (high 64 bits) and out[1] (low 64 bits). Returns false, leaving out undefined,
+    // when ip is invalid. Nothing is allocated, so callers can reuse out across calls.
+    public static boolean parseIPv6(CharSequence ip, long[] out) {
+        if (ip == null) {
+            return false;
+        }
+        int length = ip.length();
+        if (length < 2 || length > 45) {
+            return false;
+        }
+        out[0] = 0;
+        out[1] = 0;
+        int groups = 0;
+        int compressedAt = -1;
+        int i = 0;
+        if (ip.charAt(0) == ':') {
+            if (ip.charAt(1) != ':') {
+                return false;
+            }
+            compressedAt = 0;
+            i = 2;
+        }
+        while (i < length) {
+            int start = i;
+            int value = 0;
+            while (i < length && i - start < 5) {
+                int digit = hexValue(ip.charAt(i));
+                if (digit < 0) {
+                    break;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+            if (i < length && ip.charAt(i) == '.') {
+                // Trailing dotted quad fills the last two groups
+                long ipv4 = groups <= 6 ? parseIPv4(ip, start, length) : INVALID;
+                if (ipv4 == INVALID) {
+                    return false;
+                }
+                setGroup(out, groups++, (int) (ipv4 >>> 16));
+                setGroup(out, groups++, (int) ipv4 & 0xFFFF);
+                break;
+            }
+            if (i == start || i - start > 4 || groups == 8) {
+                return false;
+            }
+            setGroup(out, groups++, value);
+            if (i == length) {
+                break;
+            }
+            if (ip.charAt(i++) != ':' || i == length) {
+                return false;
+            }
+            if (ip.charAt(i) == ':') {
+                if (compressedAt >= 0) {
+                    return false;
+                }
+                compressedAt = groups;
+                i++;
+            }
+        }
+        if (compressedAt < 0) {
+            return groups == 8;
+        }
+        if (groups > 7) {
+            return false;
+        }
+        // Slide the groups after :: to the end, highest first so nothing is overwritten
+        int gap = 8 - groups;
+        for (int g = groups - 1; g >= compressedAt; g--) {
+            setGroup(out, g + gap, group(out, g));
+            setGroup(out, g, 0);
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    static int group(long[] address, int index) {
+        return (int) (address[index >> 2] >>> (16 * (3 - (index & 3)))) & 0xFFFF;
+    }
+
+    private static void setGroup(long[] address, int index, int value) {
+        int shift = 16 * (3 - (index & 3));
+        address[index >> 2] = (address[index >> 2] & ~(0xFFFFL << shift)) | ((long) value << shift);
+    }
+
+    // RFC 5952 text form: lowercase, no leading zeros, longest zero run compressed
+    public static String formatIPv6(long high, long low) {
+        long[] address = { high, low };
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int g = 0; g < 8; ) {
+            if (group(address, g) != 0) {
+                g++;
+                continue;
+            }
+            int start = g;
+            while (g < 8 && group(address, g) == 0) {
+                g++;
+            }
+            if (g - start > bestLength) {
+                bestStart = start;
+                bestLength = g - start;
+            }
+        }
+        StringBuilder text = new StringBuilder(39);
+        boolean mappedIPv4 = high == 0 && (low >>> 32) == 0xFFFFL;
+        int lastGroup = mappedIPv4 ? 6 : 8;
+        for (int g = 0; g < lastGroup; g++) {
+            if (g == bestStart) {
+                text.append("::");
+                g += bestLength - 1;
+                continue;
+            }
+            if (g > 0 && g != bestStart + bestLength) {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(group(address, g)));
+        }
+        if (mappedIPv4) {
+            text.append(':').append(formatIPv4((int) low));
+        }
+        return text.toString();
+    }
+
+    public static String formatIPv4(int address) {
+        char[] chars = new char[15];
+        int pos = 0;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int octet = (address >>> shift) & 0xFF;
+            if (octet >= 100) {
+                chars[pos++] = (char) ('0' + octet / 100);
+            }
+            if (octet >= 10) {
+                chars[pos++] = (char) ('0' + octet / 10 % 10);
+            }
+            chars[pos++] = (char) ('0' + octet % 10);
+            if (shift > 0) {
+                chars[pos++] = '.';
+            }
+        }
+        return new String(chars, 0, pos);
     }
 }
@@ -0,0 +1,66 @@
+package util;
+
+// An IPv4 address packed into an int; the dotted form is only built when asked for
+public final class IPv4Address extends IPAddress implements Comparable<IPv4Address> {
+    public static final int BYTE_LENGTH = 4;
+
+    private final int value;
+
+    private IPv4Address(int value) {
+        this.value = value;
+    }
+
+    public static IPv4Address of(int value) {
+        return new IPv4Address(value);
+    }
+
+    public static IPv4Address parse(String ip) {
+        long packed = IPUtils.parseIPv4(ip);
+        if (packed < 0) {
+            throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+        }
+        return new IPv4Address((int) packed);
+    }
+
+    public int toInt() {
+        return value;
+    }
+
+    @Override
+    public boolean isIPv6() {
+        return false;
+    }
+
+    @Override
+    public int getByteLength() {
+        return BYTE_LENGTH;
+    }
+
+    @Override
+    public void writeTo(byte[] destination, int offset) {
+        destination[offset] = (byte) (value >>> 24);
+        destination[offset + 1] = (byte) (value >>> 16);
+        destination[offset + 2] = (byte) (value >>> 8);
+        destination[offset + 3] = (byte) value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof IPv4Address && ((IPv4Address) obj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
+    }
+
+    @Override
+    public int compareTo(IPv4Address other) {
+        return Integer.compareUnsigned(value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        return IPUtils.formatIPv4(value);
+    }
+}
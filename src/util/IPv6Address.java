@@ -0,0 +1,68 @@
+package util;
+
+// An IPv6 address packed into two longs; the text form is only built when asked for
+public final class IPv6Address extends IPAddress implements Comparable<IPv6Address> {
+    public static final int BYTE_LENGTH = 16;
+
+    private final long high;
+    private final long low;
+
+    private IPv6Address(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static IPv6Address of(long high, long low) {
+        return new IPv6Address(high, low);
+    }
+
+    public static IPv6Address parse(String ip) {
+        long[] packed = new long[2];
+        if (!IPUtils.parseIPv6(ip, packed)) {
+            throw new IllegalArgumentException("Invalid IPv6 address: " + ip);
+        }
+        return new IPv6Address(packed[0], packed[1]);
+    }
+
+    public long getHigh() { return high; }
+    public long getLow() { return low; }
+
+    @Override
+    public boolean isIPv6() {
+        return true;
+    }
+
+    @Override
+    public int getByteLength() {
+        return BYTE_LENGTH;
+    }
+
+    @Override
+    public void writeTo(byte[] destination, int offset) {
+        for (int i = 0; i < 8; i++) {
+            destination[offset + i] = (byte) (high >>> (56 - 8 * i));
+            destination[offset + 8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof IPv6Address && ((IPv6Address) obj).high == high && ((IPv6Address) obj).low == low;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(high) + Long.hashCode(low);
+    }
+
+    @Override
+    public int compareTo(IPv6Address other) {
+        int result = Long.compareUnsigned(high, other.high);
+        return result != 0 ? result : Long.compareUnsigned(low, other.low);
+    }
+
+    @Override
+    public String toString() {
+        return IPUtils.formatIPv6(high, low);
+    }
+}
@@ -0,0 +1,251 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Leveled logging that keeps I/O off the calling thread. Callers claim a slot in a preallocated
+// ring with one atomic increment and store the template and arguments there; numbers stay
+// unboxed and nothing is formatted until a background thread drains the ring in batches and
+// writes each batch with a single flush. Hot paths should guard calls with isEnabled so a
+// disabled level costs one field read. "{}" in a template is replaced by the next argument.
+public final class Log implements Closeable {
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_ARGS = 3;
+    private static final int BATCH = 256;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final Level[] LEVELS = Level.values();
+
+    private static volatile Log global;
+
+    private final Writer out;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLongArray published; // sequence stored in each slot once it is filled
+    private final byte[] levels;
+    private final String[] templates;
+    private final Object[] objects;
+    private final long[] numbers;
+    private final byte[] numberMasks; // bit i set: argument i is in numbers, not objects
+    private volatile long consumed;
+    private volatile int threshold;
+    private volatile boolean closed;
+    private final Thread writer;
+    private final StringBuilder batch = new StringBuilder(1 << 14); // writer thread only
+
+    public Log(OutputStream out, Level level) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16), level,
+                DEFAULT_CAPACITY);
+    }
+
+    public Log(Writer out, Level level, int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.out = out;
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.levels = new byte[capacity];
+        this.templates = new String[capacity];
+        this.objects = new Object[capacity * MAX_ARGS];
+        this.numbers = new long[capacity * MAX_ARGS];
+        this.numberMasks = new byte[capacity];
+        setLevel(level);
+        this.writer = new Thread(this::drainLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Process-wide log, INFO to stdout unless replaced; flushed when the JVM exits
+    public static Log global() {
+        Log log = global;
+        if (log == null) {
+            synchronized (Log.class) {
+                if (global == null) {
+                    Log created = new Log(System.out, Level.INFO);
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::flush, "log-shutdown"));
+                    global = created;
+                }
+                log = global;
+            }
+        }
+        return log;
+    }
+
+    // Installs log as the global one and returns the previous one, which is left open
+    public static synchronized Log setGlobal(Log log) {
+        Log previous = global;
+        global = log;
+        return previous;
+    }
+
+    public void setLevel(Level level) {
+        this.threshold = level.ordinal();
+    }
+
+    public Level getLevel() {
+        return LEVELS[threshold];
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold && level != Level.OFF;
+    }
+
+    public void log(Level level, String message) {
+        publish(level, message, 0, null, null, null, 0, 0, 0);
+    }
+
+    public void log(Level level, String template, Object a) {
+        publish(level, template, 0, a, null, null, 0, 0, 0);
+    }
+
+    public void log(Level level, String template, Object a, Object b) {
+        publish(level, template, 0, a, b, null, 0, 0, 0);
+    }
+
+    public void log(Level level, String template, Object a, Object b, Object c) {
+        publish(level, template, 0, a, b, c, 0, 0, 0);
+    }
+
+    public void log(Level level, String template, long a) {
+        publish(level, template, 0b001, null, null, null, a, 0, 0);
+    }
+
+    public void log(Level level, String template, long a, long b) {
+        publish(level, template, 0b011, null, null, null, a, b, 0);
+    }
+
+    public void log(Level level, String template, Object a, long b) {
+        publish(level, template, 0b010, a, null, null, 0, b, 0);
+    }
+
+    public void log(Level level, String template, Object a, long b, Object c) {
+        publish(level, template, 0b010, a, null, c, 0, b, 0);
+    }
+
+    private void publish(Level level, String template, int numberMask, Object a, Object b, Object c,
+                         long x, long y, long z) {
+        if (!isEnabled(level) || closed) {
+            return;
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed > mask) {
+            if (!writer.isAlive()) {
+                return; // nothing will drain the ring again, so the line is lost
+            }
+            Thread.onSpinWait(); // ring full: wait for the writer rather than drop the line
+        }
+        int slot = (int) (sequence & mask);
+        if (closed) {
+            // Raced with close(): hand back an empty slot so the writer can still drain to the end
+            templates[slot] = null;
+            published.lazySet(slot, sequence);
+            return;
+        }
+        int base = slot * MAX_ARGS;
+        levels[slot] = (byte) level.ordinal();
+        templates[slot] = template;
+        numberMasks[slot] = (byte) numberMask;
+        objects[base] = a;
+        objects[base + 1] = b;
+        objects[base + 2] = c;
+        numbers[base] = x;
+        numbers[base + 1] = y;
+        numbers[base + 2] = z;
+        published.lazySet(slot, sequence); // release: the fields above are visible first
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int drained = drainBatch();
+            if (drained == 0) {
+                if (closed && consumed == claimed.get()) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private int drainBatch() {
+        long next = consumed;
+        int count = 0;
+        while (count < BATCH && published.get((int) (next & mask)) == next) {
+            int slot = (int) (next & mask);
+            if (templates[slot] != null) {
+                format(slot);
+            }
+            int base = slot * MAX_ARGS;
+            templates[slot] = null; // let the arguments be collected
+            objects[base] = objects[base + 1] = objects[base + 2] = null;
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            try {
+                out.append(batch);
+                out.flush();
+            } catch (IOException e) {
+                // A failing stream loses lines rather than stalling callers; there is nowhere to report it
+            }
+            batch.setLength(0);
+        }
+        consumed = next;
+        return count;
+    }
+
+    private void format(int slot) {
+        Level level = LEVELS[levels[slot]];
+        if (level.compareTo(Level.WARN) >= 0) {
+            batch.append(level).append(' ');
+        }
+        String template = templates[slot];
+        int base = slot * MAX_ARGS;
+        int arg = 0;
+        int from = 0;
+        for (int at = template.indexOf("{}"); at >= 0 && arg < MAX_ARGS; at = template.indexOf("{}", from)) {
+            batch.append(template, from, at);
+            if ((numberMasks[slot] & (1 << arg)) != 0) {
+                batch.append(numbers[base + arg]);
+            } else {
+                batch.append(objects[base + arg]);
+            }
+            arg++;
+            from = at + 2;
+        }
+        batch.append(template, from, template.length()).append(System.lineSeparator());
+    }
+
+    // Blocks until everything logged before the call has been written
+    public void flush() {
+        long target = claimed.get();
+        while (consumed < target && writer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    // Stops the writer once the ring is drained; the stream itself is left open
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
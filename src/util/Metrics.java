@@ -0,0 +1,263 @@
+package util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Named counters, gauges and histograms. Components look their instruments up once and keep them;
+// recording after that is a few atomic operations with no allocation and no locks, so it is safe
+// from any thread. snapshot() reads everything at once, and snapshotAndReset() also starts a new
+// interval, for reporting per period. Gauges are levels, so a reset leaves them alone.
+public final class Metrics {
+    private static volatile Metrics global;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private volatile long intervalStart = System.nanoTime();
+
+    // Process-wide registry that components record into unless given another
+    public static Metrics global() {
+        Metrics metrics = global;
+        if (metrics == null) {
+            synchronized (Metrics.class) {
+                if (global == null) {
+                    global = new Metrics();
+                }
+                metrics = global;
+            }
+        }
+        return metrics;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, key -> new Gauge());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    public Snapshot snapshot() {
+        return snapshot(false);
+    }
+
+    public synchronized Snapshot snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    private Snapshot snapshot(boolean reset) {
+        long now = System.nanoTime();
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, reset ? counter.adder.sumThenReset() : counter.get()));
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.get()));
+        Map<String, HistogramSnapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot(reset)));
+        Snapshot snapshot = new Snapshot(now - intervalStart, counterValues, gaugeValues, histogramValues);
+        if (reset) {
+            intervalStart = now;
+        }
+        return snapshot;
+    }
+
+    public static final class Counter {
+        private final LongAdder adder = new LongAdder(); // striped, so contended adds do not collide
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long amount) {
+            adder.add(amount);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+    }
+
+    public static final class Gauge {
+        private final AtomicLong value = new AtomicLong();
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /*
+     * Log-bucketed histogram in the style of HdrHistogram: every power of two is split into
+     * SUB_BUCKETS linear buckets, so any recorded value is known to within 1/SUB_BUCKETS (about
+     * 3%) whatever its magnitude, and the whole long range fits in a fixed array of counts.
+     */
+    public static final class Histogram {
+        static final int SUB_BUCKET_BITS = 5;
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        public void record(long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Histogram values must not be negative: " + value);
+            }
+            counts.incrementAndGet(bucketOf(value));
+            sum.add(value);
+            long current;
+            while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+                // another thread lowered it first; reread
+            }
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // another thread raised it first; reread
+            }
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+        }
+
+        // Largest value that lands in bucket
+        static long highestIn(int bucket) {
+            if (bucket < 2 * SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long top = SUB_BUCKETS + bucket % SUB_BUCKETS;
+            return ((top + 1) << shift) - 1;
+        }
+
+        public HistogramSnapshot snapshot() {
+            return snapshot(false);
+        }
+
+        // With reset, values recorded while the counts are read land in this snapshot or the next,
+        // never in neither
+        HistogramSnapshot snapshot(boolean reset) {
+            long[] copy = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+                count += copy[i];
+            }
+            long total = reset ? sum.sumThenReset() : sum.sum();
+            long lowest = reset ? min.getAndSet(Long.MAX_VALUE) : min.get();
+            long highest = reset ? max.getAndSet(Long.MIN_VALUE) : max.get();
+            // A value counted but whose min/max update is still in flight can leave the sentinels in place
+            return new HistogramSnapshot(copy, count, total, lowest == Long.MAX_VALUE ? 0 : lowest, Math.max(0, highest));
+        }
+    }
+
+    public static final class HistogramSnapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getCount() { return count; }
+        public long getSum() { return sum; }
+        public long getMin() { return min; }
+        public long getMax() { return max; }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        // Smallest bucket bound at or below which percentile% of the values lie, capped by the maximum
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return max > 0 ? Math.min(Histogram.highestIn(i), max) : Histogram.highestIn(i);
+                }
+            }
+            return max;
+        }
+
+        // Number of values at or below value, to bucket precision
+        public long getCountAtOrBelow(long value) {
+            long below = 0;
+            for (int i = 0; i < counts.length && Histogram.highestIn(i) <= value; i++) {
+                below += counts[i];
+            }
+            return below;
+        }
+    }
+
+    public static final class Snapshot {
+        private final long intervalNanos;
+        private final Map<String, Long> counters;
+        private final Map<String, Long> gauges;
+        private final Map<String, HistogramSnapshot> histograms;
+
+        Snapshot(long intervalNanos, Map<String, Long> counters, Map<String, Long> gauges,
+                 Map<String, HistogramSnapshot> histograms) {
+            this.intervalNanos = intervalNanos;
+            this.counters = Collections.unmodifiableMap(counters);
+            this.gauges = Collections.unmodifiableMap(gauges);
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+
+        // Time since the registry was created or last reset
+        public long getIntervalNanos() { return intervalNanos; }
+        public Map<String, Long> getCounters() { return counters; }
+        public Map<String, Long> getGauges() { return gauges; }
+        public Map<String, HistogramSnapshot> getHistograms() { return histograms; }
+
+        public long getCounter(String name) {
+            return counters.getOrDefault(name, 0L);
+        }
+
+        public long getGauge(String name) {
+            return gauges.getOrDefault(name, 0L);
+        }
+
+        public HistogramSnapshot getHistogram(String name) {
+            return histograms.get(name);
+        }
+
+        // Counter increase per second over the interval, e.g. bytes per second
+        public double getRate(String counter) {
+            return intervalNanos <= 0 ? 0 : getCounter(counter) * 1e9 / intervalNanos;
+        }
+    }
+}
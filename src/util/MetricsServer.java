@@ -0,0 +1,116 @@
+package util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves a Metrics registry at http://localhost:<port>/metrics in the Prometheus text format.
+// Scrapes are answered on the server's own thread from a snapshot of the registry, so whatever
+// records into it never waits on a scrape.
+public final class MetricsServer implements Closeable {
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private final Metrics metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Listens on the loopback interface only; port 0 picks a free one
+    public MetricsServer(Metrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render(metrics.snapshot()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // Counters get a _total suffix and histograms become summaries with a few quantiles
+    public static String render(Metrics.Snapshot snapshot) {
+        StringBuilder text = new StringBuilder(4096);
+        for (Map.Entry<String, Long> counter : snapshot.getCounters().entrySet()) {
+            String name = sanitize(counter.getKey());
+            if (!name.endsWith("_total")) {
+                name += "_total";
+            }
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(counter.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> gauge : snapshot.getGauges().entrySet()) {
+            String name = sanitize(gauge.getKey());
+            text.append("# TYPE ").append(name).append(" gauge\n");
+            text.append(name).append(' ').append(gauge.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Metrics.HistogramSnapshot> histogram : snapshot.getHistograms().entrySet()) {
+            String name = sanitize(histogram.getKey());
+            Metrics.HistogramSnapshot values = histogram.getValue();
+            text.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(values.getPercentile(quantile * 100)).append('\n');
+            }
+            text.append(name).append("_sum ").append(values.getSum()).append('\n');
+            text.append(name).append("_count ").append(values.getCount()).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Prometheus names are [a-zA-Z_:][a-zA-Z0-9_:]*, so dots and the like become underscores
+    static String sanitize(String name) {
+        StringBuilder sanitized = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == ':'
+                    || i > 0 && c >= '0' && c <= '9';
+            sanitized.append(valid ? c : '_');
+        }
+        return sanitized.toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
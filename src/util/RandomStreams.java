@@ -0,0 +1,45 @@
+package util;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+// Reproducible random streams derived from one seed. Components ask for their stream by name, so
+// a stream depends only on the seed and the name, not on creation order or which thread asks first.
+public final class RandomStreams {
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long seedFor(String name) {
+        long hash = 0xCBF29CE484222325L; // FNV-1a over the UTF-16 chars
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(seed + mix(hash));
+    }
+
+    public SplitMix stream(String name) {
+        return new SplitMix(seedFor(name));
+    }
+
+    // Fisher-Yates, since Collections.shuffle only takes a java.util.Random
+    public static <T> void shuffle(List<T> list, RandomGenerator random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    // SplitMix64 finalizer, so nearby seeds and names give unrelated streams
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
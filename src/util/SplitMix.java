@@ -0,0 +1,29 @@
+package util;
+
+import java.util.random.RandomGenerator;
+
+// SplitMix64, the generator behind SplittableRandom, with its state exposed so simulation
+// snapshots can save a stream and resume it exactly where it left off.
+public final class SplitMix implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public SplitMix(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return RandomStreams.mix(state);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}